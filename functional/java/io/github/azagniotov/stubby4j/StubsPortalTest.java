@@ -1034,4 +1034,19 @@ public class StubsPortalTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldDelayResponseByStubbedLatency_WhenStubHasLatency() throws Exception {
+        final String requestUrl = String.format("%s%s", STUBS_URL, "/item/redirect");
+        final HttpRequest request = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+        request.setFollowRedirects(false);
+
+        final long before = System.currentTimeMillis();
+        final HttpResponse response = request.execute();
+        final long after = System.currentTimeMillis();
+
+        assertThat(after - before).isAtLeast(1000L);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.MOVED_PERMANENTLY_301);
+        assertThat(response.getHeaders().getLocation()).isEqualTo("/item/1");
+    }
+}
@@ -31,34 +31,59 @@ public class CommandLineIntepreterTest {
         System.setOut(oldPrintStream);
 
         final String expectedConsoleOutput = "usage:" + BR +
-                "       java -jar stubby4j-x.x.xx.jar [-a <arg>] [-d <arg>] [-da] [-ds]" + BR +
-                "       [-h] [-k <arg>] [-l <arg>] [-m] [-o] [-p <arg>] [-s <arg>] [-t" + BR +
-                "       <arg>] [-v] [-w]" + BR +
-                " -a,--admin <arg>             Port for admin portal. Defaults to 8889." + BR +
-                " -d,--data <arg>              Data file to pre-load endpoints. Valid YAML" + BR +
-                "                              1.1 expected." + BR +
-                " -da,--disable_admin_portal   Does not start Admin portal" + BR +
-                " -ds,--disable_ssl            Does not enable SSL connections" + BR +
-                " -h,--help                    This help text." + BR +
-                " -k,--keystore <arg>          Keystore file for custom TLS. By default TLS" + BR +
-                "                              is enabled using internal keystore." + BR +
-                " -l,--location <arg>          Hostname at which to bind stubby." + BR +
-                " -m,--mute                    Mute console output." + BR +
-                " -o,--debug                   Dumps raw HTTP request to the console (if" + BR +
-                "                              console is not muted!)." + BR +
-                " -p,--password <arg>          Password for the provided keystore file." + BR +
-                " -s,--stubs <arg>             Port for stub portal. Defaults to 8882." + BR +
-                " -t,--tls <arg>               Port for TLS connection. Defaults to 7443." + BR +
-                " -v,--version                 Prints out to console stubby version." + BR +
-                " -w,--watch                   Periodically scans for changes in last" + BR +
-                "                              modification date of the main YAML and" + BR +
-                "                              referenced external files (if any). The flag" + BR +
-                "                              can accept an optional arg value which is" + BR +
-                "                              the watch scan time in milliseconds. If" + BR +
-                "                              milliseconds is not provided, the watch" + BR +
-                "                              scans every 100ms. If last modification date" + BR +
-                "                              changed since the last scan period, the stub" + BR +
-                "                              configuration is reloaded";
+                "       java -jar stubby4j-x.x.xx.jar [-a <arg>] [-ac <arg>] [-d <arg>]" + BR +
+                "       [-da] [-ds] [-h] [-k <arg>] [-l <arg>] [-ll <arg>] [-m] [-mt] [-o]" + BR +
+                "       [-p <arg>] [-pm <arg>] [-s <arg>] [-t <arg>] [-v] [-w]" + BR +
+                " -a,--admin <arg>                Port for admin portal. Defaults to 8889." + BR +
+                " -ac,--async_console <arg>       Writes console output from a background" + BR +
+                "                                 thread instead of the request threads." + BR +
+                "                                 The flag can accept an optional arg value" + BR +
+                "                                 which is what to do when the output" + BR +
+                "                                 buffer is full: 'drop' new messages" + BR +
+                "                                 (default) or 'block' until there is space" + BR +
+                " -d,--data <arg>                 Data file to pre-load endpoints. Valid" + BR +
+                "                                 YAML 1.1 expected." + BR +
+                " -da,--disable_admin_portal      Does not start Admin portal" + BR +
+                " -ds,--disable_ssl               Does not enable SSL connections" + BR +
+                " -h,--help                       This help text." + BR +
+                " -k,--keystore <arg>             Keystore file for custom TLS. By default" + BR +
+                "                                 TLS is enabled using internal keystore." + BR +
+                " -l,--location <arg>             Hostname at which to bind stubby." + BR +
+                " -ll,--log_level <arg>           Console output level, 'trace' or 'info'." + BR +
+                "                                 Defaults to 'trace', which also prints" + BR +
+                "                                 the per-stub match diagnostics." + BR +
+                " -m,--mute                       Mute console output." + BR +
+                " -mt,--match_tracing             Records per stub how long matching" + BR +
+                "                                 incoming requests took, see" + BR +
+                "                                 /ajax/stats/trace on the admin portal." + BR +
+                "                                 Only requests with the 'x-stubby-trace:" + BR +
+                "                                 true' header are traced, and they get" + BR +
+                "                                 their match trace back in the same" + BR +
+                "                                 response header." + BR +
+                " -o,--debug                      Dumps raw HTTP request to the console (if" + BR +
+                "                                 console is not muted!)." + BR +
+                " -p,--password <arg>             Password for the provided keystore file." + BR +
+                " -pm,--parallel_matching <arg>   Matches incoming requests against stubs" + BR +
+                "                                 in parallel when the stubs could not be" + BR +
+                "                                 narrowed down by URL and method. The flag" + BR +
+                "                                 can accept an optional arg value which is" + BR +
+                "                                 the minimum number of candidate stubs to" + BR +
+                "                                 match in parallel. If the number is not" + BR +
+                "                                 provided, it defaults to 1024" + BR +
+                " -s,--stubs <arg>                Port for stub portal. Defaults to 8882." + BR +
+                " -t,--tls <arg>                  Port for TLS connection. Defaults to" + BR +
+                "                                 7443." + BR +
+                " -v,--version                    Prints out to console stubby version." + BR +
+                " -w,--watch                      Periodically scans for changes in last" + BR +
+                "                                 modification date of the main YAML and" + BR +
+                "                                 referenced external files (if any). The" + BR +
+                "                                 flag can accept an optional arg value" + BR +
+                "                                 which is the watch scan time in" + BR +
+                "                                 milliseconds. If milliseconds is not" + BR +
+                "                                 provided, the watch scans every 100ms. If" + BR +
+                "                                 last modification date changed since the" + BR +
+                "                                 last scan period, the stub configuration" + BR +
+                "                                 is reloaded";
 
         final String actualConsoleOutput = consoleCaptor.toString(StringUtils.UTF_8).trim();
 
@@ -0,0 +1,92 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import io.github.azagniotov.stubby4j.cli.ANSITerminal;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StubsIndexLoadTest {
+
+    private static final int[] NUMBER_OF_REGEX_STUBS = {100, 1000, 5000};
+    private static final int NUMBER_OF_LOOKUPS = 200;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        ANSITerminal.muteConsole(true);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        ANSITerminal.muteConsole(false);
+    }
+
+    @Test
+    public void loadTest_shouldKeepRegexCandidatesConstant_WhenNumberOfRegexStubsGrows() throws Exception {
+        benchmarkRegexStubs("^/api/v1/resource%s/[0-9]+/orders$");
+    }
+
+    @Test
+    public void loadTest_shouldKeepRegexCandidatesConstant_WhenRegexStubsHaveNoLiteralPrefix() throws Exception {
+        benchmarkRegexStubs("^.*/resource%s/[0-9]+/orders$");
+    }
+
+    private static void benchmarkRegexStubs(final String urlTemplate) {
+        System.out.println(urlTemplate);
+        System.out.println(String.format("%10s %12s %18s %18s", "stubs", "candidates", "indexed (ns/op)", "linear (ns/op)"));
+
+        for (final int numberOfStubs : NUMBER_OF_REGEX_STUBS) {
+            final List<StubHttpLifecycle> stubs = buildRegexStubs(urlTemplate, numberOfStubs);
+            final StubsIndex stubsIndex = new StubsIndex(stubs);
+            final StubRequest assertingRequest = new StubRequest.Builder()
+                    .withUrl(String.format("/api/v1/resource%s/42/orders", numberOfStubs - 1))
+                    .withMethodGet()
+                    .build();
+
+            final List<StubHttpLifecycle> candidates = stubsIndex.candidatesFor(assertingRequest);
+            assertThat(candidates).hasSize(1);
+            assertThat(firstMatch(candidates, assertingRequest)).isSameAs(stubs.get(numberOfStubs - 1));
+
+            final long indexedStart = System.nanoTime();
+            for (int lookup = 0; lookup < NUMBER_OF_LOOKUPS; lookup++) {
+                firstMatch(stubsIndex.candidatesFor(assertingRequest), assertingRequest);
+            }
+            final long indexedNanosPerOp = (System.nanoTime() - indexedStart) / NUMBER_OF_LOOKUPS;
+
+            final long linearStart = System.nanoTime();
+            for (int lookup = 0; lookup < NUMBER_OF_LOOKUPS; lookup++) {
+                firstMatch(stubs, assertingRequest);
+            }
+            final long linearNanosPerOp = (System.nanoTime() - linearStart) / NUMBER_OF_LOOKUPS;
+
+            System.out.println(String.format("%10s %12s %18s %18s", numberOfStubs, candidates.size(), indexedNanosPerOp, linearNanosPerOp));
+        }
+    }
+
+    private static StubHttpLifecycle firstMatch(final List<StubHttpLifecycle> candidates, final StubRequest assertingRequest) {
+        for (final StubHttpLifecycle candidate : candidates) {
+            if (assertingRequest.equals(candidate.getRequest())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static List<StubHttpLifecycle> buildRegexStubs(final String urlTemplate, final int numberOfStubs) {
+        final List<StubHttpLifecycle> stubs = new ArrayList<>();
+        for (int idx = 0; idx < numberOfStubs; idx++) {
+            final StubRequest stubbedRequest = new StubRequest.Builder()
+                    .withUrl(String.format(urlTemplate, idx))
+                    .withMethodGet()
+                    .build();
+            stubbedRequest.compileRegexPatternsAndCache();
+
+            stubs.add(new StubHttpLifecycle.Builder().withRequest(stubbedRequest).build());
+        }
+        return stubs;
+    }
+}
@@ -57,6 +57,7 @@ public final class Main {
         }
 
         verifyYamlDataProvided();
+        verifyOptionValuesValid();
         startStubby4jUsingCommandLineArgs();
     }
 
@@ -104,6 +105,13 @@ public final class Main {
         throw new IllegalArgumentException(msg);
     }
 
+    // Converting the values up front reports an invalid value with the allowed ones, before stubby4j starts up
+    private static void verifyOptionValuesValid() {
+        commandLineInterpreter.getLogLevel();
+        commandLineInterpreter.getOverflowPolicy();
+        commandLineInterpreter.getParallelMatchingThreshold();
+    }
+
     private static void startStubby4jUsingCommandLineArgs() {
         try {
 
@@ -112,6 +120,7 @@ public final class Main {
             final String configFilename = commandLineArgs.get(CommandLineInterpreter.OPTION_CONFIG);
 
             ANSITerminal.muteConsole(commandLineInterpreter.isMute());
+            ANSITerminal.setLevel(commandLineInterpreter.getLogLevel());
             ConsoleUtils.enableDebug(commandLineInterpreter.isDebug());
 
             final File configFile = new File(configFilename);
@@ -28,7 +28,7 @@ public final class ANSITerminal {
 
     private static final char ESCAPE = 27;
     private static final String BOLD = String.format("%s[1m", ESCAPE);
-    private static final String RESET = String.format("%s[0m", ESCAPE);
+    static final String RESET = String.format("%s[0m", ESCAPE);
     private static final String BLACK = String.format("%s[30m", ESCAPE);
     private static final String BOLD_BLACK = String.format("%s%s", BOLD, BLACK);
     private static final String BLUE = String.format("%s[34m", ESCAPE);
@@ -38,22 +38,35 @@ public final class ANSITerminal {
     private static final String RED = String.format("%s[31m", ESCAPE);
     private static final String YELLOW = String.format("%s[33m", ESCAPE);
     private static boolean mute = false;
+    private static final int ASYNC_OUTPUT_CAPACITY = 8192;
+    private static Level level = Level.TRACE;
+    private static volatile AsyncConsoleWriter asyncConsoleWriter;
+    private static boolean isShutdownHookAdded = false;
 
     private ANSITerminal() {
 
     }
 
-    private static void print(final String color, final String msg) {
+    private static void print(final String color, final String format, final Object... args) {
         if (mute) {
             return;
         }
-        System.out.println(String.format("%s%s%s", color, msg, RESET));
+        final AsyncConsoleWriter writer = asyncConsoleWriter;
+        if (writer != null) {
+            writer.write(color, format, args);
+            return;
+        }
+        System.out.println(String.format("%s%s%s", color, AsyncConsoleWriter.format(format, args), RESET));
     }
 
     public static void log(final String msg) {
         print("", msg);
     }
 
+    public static void log(final String format, final Object... args) {
+        print("", format, args);
+    }
+
     /**
      * Prints message to the console
      *
@@ -72,6 +85,17 @@ public final class ANSITerminal {
         print(BOLD_BLACK, msg);
     }
 
+    /**
+     * Prints formatted message to the console in black colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void status(final String format, final Object... args) {
+        print(BOLD_BLACK, format, args);
+    }
+
     /**
      * Prints message to the console in blue colour
      *
@@ -81,6 +105,17 @@ public final class ANSITerminal {
         print(BLUE, msg);
     }
 
+    /**
+     * Prints formatted message to the console in blue colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void info(final String format, final Object... args) {
+        print(BLUE, format, args);
+    }
+
     /**
      * Prints message to the console in green colour
      *
@@ -90,6 +125,17 @@ public final class ANSITerminal {
         print(GREEN, msg);
     }
 
+    /**
+     * Prints formatted message to the console in green colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void ok(final String format, final Object... args) {
+        print(GREEN, format, args);
+    }
+
     /**
      * Prints message to the console in red colour
      *
@@ -99,6 +145,17 @@ public final class ANSITerminal {
         print(RED, msg);
     }
 
+    /**
+     * Prints formatted message to the console in red colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void error(final String format, final Object... args) {
+        print(RED, format, args);
+    }
+
     /**
      * Prints message to the console in yellow colour
      *
@@ -108,6 +165,17 @@ public final class ANSITerminal {
         print(YELLOW, msg);
     }
 
+    /**
+     * Prints formatted message to the console in yellow colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void warn(final String format, final Object... args) {
+        print(YELLOW, format, args);
+    }
+
     /**
      * Prints message to the console in cyan colour
      *
@@ -117,6 +185,17 @@ public final class ANSITerminal {
         print(CYAN, msg);
     }
 
+    /**
+     * Prints formatted message to the console in cyan colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void incoming(final String format, final Object... args) {
+        print(CYAN, format, args);
+    }
+
     /**
      * Prints message to the console in magenta colour
      *
@@ -126,6 +205,17 @@ public final class ANSITerminal {
         print(MAGENTA, msg);
     }
 
+    /**
+     * Prints formatted message to the console in magenta colour. When async output is enabled, the message is formatted
+     * by the writer thread
+     *
+     * @param format format string of the message to print to the console
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    public static void loaded(final String format, final Object... args) {
+        print(MAGENTA, format, args);
+    }
+
     /**
      * Disables console output
      *
@@ -135,6 +225,69 @@ public final class ANSITerminal {
         mute = isMute;
     }
 
+    /**
+     * Sets the level of console output
+     *
+     * @param newLevel if {@link Level#INFO}, the per-stub match diagnostics will not be printed
+     */
+    public static void setLevel(final Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Checks whether per-stub match diagnostics should be printed. Callers on the request matching path must check
+     * this before building their messages, so that a muted or INFO level console does not pay for the formatting.
+     *
+     * @return true if the console output is not disabled and the level is {@link Level#TRACE}
+     */
+    public static boolean isTraceEnabled() {
+        return !mute && level == Level.TRACE;
+    }
+
+    /**
+     * Moves console output to a background writer thread, so that request threads do not wait on the console
+     *
+     * @param overflowPolicy what to do with new messages while the output buffer is full
+     */
+    public static synchronized void enableAsyncOutput(final OverflowPolicy overflowPolicy) {
+        disableAsyncOutput();
+        asyncConsoleWriter = new AsyncConsoleWriter(ASYNC_OUTPUT_CAPACITY, overflowPolicy, () -> System.out);
+        if (!isShutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ANSITerminal::disableAsyncOutput));
+            isShutdownHookAdded = true;
+        }
+    }
+
+    /**
+     * Writes out the buffered console output and goes back to printing on the calling thread
+     */
+    public static synchronized void disableAsyncOutput() {
+        final AsyncConsoleWriter writer = asyncConsoleWriter;
+        if (writer != null) {
+            asyncConsoleWriter = null;
+            writer.stop();
+        }
+    }
+
+    /**
+     * Checks whether console output is written by a background writer thread
+     *
+     * @return true if async console output is enabled
+     */
+    public static boolean isAsyncOutput() {
+        return asyncConsoleWriter != null;
+    }
+
+    /**
+     * Counts messages that were dropped because the async console output buffer was full
+     *
+     * @return number of dropped messages, or zero if async console output is not enabled
+     */
+    public static long getDroppedEvents() {
+        final AsyncConsoleWriter writer = asyncConsoleWriter;
+        return writer == null ? 0 : writer.getDroppedEvents();
+    }
+
     /**
      * Checks whether console output has been disabled by user using command line argument
      *
@@ -143,4 +296,14 @@ public final class ANSITerminal {
     public static boolean isMute() {
         return mute;
     }
+
+    public enum Level {
+        TRACE,
+        INFO
+    }
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
 }
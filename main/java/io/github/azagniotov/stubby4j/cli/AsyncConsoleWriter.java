@@ -0,0 +1,190 @@
+package io.github.azagniotov.stubby4j.cli;
+
+
+import java.io.PrintStream;
+import java.util.IllegalFormatException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Moves console output off the request threads.
+ * <p>
+ * Log events are put on a bounded, lock-free ring buffer of pre-allocated slots (multiple producers, single consumer),
+ * and a single background thread drains them, formats them and writes them to the console in batches. An event
+ * carries its format string and raw arguments, so the {@link String#format(String, Object...)} call is paid by the
+ * writer thread rather than by the producer. When the buffer is full, events are either dropped and counted, or the
+ * producer waits for a free slot, depending on the {@link ANSITerminal.OverflowPolicy}.
+ * <p>
+ * While there is nothing to drain the writer thread parks, and a producer that publishes an event unparks it.
+ */
+final class AsyncConsoleWriter {
+
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Only a safety net, the writer thread is unparked by the producers as soon as there is something to drain
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int mask;
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition;
+    private final ANSITerminal.OverflowPolicy overflowPolicy;
+    private final Supplier<PrintStream> console;
+    private final LongAdder droppedEvents;
+    private final Thread writerThread;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    // Only ever touched by the writer thread
+    private long dequeuePosition;
+
+    AsyncConsoleWriter(final int capacity, final ANSITerminal.OverflowPolicy overflowPolicy, final Supplier<PrintStream> console) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slots = new Slot[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int idx = 0; idx < capacity; idx++) {
+            slots[idx] = new Slot();
+            sequences.set(idx, idx);
+        }
+        this.enqueuePosition = new AtomicLong();
+        this.overflowPolicy = overflowPolicy;
+        this.console = console;
+        this.droppedEvents = new LongAdder();
+        this.running = true;
+        this.writerThread = new Thread(this::drainUntilStopped, AsyncConsoleWriter.class.getSimpleName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * @param format the message, or the format string of the message if there are any arguments
+     * @param args   arguments referenced by the format string, which must not be mutated after this call
+     */
+    void write(final String color, final String format, final Object... args) {
+        if (offer(color, format, args)) {
+            return;
+        }
+        while (overflowPolicy == ANSITerminal.OverflowPolicy.BLOCK && running) {
+            LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+            if (offer(color, format, args)) {
+                return;
+            }
+        }
+        droppedEvents.increment();
+    }
+
+    long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Stops the writer thread after it wrote out all the events that were already buffered
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(final String color, final String format, final Object[] args) {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int idx = (int) (position & mask);
+            final long difference = sequences.get(idx) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    final Slot slot = slots[idx];
+                    slot.color = color;
+                    slot.format = format;
+                    slot.args = args;
+                    // Publishes the slot to the writer thread. A volatile write, so that it cannot be reordered
+                    // with the read of the writerParked flag below
+                    sequences.set(idx, position + 1);
+                    if (writerParked) {
+                        LockSupport.unpark(writerThread);
+                    }
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                // The writer thread did not free this slot yet, the buffer is full
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    private void drainUntilStopped() {
+        final StringBuilder batch = new StringBuilder();
+        while (running) {
+            if (drainBatch(batch) != 0) {
+                continue;
+            }
+            writerParked = true;
+            // Checks again after raising the flag, an event published in between would not unpark the writer
+            if (running && drainBatch(batch) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+        while (drainBatch(batch) != 0) {
+            // Writes out whatever was buffered before the writer was stopped
+        }
+    }
+
+    private int drainBatch(final StringBuilder batch) {
+        int drained = 0;
+        while (drained < MAX_BATCH_SIZE) {
+            final int idx = (int) (dequeuePosition & mask);
+            if (sequences.get(idx) != dequeuePosition + 1) {
+                break;
+            }
+            final Slot slot = slots[idx];
+            batch.append(slot.color).append(format(slot.format, slot.args)).append(ANSITerminal.RESET).append(System.lineSeparator());
+            slot.color = null;
+            slot.format = null;
+            slot.args = null;
+            // Frees the slot for the producers
+            sequences.lazySet(idx, dequeuePosition + mask + 1);
+            dequeuePosition++;
+            drained++;
+        }
+
+        if (drained != 0) {
+            final PrintStream printStream = console.get();
+            printStream.print(batch);
+            printStream.flush();
+            batch.setLength(0);
+        }
+        return drained;
+    }
+
+    static String format(final String format, final Object[] args) {
+        if (args.length == 0) {
+            return format;
+        }
+        try {
+            return String.format(format, args);
+        } catch (final IllegalFormatException e) {
+            // A malformed message must not take down the writer thread
+            return format;
+        }
+    }
+
+    private static final class Slot {
+        private String color;
+        private String format;
+        private Object[] args;
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import static io.github.azagniotov.stubby4j.utils.FileUtils.BR;
@@ -51,12 +52,17 @@ public final class CommandLineInterpreter {
     public static final String OPTION_KEYSTORE = "keystore";
     public static final String OPTION_KEYPASS = "password";
     public static final String OPTION_MUTE = "mute";
+    public static final String OPTION_LOG_LEVEL = "log_level";
+    public static final String OPTION_ASYNC_CONSOLE = "async_console";
+    public static final String OPTION_PARALLEL_MATCHING = "parallel_matching";
+    public static final String OPTION_MATCH_TRACING = "match_tracing";
     public static final String OPTION_WATCH = "watch";
     public static final String OPTION_HELP = "help";
     public static final String OPTION_VERSION = "version";
     public static final String OPTION_DEBUG = "debug";
     public static final String OPTION_DISABLE_ADMIN = "disable_admin_portal";
     public static final String OPTION_DISABLE_SSL = "disable_ssl";
+    public static final int DEFAULT_PARALLEL_MATCHING_THRESHOLD = 1024;
 
     private static final CommandLineParser POSIX_PARSER = new PosixParser();
     private static final Options OPTIONS = new Options();
@@ -71,10 +77,12 @@ public final class CommandLineInterpreter {
         OPTIONS.addOption("p", OPTION_KEYPASS, true, "Password for the provided keystore file.");
         OPTIONS.addOption("h", OPTION_HELP, false, "This help text.");
         OPTIONS.addOption("m", OPTION_MUTE, false, "Mute console output.");
+        OPTIONS.addOption("ll", OPTION_LOG_LEVEL, true, "Console output level, 'trace' or 'info'. Defaults to 'trace', which also prints the per-stub match diagnostics.");
         OPTIONS.addOption("v", OPTION_VERSION, false, "Prints out to console stubby version.");
         OPTIONS.addOption("o", OPTION_DEBUG, false, "Dumps raw HTTP request to the console (if console is not muted!).");
         OPTIONS.addOption("da", OPTION_DISABLE_ADMIN, false, "Does not start Admin portal");
         OPTIONS.addOption("ds", OPTION_DISABLE_SSL, false, "Does not enable SSL connections");
+        OPTIONS.addOption("mt", OPTION_MATCH_TRACING, false, "Records per stub how long matching incoming requests took, see /ajax/stats/trace on the admin portal. Only requests with the 'x-stubby-trace: true' header are traced, and they get their match trace back in the same response header.");
         @SuppressWarnings("static-access")
         Option watch =
                 OptionBuilder
@@ -83,6 +91,22 @@ public final class CommandLineInterpreter {
                         .hasOptionalArg()
                         .create("w");
         OPTIONS.addOption(watch);
+        @SuppressWarnings("static-access")
+        Option asyncConsole =
+                OptionBuilder
+                        .withDescription("Writes console output from a background thread instead of the request threads. The flag can accept an optional arg value which is what to do when the output buffer is full: 'drop' new messages (default) or 'block' until there is space")
+                        .withLongOpt(OPTION_ASYNC_CONSOLE)
+                        .hasOptionalArg()
+                        .create("ac");
+        OPTIONS.addOption(asyncConsole);
+        @SuppressWarnings("static-access")
+        Option parallelMatching =
+                OptionBuilder
+                        .withDescription("Matches incoming requests against stubs in parallel when the stubs could not be narrowed down by URL and method. The flag can accept an optional arg value which is the minimum number of candidate stubs to match in parallel. If the number is not provided, it defaults to 1024")
+                        .withLongOpt(OPTION_PARALLEL_MATCHING)
+                        .hasOptionalArg()
+                        .create("pm");
+        OPTIONS.addOption(parallelMatching);
     }
 
     private CommandLine line;
@@ -100,6 +124,105 @@ public final class CommandLineInterpreter {
         return line.hasOption(OPTION_MUTE);
     }
 
+    /**
+     * Reads console output level
+     *
+     * @return the console output level provided using command line arg, or {@link ANSITerminal.Level#TRACE} if none
+     */
+    public ANSITerminal.Level getLogLevel() {
+        return toLogLevel(line.getOptionValue(OPTION_LOG_LEVEL));
+    }
+
+    /**
+     * Reads async console overflow policy
+     *
+     * @return the overflow policy provided using command line arg, or {@link ANSITerminal.OverflowPolicy#DROP} if none
+     */
+    public ANSITerminal.OverflowPolicy getOverflowPolicy() {
+        return toOverflowPolicy(line.getOptionValue(OPTION_ASYNC_CONSOLE));
+    }
+
+    /**
+     * Reads parallel matching threshold
+     *
+     * @return the minimum number of candidate stubs to match in parallel provided using command line arg, or
+     * {@link #DEFAULT_PARALLEL_MATCHING_THRESHOLD} if none
+     */
+    public int getParallelMatchingThreshold() {
+        return toParallelMatchingThreshold(line.getOptionValue(OPTION_PARALLEL_MATCHING));
+    }
+
+    /**
+     * Converts console output level given as command line arg value
+     *
+     * @param value command line arg value, case insensitive
+     * @return the console output level, or {@link ANSITerminal.Level#TRACE} if the value was not provided
+     * @throws IllegalArgumentException if the value is not one of the console output levels
+     */
+    public static ANSITerminal.Level toLogLevel(final String value) {
+        if (ObjectUtils.isNull(value)) {
+            return ANSITerminal.Level.TRACE;
+        }
+        return toEnumConstant(ANSITerminal.Level.class, OPTION_LOG_LEVEL, value);
+    }
+
+    /**
+     * Converts async console overflow policy given as command line arg value
+     *
+     * @param value command line arg value, case insensitive
+     * @return the overflow policy, or {@link ANSITerminal.OverflowPolicy#DROP} if the value was not provided
+     * @throws IllegalArgumentException if the value is not one of the overflow policies
+     */
+    public static ANSITerminal.OverflowPolicy toOverflowPolicy(final String value) {
+        if (ObjectUtils.isNull(value)) {
+            return ANSITerminal.OverflowPolicy.DROP;
+        }
+        return toEnumConstant(ANSITerminal.OverflowPolicy.class, OPTION_ASYNC_CONSOLE, value);
+    }
+
+    /**
+     * Converts parallel matching threshold given as command line arg value
+     *
+     * @param value command line arg value
+     * @return the minimum number of candidate stubs to match in parallel, or {@link #DEFAULT_PARALLEL_MATCHING_THRESHOLD}
+     * if the value was not provided
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    public static int toParallelMatchingThreshold(final String value) {
+        if (ObjectUtils.isNull(value)) {
+            return DEFAULT_PARALLEL_MATCHING_THRESHOLD;
+        }
+        try {
+            final int threshold = Integer.parseInt(value.trim());
+            if (threshold > 0) {
+                return threshold;
+            }
+        } catch (final NumberFormatException e) {
+            // Reported below, the same as a threshold that is not positive
+        }
+        throw invalidValue(OPTION_PARALLEL_MATCHING, value, "positive integers");
+    }
+
+    private static <T extends Enum<T>> T toEnumConstant(final Class<T> enumType, final String option, final String value) {
+        final List<String> allowedValues = new LinkedList<>();
+        for (final T constant : enumType.getEnumConstants()) {
+            if (constant.name().equals(value.trim().toUpperCase(Locale.US))) {
+                return constant;
+            }
+            allowedValues.add(String.format("'%s'", constant.name().toLowerCase(Locale.US)));
+        }
+        throw invalidValue(option, value, String.join(", ", allowedValues));
+    }
+
+    private static IllegalArgumentException invalidValue(final String option, final String value, final String allowedValues) {
+        final String msg =
+                String.format("Invalid value '%s' was provided using command line option '--%s', allowed values are: %s. %s"
+                                + "To see all command line options run again with option '--%s'",
+                        value, option, allowedValues, BR, OPTION_HELP);
+
+        return new IllegalArgumentException(msg);
+    }
+
     /**
      * Checks if data YAML was provided
      *
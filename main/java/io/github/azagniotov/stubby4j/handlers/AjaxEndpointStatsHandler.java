@@ -56,6 +56,9 @@ public class AjaxEndpointStatsHandler extends AbstractHandler {
         try {
             if (request.getRequestURI().contains("stats/check")) {
                 response.getWriter().println(!stubRepository.getResourceStats().isEmpty());
+            } else if (request.getRequestURI().contains("stats/trace")) {
+                response.setContentType("application/json;charset=UTF-8");
+                response.getWriter().println(stubRepository.getMatchTraceStatsAsJson());
             } else {
                 ConsoleUtils.logIncomingRequest(request);
                 final String popupStatsHtmlTemplate = getHtmlResourceByName("_popup_stats");
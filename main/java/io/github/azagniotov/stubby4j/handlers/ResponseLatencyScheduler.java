@@ -0,0 +1,39 @@
+package io.github.azagniotov.stubby4j.handlers;
+
+
+import javax.servlet.AsyncContext;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays stubbed responses by their latency without holding on to a Jetty thread while the latency elapses.
+ * <p>
+ * The request is put in asynchronous mode, which releases its thread back to the Jetty thread pool, and a single
+ * timer thread hands the request back to the pool once its latency has elapsed, where the response is written and
+ * the request is completed. Only the timer thread ever waits, so any number of concurrently delayed responses cost
+ * one thread rather than a thread each.
+ */
+enum ResponseLatencyScheduler {
+
+    INSTANCE;
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    ResponseLatencyScheduler() {
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread timerThread = new Thread(runnable, ResponseLatencyScheduler.class.getSimpleName());
+            timerThread.setDaemon(true);
+            return timerThread;
+        });
+    }
+
+    /**
+     * @param asyncContext   context of the request that was put in asynchronous mode
+     * @param latencyMillis  how long to delay the response by
+     * @param responseWriter writes the response and completes the request
+     */
+    void schedule(final AsyncContext asyncContext, final long latencyMillis, final Runnable responseWriter) {
+        // The timer thread only dispatches, so that writing one response never delays another one
+        timer.schedule(() -> asyncContext.start(responseWriter), latencyMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -19,6 +19,7 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package io.github.azagniotov.stubby4j.handlers;
 
+import io.github.azagniotov.stubby4j.cli.ANSITerminal;
 import io.github.azagniotov.stubby4j.cli.CommandLineInterpreter;
 import io.github.azagniotov.stubby4j.server.JettyContext;
 import io.github.azagniotov.stubby4j.stubs.StubHttpLifecycle;
@@ -67,6 +68,7 @@ public final class StatusPageHandler extends AbstractHandler {
     private static final String TEMPLATE_LOADED_FILE_METADATA_PAIR = "<span style='color: #8B0000'>%s</span>=<span style='color: green'>%s</span>";
     private static final String TEMPLATE_AJAX_TO_RESOURCE_HYPERLINK = "<strong><a class='ajax-resource' href='/ajax/resource/%s/%s/%s'>[view]</a></strong>";
     private static final String TEMPLATE_AJAX_TO_STATS_HYPERLINK = "<strong><a class='ajax-stats' href='/ajax/stats'>[view]</a></strong>";
+    private static final String TEMPLATE_TO_MATCH_TRACE_STATS_HYPERLINK = "<strong><a href='/ajax/stats/trace' target='_blank'>[view as JSON]</a></strong>";
     private static final String TEMPLATE_HTML_TABLE_ROW = "<tr><td width='250px' valign='top' align='left'>%s</td><td align='left'>%s</td></tr>";
     private static final String NEXT_IN_THE_QUEUE = " NEXT IN THE QUEUE";
 
@@ -210,6 +212,14 @@ public final class StatusPageHandler extends AbstractHandler {
         } else {
             builder.append(interpolateHtmlTableRowTemplate("ENDPOINT HITS", TEMPLATE_AJAX_TO_STATS_HYPERLINK));
         }
+        builder.append(interpolateHtmlTableRowTemplate("REGEX PATTERN CACHE", buildStatsMetadata(stubRepository.getRegexPatternCacheStats())));
+        builder.append(interpolateHtmlTableRowTemplate("FILE CONTENT STORE", buildStatsMetadata(stubRepository.getFileContentStoreStats())));
+        if (stubRepository.isMatchTracingEnabled()) {
+            builder.append(interpolateHtmlTableRowTemplate("MATCH TRACE", TEMPLATE_TO_MATCH_TRACE_STATS_HYPERLINK));
+        }
+        if (ANSITerminal.isAsyncOutput()) {
+            builder.append(interpolateHtmlTableRowTemplate("DROPPED CONSOLE MESSAGES", ANSITerminal.getDroppedEvents()));
+        }
 
         return String.format(templateHtmlTable, "stubby stats", builder.toString());
     }
@@ -224,6 +234,15 @@ public final class StatusPageHandler extends AbstractHandler {
         return "<div style='margin-top: 5px; padding: 3px 7px 3px 7px; background-color: #fefefe'>" + builder.toString() + "</div>";
     }
 
+    private String buildStatsMetadata(final Map<String, Long> stats) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<String, Long> entry : stats.entrySet()) {
+            builder.append(String.format(TEMPLATE_LOADED_FILE_METADATA_PAIR, entry.getKey(), entry.getValue())).append("<br />");
+        }
+
+        return builder.toString();
+    }
+
     private String determineParentDir(final File file) throws IOException {
         return (ObjectUtils.isNull(file.getParentFile()) ? file.getCanonicalPath().replaceAll(file.getName(), "") : file.getParentFile().getCanonicalPath() + "/");
     }
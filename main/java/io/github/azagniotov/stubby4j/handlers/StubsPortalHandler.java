@@ -21,17 +21,23 @@ package io.github.azagniotov.stubby4j.handlers;
 
 import io.github.azagniotov.stubby4j.handlers.strategy.stubs.StubResponseHandlingStrategy;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
+import io.github.azagniotov.stubby4j.stubs.StubRequest;
+import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import io.github.azagniotov.stubby4j.stubs.StubSearchResult;
 import io.github.azagniotov.stubby4j.utils.ConsoleUtils;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
+import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static io.github.azagniotov.stubby4j.handlers.strategy.stubs.StubsResponseHandlingStrategyFactory.getStrategy;
 
@@ -57,10 +63,45 @@ public class StubsPortalHandler extends AbstractHandler {
 
         try {
             final StubSearchResult stubSearchResult = stubRepository.search(request);
-            final StubResponseHandlingStrategy strategyStubResponse = getStrategy(stubSearchResult.getMatch());
+            final Optional<String> matchTrace = stubSearchResult.getMatchTrace();
+            if (matchTrace.isPresent()) {
+                response.setHeader(StubSearchResult.STUBBY_TRACE_HEADER, matchTrace.get());
+            }
+            final StubResponse foundStubResponse = stubSearchResult.getMatch();
+            final StubResponseHandlingStrategy strategyStubResponse = getStrategy(foundStubResponse);
+            final StubRequest assertionStubRequest = stubSearchResult.getInvariant();
+            final long latency = StringUtils.isSet(foundStubResponse.getLatency()) ? Long.parseLong(foundStubResponse.getLatency()) : 0;
 
-            strategyStubResponse.handle(response, stubSearchResult.getInvariant());
-            ConsoleUtils.logOutgoingResponse(stubSearchResult.getInvariant().getUrl(), response);
+            if (latency <= 0) {
+                respond(response, strategyStubResponse, assertionStubRequest);
+            } else if (!request.isAsyncSupported()) {
+                TimeUnit.MILLISECONDS.sleep(latency);
+                respond(response, strategyStubResponse, assertionStubRequest);
+            } else {
+                final AsyncContext asyncContext = request.startAsync();
+                // The latency may well be longer than the default async timeout, the request is completed by the timer
+                asyncContext.setTimeout(0);
+                ResponseLatencyScheduler.INSTANCE.schedule(asyncContext, latency, () -> {
+                    try {
+                        respond(response, strategyStubResponse, assertionStubRequest);
+                    } catch (final IOException ex) {
+                        ConsoleUtils.logIncomingRequestError(request, "stubs", ex.toString());
+                    } finally {
+                        asyncContext.complete();
+                    }
+                });
+            }
+        } catch (final Exception ex) {
+            HandlerUtils.configureErrorResponse(response, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
+        }
+    }
+
+    private void respond(final HttpServletResponse response,
+                         final StubResponseHandlingStrategy strategyStubResponse,
+                         final StubRequest assertionStubRequest) throws IOException {
+        try {
+            strategyStubResponse.handle(response, assertionStubRequest);
+            ConsoleUtils.logOutgoingResponse(assertionStubRequest.getUrl(), response);
         } catch (final Exception ex) {
             HandlerUtils.configureErrorResponse(response, HttpStatus.INTERNAL_SERVER_ERROR_500, ex.toString());
         }
@@ -19,27 +19,45 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package io.github.azagniotov.stubby4j.handlers.strategy.stubs;
 
+import io.github.azagniotov.stubby4j.server.JettyFactory;
 import io.github.azagniotov.stubby4j.stubs.StubRequest;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
-import io.github.azagniotov.stubby4j.utils.StringUtils;
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.IncludeExclude;
+import org.eclipse.jetty.util.RegexSet;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
-import static io.github.azagniotov.stubby4j.utils.FileUtils.fileToBytes;
+import static io.github.azagniotov.stubby4j.utils.FileUtils.isCharacterFile;
+import static io.github.azagniotov.stubby4j.utils.HandlerUtils.negotiateContentCoding;
 import static io.github.azagniotov.stubby4j.utils.HandlerUtils.setResponseMainHeaders;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isTokenized;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.replaceTokens;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.replaceTokensInString;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toUpper;
 
 public final class DefaultResponseHandlingStrategy implements StubResponseHandlingStrategy {
 
+    private static final GzipHandler GZIP_HANDLER = JettyFactory.newGzipHandler();
+    private static final IncludeExclude<String> GZIPABLE_AGENTS = gzipableAgentsOf(GZIP_HANDLER);
+
     private final StubResponse stubbedResponse;
 
     DefaultResponseHandlingStrategy(final StubResponse stubbedResponse) {
@@ -48,38 +66,121 @@ public final class DefaultResponseHandlingStrategy implements StubResponseHandli
 
     @Override
     public void handle(final HttpServletResponse response, final StubRequest assertionStubRequest) throws Exception {
-        final Map<String, String> regexGroups = assertionStubRequest.getRegexGroups();
+        final boolean isFilePathTemplated = stubbedResponse.isFilePathContainsTemplateTokens();
+        final boolean isBodyTemplated = !isFilePathTemplated && stubbedResponse.isBodyContainsTemplateTokens();
+        // Regex capturing groups are only turned into template token values when the response has template tokens
+        final Map<String, String> regexGroups = isFilePathTemplated || isBodyTemplated || isAnyHeaderTemplated(stubbedResponse) ?
+                assertionStubRequest.getRegexGroups() : Collections.emptyMap();
 
         setResponseMainHeaders(response);
         setResponseStubbedHeaders(response, stubbedResponse, regexGroups);
 
-        if (StringUtils.isSet(stubbedResponse.getLatency())) {
-            final long latency = Long.parseLong(stubbedResponse.getLatency());
-            TimeUnit.MILLISECONDS.sleep(latency);
-        }
         response.setStatus(stubbedResponse.getHttpStatusCode().getCode());
 
-        final byte[] responseBody = stubbedResponse.getResponseBodyAsBytes();
-        if (stubbedResponse.isFilePathContainsTemplateTokens()) {
-            final String resolvedPath = replaceTokensInString(stubbedResponse.getRawFileAbsolutePath(), regexGroups);
+        if (isFilePathTemplated) {
+            final String resolvedPath = stubbedResponse.getFilePathTemplate().render(regexGroups);
             final File resolvedFile = new File(resolvedPath);
             if (resolvedFile.exists()) {
-                writeOutputStream(response, fileToBytes(resolvedFile));
+                sendFile(response, resolvedFile);
             } else {
                 response.setStatus(HttpStatus.NOT_FOUND_404);
             }
-        } else if (stubbedResponse.isBodyContainsTemplateTokens()) {
-            writeOutputStream(response, getBytesUtf8(replaceTokens(responseBody, regexGroups)));
+        } else if (isBodyTemplated) {
+            writeOutputStream(response, stubbedResponse.getBodyTemplate(), regexGroups);
         } else {
-            writeOutputStream(response, responseBody);
+            final String contentCoding = isCompressible(response, assertionStubRequest) ?
+                    negotiateContentCoding(assertionStubRequest.getHeader(HttpHeader.ACCEPT_ENCODING.asString())) : null;
+            final ByteBuffer precompressedBody = isNull(contentCoding) ? null : stubbedResponse.getPrecompressedBody(contentCoding, GZIP_HANDLER.getMinGzipSize());
+            if (!isNull(precompressedBody)) {
+                sendPrecompressedBody(response, contentCoding, precompressedBody);
+                return;
+            }
+
+            final File streamedFile = stubbedResponse.getStreamedFile();
+            if (!isNull(streamedFile)) {
+                streamFile(response, streamedFile);
+                return;
+            }
+
+            final ByteBuffer fileContent = stubbedResponse.getFileContent();
+            if (isNull(fileContent)) {
+                writeOutputStream(response, stubbedResponse.getResponseBodyAsBytes());
+            } else {
+                sendContent(response, fileContent);
+            }
+        }
+    }
+
+    // Only what the GzipHandler would have compressed is sent precompressed: a HEAD request or a status without a body
+    // gets no body to compress, and the GzipHandler only compresses responses to the request methods, user agents and
+    // mime types it was configured with. Its minimum body size is checked when the precompressed body is looked up
+    private boolean isCompressible(final HttpServletResponse response, final StubRequest assertionStubRequest) {
+        final int status = stubbedResponse.getHttpStatusCode().getCode();
+        if (status < HttpStatus.OK_200 || status == HttpStatus.NO_CONTENT_204 || status == HttpStatus.NOT_MODIFIED_304) {
+            return false;
+        }
+        if (assertionStubRequest.hasMethod(HttpMethod.HEAD) || !isMethodGzipable(assertionStubRequest)) {
+            return false;
+        }
+        final String userAgent = assertionStubRequest.getHeader(HttpHeader.USER_AGENT.asString());
+        if (!isNull(userAgent) && !GZIPABLE_AGENTS.test(userAgent)) {
+            return false;
         }
+        final String contentType = response.getContentType();
+
+        return isNull(contentType) || GZIP_HANDLER.isMimeTypeGzipable(toLower(MimeTypes.getContentTypeWithoutCharset(contentType)));
+    }
+
+    private static boolean isMethodGzipable(final StubRequest assertionStubRequest) {
+        for (final String excludedMethod : GZIP_HANDLER.getExcludedMethods()) {
+            if (hasMethod(assertionStubRequest, excludedMethod)) {
+                return false;
+            }
+        }
+        final String[] includedMethods = GZIP_HANDLER.getIncludedMethods();
+        if (includedMethods.length == 0) {
+            return true;
+        }
+        for (final String includedMethod : includedMethods) {
+            if (hasMethod(assertionStubRequest, includedMethod)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasMethod(final StubRequest assertionStubRequest, final String method) {
+        final HttpMethod httpMethod = HttpMethod.fromString(toUpper(method));
+
+        return !isNull(httpMethod) && assertionStubRequest.hasMethod(httpMethod);
+    }
+
+    // The GzipHandler matches user agents against its patterns the same way, but does not expose that check
+    private static IncludeExclude<String> gzipableAgentsOf(final GzipHandler gzipHandler) {
+        final IncludeExclude<String> gzipableAgents = new IncludeExclude<>(RegexSet.class);
+        gzipableAgents.include(gzipHandler.getIncludedAgentPatterns());
+        gzipableAgents.exclude(gzipHandler.getExcludedAgentPatterns());
+
+        return gzipableAgents;
+    }
+
+    private boolean isAnyHeaderTemplated(final StubResponse stubResponse) {
+        for (final String headerValue : stubResponse.getHeaders().values()) {
+            if (isTokenized(headerValue)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void setResponseStubbedHeaders(final HttpServletResponse response, final StubResponse stubResponse, final Map<String, String> regexGroups) {
         for (final Map.Entry<String, String> headerPair : stubResponse.getHeaders().entrySet()) {
             String responseHeaderValue = headerPair.getValue();
             if (isTokenized(responseHeaderValue)) {
-                responseHeaderValue = replaceTokensInString(headerPair.getValue(), regexGroups);
+                // Headers added after the response was loaded have no precompiled template
+                final ResponseTemplate headerTemplate = stubResponse.getHeaderTemplates().get(headerPair.getKey());
+                responseHeaderValue = isNull(headerTemplate) ?
+                        ResponseTemplate.compile(responseHeaderValue).render(regexGroups) : headerTemplate.render(regexGroups);
             }
             response.setHeader(headerPair.getKey(), responseHeaderValue);
         }
@@ -91,4 +192,58 @@ public final class DefaultResponseHandlingStrategy implements StubResponseHandli
             outputStream.flush();
         }
     }
+
+    /**
+     * Jetty writes the buffer as is, e.g.: straight from the direct buffer that the file content is kept in,
+     * instead of first copying it into its aggregation buffer
+     */
+    private void sendContent(final HttpServletResponse response, final ByteBuffer content) throws IOException {
+        final ServletOutputStream outputStream = response.getOutputStream();
+        if (outputStream instanceof HttpOutput) {
+            ((HttpOutput) outputStream).sendContent(content);
+        } else {
+            try (final WritableByteChannel outputChannel = Channels.newChannel(outputStream)) {
+                outputChannel.write(content);
+            }
+        }
+    }
+
+    // The GzipHandler leaves responses that already have a Content-Encoding as they are
+    private void sendPrecompressedBody(final HttpServletResponse response, final String contentCoding, final ByteBuffer precompressedBody) throws IOException {
+        response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), contentCoding);
+        response.addHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+        response.setContentLength(precompressedBody.remaining());
+        sendContent(response, precompressedBody);
+    }
+
+    // Character files have their line separators converted when loaded, so they cannot be sent as they are on disk
+    // like binary files are. Instead, their converted content is kept until the file changes
+    private void sendFile(final HttpServletResponse response, final File file) throws IOException {
+        if (isCharacterFile(file)) {
+            sendContent(response, stubbedResponse.getResolvedFileContent(file));
+            return;
+        }
+        streamFile(response, file);
+    }
+
+    // Jetty reads the channel into its own buffers, so the file is neither loaded into the heap nor memory mapped
+    private void streamFile(final HttpServletResponse response, final File file) throws IOException {
+        try (final FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ServletOutputStream outputStream = response.getOutputStream();
+            if (outputStream instanceof HttpOutput) {
+                ((HttpOutput) outputStream).sendContent(fileChannel);
+            } else {
+                try (final WritableByteChannel outputChannel = Channels.newChannel(outputStream)) {
+                    fileChannel.transferTo(0, fileChannel.size(), outputChannel);
+                }
+            }
+        }
+    }
+
+    private void writeOutputStream(final HttpServletResponse response, final ResponseTemplate bodyTemplate, final Map<String, String> regexGroups) throws IOException {
+        try (final OutputStream outputStream = response.getOutputStream()) {
+            bodyTemplate.renderTo(outputStream, regexGroups);
+            outputStream.flush();
+        }
+    }
 }
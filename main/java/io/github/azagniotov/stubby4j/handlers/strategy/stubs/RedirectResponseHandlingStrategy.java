@@ -22,11 +22,9 @@ package io.github.azagniotov.stubby4j.handlers.strategy.stubs;
 import io.github.azagniotov.stubby4j.stubs.StubRequest;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
-import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpHeader;
 
 import javax.servlet.http.HttpServletResponse;
-import java.util.concurrent.TimeUnit;
 
 public class RedirectResponseHandlingStrategy implements StubResponseHandlingStrategy {
 
@@ -40,11 +38,6 @@ public class RedirectResponseHandlingStrategy implements StubResponseHandlingStr
     public void handle(final HttpServletResponse response, final StubRequest assertionStubRequest) throws Exception {
         HandlerUtils.setResponseMainHeaders(response);
 
-        if (StringUtils.isSet(foundStubResponse.getLatency())) {
-            final long latency = Long.parseLong(foundStubResponse.getLatency());
-            TimeUnit.MILLISECONDS.sleep(latency);
-        }
-
         response.setStatus(foundStubResponse.getHttpStatusCode().getCode());
         response.setHeader(HttpHeader.LOCATION.asString(), foundStubResponse.getHeaders().get("location"));
         response.setHeader(HttpHeader.CONNECTION.asString(), "close");
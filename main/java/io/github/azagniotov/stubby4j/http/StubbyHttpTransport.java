@@ -58,7 +58,7 @@ public class StubbyHttpTransport {
                 recordingSource,
                 request.getPostBody(),
                 request.getHeaders(),
-                StringUtils.calculateStringLength(request.getPostBody()));
+                request.getPostBodyBytes().length);
     }
 
     public StubbyResponse getResponse(final String method,
@@ -142,6 +142,18 @@ public final class JettyFactory {
 
     private GzipHandler gzipHandler(final AbstractHandler abstractHandler) {
 
+        final GzipHandler gzipHandler = newGzipHandler();
+        gzipHandler.setHandler(abstractHandler);
+
+        return gzipHandler;
+    }
+
+    /**
+     * @return a {@link GzipHandler} that does not wrap any handler yet, configured with the mime types that stubby4j
+     * compresses, so that responses which are compressed ahead of time are compressed for the same mime types
+     */
+    public static GzipHandler newGzipHandler() {
+
         final GzipHandler gzipHandler = new GzipHandler();
         gzipHandler.addIncludedMimeTypes(
                 "text/html,",
@@ -158,7 +170,6 @@ public final class JettyFactory {
                 "image/jpg,",
                 "image/jpeg,",
                 "image/png");
-        gzipHandler.setHandler(abstractHandler);
 
         return gzipHandler;
     }
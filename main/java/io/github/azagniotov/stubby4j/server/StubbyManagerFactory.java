@@ -62,6 +62,22 @@ public class StubbyManagerFactory {
             ANSITerminal.muteConsole(true);
         }
 
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_LOG_LEVEL)) {
+            ANSITerminal.setLevel(CommandLineInterpreter.toLogLevel(commandLineArgs.get(CommandLineInterpreter.OPTION_LOG_LEVEL)));
+        }
+
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_ASYNC_CONSOLE)) {
+            ANSITerminal.enableAsyncOutput(CommandLineInterpreter.toOverflowPolicy(commandLineArgs.get(CommandLineInterpreter.OPTION_ASYNC_CONSOLE)));
+        }
+
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_PARALLEL_MATCHING)) {
+            stubRepository.enableParallelMatching(CommandLineInterpreter.toParallelMatchingThreshold(commandLineArgs.get(CommandLineInterpreter.OPTION_PARALLEL_MATCHING)));
+        }
+
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_MATCH_TRACING)) {
+            stubRepository.enableMatchTracing();
+        }
+
         return new StubbyManager(server, jettyFactory, stubRepository);
     }
 
@@ -0,0 +1,173 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static io.github.azagniotov.stubby4j.utils.StringUtils.escapeSpecialRegexCharacters;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
+
+/**
+ * An immutable, pre-processed view of a stubbed {@link StubRequest}, built once when the stub is loaded, so that
+ * matching an incoming request against it does not have to normalize the stubbed values over and over again.
+ * <p>
+ * Header keys are lower-cased and the stubbed authorization headers are already removed (they are dealt with in
+ * {@link StubRepository} after the request is matched), HTTP methods are folded into a bitmask, and every stubbed
+ * value holds a reference to its compiled {@link Pattern} together with its regex template token name. A stubbed
+ * post body is also parsed as JSON and XML up front, in case it gets compared to an incoming JSON or XML body.
+ */
+final class CompiledStubRequest {
+
+    private final String url;
+    private final Pattern urlPattern;
+    private final HttpMethodSet methods;
+    private final boolean postStubbed;
+    private final String postBody;
+    private final Pattern postPattern;
+    private final ParsedJsonBody postJson;
+    private final String postJsonFallback;
+    private final Pattern postJsonFallbackPattern;
+    private final ParsedXmlBody postXml;
+    private final CompiledMapping headers;
+    private final CompiledMapping query;
+
+    private CompiledStubRequest(final StubRequest stubbedRequest) {
+        this.url = stubbedRequest.getUri();
+        this.urlPattern = compileIfSet(url);
+
+        this.methods = stubbedRequest.getMethodSet();
+
+        this.postStubbed = stubbedRequest.isPostStubbed();
+        this.postBody = stubbedRequest.getPostBody();
+        this.postPattern = postStubbed ? compileIfSet(postBody) : null;
+        this.postJson = postStubbed ? ParsedJsonBody.parse(postBody) : null;
+        // JSON bodies that are not equal are still compared as regex, with the JSON brackets taken literally
+        this.postJsonFallback = postStubbed ? escapeSpecialRegexCharacters(postBody) : null;
+        // Specific to this stub, so it is not worth a slot in the shared pattern cache
+        this.postJsonFallbackPattern = postStubbed && isSet(postJsonFallback) ? RegexPatternCache.compile(postJsonFallback, Pattern.MULTILINE) : null;
+        this.postXml = postStubbed ? ParsedXmlBody.parseStubbed(postBody) : null;
+
+        final Map<String, String> matchableHeaders = new LinkedHashMap<>(stubbedRequest.getHeaders());
+        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
+            // auth header is dealt with in StubRepository after request is matched
+            matchableHeaders.remove(authorizationType.asYAMLProp());
+        }
+        this.headers = new CompiledMapping(matchableHeaders, HEADERS.toString());
+        this.query = new CompiledMapping(stubbedRequest.getQuery(), QUERY.toString());
+    }
+
+    static CompiledStubRequest compile(final StubRequest stubbedRequest) {
+        return new CompiledStubRequest(stubbedRequest);
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    Pattern getUrlPattern() {
+        return urlPattern;
+    }
+
+    boolean isPostStubbed() {
+        return postStubbed;
+    }
+
+    String getPostBody() {
+        return postBody;
+    }
+
+    Pattern getPostPattern() {
+        return postPattern;
+    }
+
+    ParsedJsonBody getPostJson() {
+        return postJson;
+    }
+
+    String getPostJsonFallback() {
+        return postJsonFallback;
+    }
+
+    Pattern getPostJsonFallbackPattern() {
+        return postJsonFallbackPattern;
+    }
+
+    ParsedXmlBody getPostXml() {
+        return postXml;
+    }
+
+    CompiledMapping getHeaders() {
+        return headers;
+    }
+
+    CompiledMapping getQuery() {
+        return query;
+    }
+
+    /**
+     * @param assertingMethods HTTP methods of the incoming request
+     * @return true if no method was stubbed, or if any of the incoming methods was stubbed
+     */
+    boolean acceptsAnyMethodOf(final HttpMethodSet assertingMethods) {
+        return methods.isEmpty() || methods.intersects(assertingMethods);
+    }
+
+    private static Pattern compileIfSet(final String value) {
+        return isSet(value) ? RegexParser.INSTANCE.compile(value) : null;
+    }
+
+    /**
+     * Stubbed query or header values, stored as parallel arrays so that iterating them does not allocate.
+     */
+    static final class CompiledMapping {
+
+        private final String[] keys;
+        private final String[] values;
+        private final Pattern[] patterns;
+        private final String[] templateTokenNames;
+
+        private CompiledMapping(final Map<String, String> mappings, final String mapName) {
+            final int size = mappings.size();
+            this.keys = new String[size];
+            this.values = new String[size];
+            this.patterns = new Pattern[size];
+            this.templateTokenNames = new String[size];
+
+            int idx = 0;
+            for (final Map.Entry<String, String> mapping : mappings.entrySet()) {
+                keys[idx] = mapping.getKey();
+                values[idx] = mapping.getValue();
+                patterns[idx] = compileIfSet(mapping.getValue());
+                templateTokenNames[idx] = String.format("%s.%s", mapName, mapping.getKey());
+                idx++;
+            }
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0;
+        }
+
+        String keyAt(final int idx) {
+            return keys[idx];
+        }
+
+        String valueAt(final int idx) {
+            return values[idx];
+        }
+
+        Pattern patternAt(final int idx) {
+            return patterns[idx];
+        }
+
+        String templateTokenNameAt(final int idx) {
+            return templateTokenNames[idx];
+        }
+    }
+}
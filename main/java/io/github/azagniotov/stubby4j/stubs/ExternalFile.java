@@ -0,0 +1,107 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.utils.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static io.github.azagniotov.stubby4j.utils.StringUtils.newStringUtf8;
+
+/**
+ * A file that stubs refer to, identified by its canonical path, last modification time and size, and shared by all
+ * the stubs that refer to it through the {@link ExternalFileRegistry}.
+ * <p>
+ * The hash of its content is known once the content is first loaded into the {@link FileContentStore}, which keeps
+ * content by hash, so that files with the same content are only stored once.
+ */
+final class ExternalFile {
+
+    private final File file;
+    private final String canonicalPath;
+    private final long lastModified;
+    private final long length;
+    private volatile String contentHash;
+    private volatile String text;
+
+    private ExternalFile(final File file, final String canonicalPath, final long lastModified, final long length) {
+        this.file = file;
+        this.canonicalPath = canonicalPath;
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    static ExternalFile of(final File file) throws IOException {
+        final File canonicalFile = file.getCanonicalFile();
+
+        return new ExternalFile(canonicalFile, canonicalFile.getPath(), canonicalFile.lastModified(), canonicalFile.length());
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    String getCanonicalPath() {
+        return canonicalPath;
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * @return the hash of the file content, or null if the content was not loaded into the store yet
+     */
+    String getContentHash() {
+        return contentHash;
+    }
+
+    void setContentHash(final String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return the file content decoded as UTF-8 with the system line separators, read only once no matter how many
+     * stubbed requests post it
+     */
+    String getText() throws IOException {
+        String current = text;
+        if (current == null) {
+            current = FileUtils.enforceSystemLineSeparator(newStringUtf8(FileUtils.fileToBytes(file)));
+            text = current;
+        }
+        return current;
+    }
+
+    static String hashOf(final ByteBuffer content) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(content.duplicate());
+
+            return Base64.getEncoder().encodeToString(messageDigest.digest());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the identity of the file in the registry, so that a file which has changed since it was registered is
+     * registered anew
+     */
+    String getRegistryKey() {
+        return canonicalPath + '|' + lastModified + '|' + length;
+    }
+
+    @Override
+    public String toString() {
+        return canonicalPath;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registers every distinct file that stubs refer to once, keyed on its canonical path, last modification time and
+ * size, so that all the stubs referring to a file (possibly through different relative paths) share one
+ * {@link ExternalFile}, and so its content is read and normalized only once.
+ * <p>
+ * The registry only holds weak references: a file is forgotten once no loaded stub refers to it any more, e.g.: after
+ * the stubs were reloaded without it, or after it was changed and the stubs were reloaded with its new version.
+ */
+enum ExternalFileRegistry {
+
+    INSTANCE;
+
+    private static final long CONTENT_STORE_MAX_RESIDENT_BYTES = 64 * 1024 * 1024;
+    private static final long CONTENT_STORE_MAX_ENTRY_BYTES = 1024 * 1024;
+
+    @VisibleForTesting
+    static final FileContentStore CONTENT_STORE = new FileContentStore(CONTENT_STORE_MAX_RESIDENT_BYTES, CONTENT_STORE_MAX_ENTRY_BYTES);
+
+    private final ConcurrentHashMap<String, RegisteredFile> files = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ExternalFile> forgottenFiles = new ReferenceQueue<>();
+
+    /**
+     * @return the {@link ExternalFile} that is shared by all the stubs referring to the given file
+     */
+    ExternalFile register(final File file) throws IOException {
+        purgeForgottenFiles();
+
+        final ExternalFile candidate = ExternalFile.of(file);
+        final String registryKey = candidate.getRegistryKey();
+        while (true) {
+            final RegisteredFile registered = files.get(registryKey);
+            final ExternalFile registeredFile = registered == null ? null : registered.get();
+            if (registeredFile != null) {
+                return registeredFile;
+            }
+
+            final RegisteredFile registering = new RegisteredFile(registryKey, candidate, forgottenFiles);
+            final boolean isRegistered = registered == null ?
+                    files.putIfAbsent(registryKey, registering) == null : files.replace(registryKey, registered, registering);
+            if (isRegistered) {
+                return candidate;
+            }
+        }
+    }
+
+    int size() {
+        purgeForgottenFiles();
+        return files.size();
+    }
+
+    private void purgeForgottenFiles() {
+        Reference<? extends ExternalFile> forgotten;
+        while ((forgotten = forgottenFiles.poll()) != null) {
+            files.remove(((RegisteredFile) forgotten).registryKey, forgotten);
+        }
+    }
+
+    private static final class RegisteredFile extends WeakReference<ExternalFile> {
+        private final String registryKey;
+
+        private RegisteredFile(final String registryKey, final ExternalFile externalFile, final ReferenceQueue<ExternalFile> forgottenFiles) {
+            super(externalFile, forgottenFiles);
+            this.registryKey = registryKey;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The content of the files that stub responses refer to, loaded the first time a response needs it rather than when
+ * the stubs are loaded.
+ * <p>
+ * Content is keyed on its hash, which is remembered by the {@link ExternalFile} it was loaded from, so files with the
+ * same content are stored once, and a file that was reloaded but not changed keeps its stored content. The
+ * {@link PrecompressedBodies precompressed encodings} of response bodies are kept alongside, keyed on the hash of the
+ * body and the content coding, so that all the content derived from stubs shares one budget of bytes.
+ * <p>
+ * Loaded content is kept in direct buffers, outside of the heap, and the most recently used files are kept for as
+ * long as their total size fits in a budget of bytes. Files larger than what a single entry may take are never kept:
+ * a large binary file is memory mapped on every use, which reads it from the page cache instead of the heap, and a
+ * large character file is read into the heap on every use, as its line separators have to be converted. Responses
+ * stream large binary files from disk instead, see {@link #isTooLargeToKeep(long)}.
+ * <p>
+ * Like the {@link RegexPatternCache}, lookups are lock-free, and the least recently used entries are evicted by an
+ * O(n) scan only when newly loaded content goes over the budget.
+ */
+final class FileContentStore {
+
+    // Kept in place of an encoding that is not worth keeping, so that the body is not compressed again on every use
+    private static final ByteBuffer NOT_ENCODED = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final long maxResidentBytes;
+    private final long maxEntryBytes;
+    private final ConcurrentHashMap<String, CachedContent> cache;
+    private final AtomicLong residentBytes;
+    private final AtomicLong clock;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder uncachedLoads;
+
+    FileContentStore(final long maxResidentBytes, final long maxEntryBytes) {
+        this.maxResidentBytes = maxResidentBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.cache = new ConcurrentHashMap<>();
+        this.residentBytes = new AtomicLong();
+        this.clock = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.uncachedLoads = new LongAdder();
+    }
+
+    /**
+     * @return a read-only view of the file content, loaded and kept in the store first if needed. Every call
+     * returns a new view, so that concurrent responses can each consume their own
+     */
+    ByteBuffer get(final ExternalFile externalFile) throws IOException {
+        final CachedContent cached = lookup(externalFile);
+        if (cached != null) {
+            hits.increment();
+            cached.lastAccessed = clock.incrementAndGet();
+            return cached.content.duplicate();
+        }
+
+        misses.increment();
+        final ByteBuffer loaded = FileUtils.fileToByteBuffer(externalFile.getFile());
+        if (loaded.remaining() > maxEntryBytes) {
+            uncachedLoads.increment();
+            return loaded;
+        }
+
+        final String contentHash = ExternalFile.hashOf(loaded);
+        externalFile.setContentHash(contentHash);
+        final CachedContent loadedContent = new CachedContent(toDirectBuffer(loaded), clock.incrementAndGet());
+        final CachedContent existing = cache.putIfAbsent(contentHash, loadedContent);
+        if (existing != null) {
+            existing.lastAccessed = loadedContent.lastAccessed;
+            return existing.content.duplicate();
+        }
+        if (residentBytes.addAndGet(loadedContent.content.capacity()) > maxResidentBytes) {
+            evictLeastRecentlyUsed();
+        }
+
+        return loadedContent.content.duplicate();
+    }
+
+    /**
+     * Same as {@link #get(ExternalFile)}, except that content which is not in the store already is not kept in it, e.g.:
+     * when the file content is only displayed on the admin status page
+     */
+    ByteBuffer peek(final ExternalFile externalFile) throws IOException {
+        final CachedContent cached = lookup(externalFile);
+        if (cached != null) {
+            return cached.content.duplicate();
+        }
+        return FileUtils.fileToByteBuffer(externalFile.getFile());
+    }
+
+    /**
+     * @param contentHash   the hash of the body, see {@link ExternalFile#hashOf(ByteBuffer)}
+     * @param contentCoding the content coding of the encoding
+     * @param encoder       encodes the body, or returns empty if the encoding is not worth keeping
+     * @return a read-only view of the encoded body, encoded and kept in the store first if needed. Every call returns
+     * a new view. Null if the encoding is not worth keeping
+     */
+    ByteBuffer getEncoded(final String contentHash, final String contentCoding, final Supplier<Optional<ByteBuffer>> encoder) {
+        final String encodingKey = encodingKeyOf(contentHash, contentCoding);
+        final CachedContent cached = cache.get(encodingKey);
+        if (cached != null) {
+            hits.increment();
+            cached.lastAccessed = clock.incrementAndGet();
+            return cached.content.hasRemaining() ? cached.content.duplicate() : null;
+        }
+
+        misses.increment();
+        final ByteBuffer encoded = encoder.get().map(FileContentStore::toDirectBuffer).orElse(NOT_ENCODED);
+        final CachedContent encodedContent = new CachedContent(encoded, clock.incrementAndGet());
+        final CachedContent existing = cache.putIfAbsent(encodingKey, encodedContent);
+        if (existing != null) {
+            existing.lastAccessed = encodedContent.lastAccessed;
+            return existing.content.hasRemaining() ? existing.content.duplicate() : null;
+        }
+        if (residentBytes.addAndGet(encoded.capacity()) > maxResidentBytes) {
+            evictLeastRecentlyUsed();
+        }
+
+        return encoded.hasRemaining() ? encoded.duplicate() : null;
+    }
+
+    boolean containsEncoded(final String contentHash, final String contentCoding) {
+        return cache.containsKey(encodingKeyOf(contentHash, contentCoding));
+    }
+
+    // Base64 hashes have no colons, so encoding keys never collide with the keys of file content
+    private static String encodingKeyOf(final String contentHash, final String contentCoding) {
+        return contentCoding + ":" + contentHash;
+    }
+
+    /**
+     * @return true if content of the given length would be loaded anew on every use rather than kept in the store
+     */
+    boolean isTooLargeToKeep(final long length) {
+        return length > maxEntryBytes;
+    }
+
+    boolean contains(final ExternalFile externalFile) {
+        return lookup(externalFile) != null;
+    }
+
+    private CachedContent lookup(final ExternalFile externalFile) {
+        final String contentHash = externalFile.getContentHash();
+
+        return contentHash == null ? null : cache.get(contentHash);
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    Map<String, Long> getStats() {
+        final long hitCount = hits.sum();
+        final long lookups = hitCount + misses.sum();
+
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) cache.size());
+        stats.put("residentBytes", residentBytes.get());
+        stats.put("maxResidentBytes", maxResidentBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", lookups - hitCount);
+        stats.put("hitRatePercent", lookups == 0 ? 0 : hitCount * 100 / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("uncachedLoads", uncachedLoads.sum());
+
+        return stats;
+    }
+
+    void clear() {
+        for (final Map.Entry<String, CachedContent> entry : cache.entrySet()) {
+            if (cache.remove(entry.getKey(), entry.getValue())) {
+                residentBytes.addAndGet(-entry.getValue().content.capacity());
+            }
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        while (residentBytes.get() > maxResidentBytes) {
+            Map.Entry<String, CachedContent> eldest = null;
+            for (final Map.Entry<String, CachedContent> entry : cache.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccessed < eldest.getValue().lastAccessed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (cache.remove(eldest.getKey(), eldest.getValue())) {
+                residentBytes.addAndGet(-eldest.getValue().content.capacity());
+                evictions.increment();
+            }
+        }
+    }
+
+    private static ByteBuffer toDirectBuffer(final ByteBuffer loaded) {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(loaded.remaining());
+        direct.put(loaded.duplicate());
+        direct.flip();
+
+        return direct.asReadOnlyBuffer();
+    }
+
+    private static final class CachedContent {
+        private final ByteBuffer content;
+        private volatile long lastAccessed;
+
+        private CachedContent(final ByteBuffer content, final long lastAccessed) {
+            this.content = content;
+            this.lastAccessed = lastAccessed;
+        }
+    }
+}
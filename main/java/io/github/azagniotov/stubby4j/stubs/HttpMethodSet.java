@@ -0,0 +1,116 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.eclipse.jetty.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toUpper;
+
+/**
+ * An immutable set of HTTP methods, built once per {@link StubRequest}.
+ * <p>
+ * Standard HTTP methods are folded into a bitmask of their {@link HttpMethod#ordinal() ordinals}, so checking whether
+ * two sets share a method is a single AND. Non-standard methods (e.g.: WebDAV's PROPFIND) are kept in a small
+ * fallback set of upper-cased names.
+ */
+final class HttpMethodSet {
+
+    private final int mask;
+    private final Set<String> nonStandardMethods;
+    private final List<String> upperCasedMethods;
+
+    private HttpMethodSet(final List<String> methods) {
+        final List<String> upperCasedMethods = new ArrayList<>(methods.size());
+        final Set<String> nonStandardMethods = new HashSet<>();
+        int mask = 0;
+        for (final String method : methods) {
+            final String upperCasedMethod = toUpper(method);
+            upperCasedMethods.add(upperCasedMethod);
+
+            final HttpMethod httpMethod = HttpMethod.fromString(upperCasedMethod);
+            if (httpMethod == null) {
+                nonStandardMethods.add(upperCasedMethod);
+            } else {
+                mask |= bitOf(httpMethod);
+            }
+        }
+        this.mask = mask;
+        this.nonStandardMethods = Collections.unmodifiableSet(nonStandardMethods);
+        this.upperCasedMethods = Collections.unmodifiableList(upperCasedMethods);
+    }
+
+    static HttpMethodSet of(final List<String> methods) {
+        return new HttpMethodSet(methods);
+    }
+
+    static int bitOf(final HttpMethod httpMethod) {
+        return 1 << httpMethod.ordinal();
+    }
+
+    boolean isEmpty() {
+        return upperCasedMethods.isEmpty();
+    }
+
+    boolean contains(final HttpMethod httpMethod) {
+        return (mask & bitOf(httpMethod)) != 0;
+    }
+
+    /**
+     * @return true if both sets have at least one method in common
+     */
+    boolean intersects(final HttpMethodSet other) {
+        if ((mask & other.mask) != 0) {
+            return true;
+        }
+        if (nonStandardMethods.isEmpty() || other.nonStandardMethods.isEmpty()) {
+            return false;
+        }
+        for (final String nonStandardMethod : other.nonStandardMethods) {
+            if (nonStandardMethods.contains(nonStandardMethod)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getMask() {
+        return mask;
+    }
+
+    Set<String> getNonStandardMethods() {
+        return nonStandardMethods;
+    }
+
+    /**
+     * @return upper-cased methods in the order they were given, duplicates included
+     */
+    List<String> asList() {
+        return upperCasedMethods;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof HttpMethodSet)) {
+            return false;
+        }
+        final HttpMethodSet that = (HttpMethodSet) o;
+        return mask == that.mask && nonStandardMethods.equals(that.nonStandardMethods);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mask + nonStandardMethods.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return upperCasedMethods.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
+
+/**
+ * A read-only view of the headers of an incoming {@link HttpServletRequest}, keyed on lower-cased header names.
+ * <p>
+ * Stub matching only ever looks up the headers that the stubs reference, so a header is fetched from the servlet
+ * request the first time it is looked up, and the result (including its absence) is remembered for the following
+ * lookups. All the headers are copied only if the whole map is iterated, e.g.: when the request is logged, or when
+ * it is dumped into a 404 response.
+ * <p>
+ * Lookups may come from the {@link ParallelStubMatcher} pool threads, hence the concurrent map and the volatile copy.
+ */
+final class IncomingRequestHeaders extends AbstractMap<String, String> {
+
+    // Servlet requests return null for absent headers, which a ConcurrentHashMap does not accept as a value
+    private static final String ABSENT = new String();
+
+    private final HttpServletRequest request;
+    private final Map<String, String> lookedUpHeaders;
+    private volatile Map<String, String> allHeaders;
+
+    IncomingRequestHeaders(final HttpServletRequest request) {
+        this.request = request;
+        this.lookedUpHeaders = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String get(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final String value = lookedUpHeaders.computeIfAbsent((String) key, headerName -> {
+            final String headerValue = request.getHeader(headerName);
+            return headerValue == null ? ABSENT : headerValue;
+        });
+
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final Map<String, String> currentAllHeaders = allHeaders;
+        if (currentAllHeaders != null) {
+            return currentAllHeaders.isEmpty();
+        }
+        final Enumeration<String> headerNames = request.getHeaderNames();
+
+        return headerNames == null || !headerNames.hasMoreElements();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    private Map<String, String> materialize() {
+        Map<String, String> current = allHeaders;
+        if (current == null) {
+            final Map<String, String> headers = new LinkedHashMap<>();
+            final Enumeration<String> headerNames = request.getHeaderNames();
+            if (headerNames != null) {
+                while (headerNames.hasMoreElements()) {
+                    final String headerName = headerNames.nextElement();
+                    headers.put(toLower(headerName), String.valueOf(request.getHeader(headerName)));
+                }
+            }
+            current = Collections.unmodifiableMap(headers);
+            allHeaders = current;
+        }
+        return current;
+    }
+}
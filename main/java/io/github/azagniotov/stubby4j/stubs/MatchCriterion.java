@@ -0,0 +1,24 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+/**
+ * The checks that {@link StubMatcher#matches(StubRequest, StubRequest)} runs, in the order it runs them
+ */
+enum MatchCriterion {
+
+    URL("url"),
+    METHOD("method"),
+    POST("post"),
+    HEADERS("headers"),
+    QUERY("query");
+
+    private final String label;
+
+    MatchCriterion(final String label) {
+        this.label = label;
+    }
+
+    String getLabel() {
+        return label;
+    }
+}
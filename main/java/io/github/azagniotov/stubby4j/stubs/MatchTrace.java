@@ -0,0 +1,91 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.utils.ObjectUtils;
+
+/**
+ * Records how one incoming request was matched: whether the match cache answered it, how many candidate stubs
+ * were evaluated, and how many nanoseconds every {@link MatchCriterion} took across all of them.
+ * <p>
+ * A trace is created only when match tracing is enabled, and it is only ever touched by the request thread (a traced
+ * request is never matched on the {@link ParallelStubMatcher} pool). The timings of every evaluated candidate are
+ * also added to the per-stub {@link MatchTraceStats}.
+ */
+final class MatchTrace {
+
+    private static final MatchCriterion[] CRITERIA = MatchCriterion.values();
+
+    private final MatchTraceStats stats;
+    private final long startNanos;
+    private final long[] criterionNanos;
+    private final long[] candidateCriterionNanos;
+    private int evaluatedCandidates;
+    private String cacheOutcome;
+    private String matchedResourceId;
+    private long totalNanos;
+
+    MatchTrace(final MatchTraceStats stats) {
+        this.stats = stats;
+        this.startNanos = System.nanoTime();
+        this.criterionNanos = new long[CRITERIA.length];
+        this.candidateCriterionNanos = new long[CRITERIA.length];
+        this.cacheOutcome = "miss";
+    }
+
+    void recordCriterion(final MatchCriterion criterion, final long criterionStartNanos) {
+        final long elapsed = System.nanoTime() - criterionStartNanos;
+        criterionNanos[criterion.ordinal()] += elapsed;
+        candidateCriterionNanos[criterion.ordinal()] += elapsed;
+    }
+
+    long startCandidate() {
+        for (int idx = 0; idx < candidateCriterionNanos.length; idx++) {
+            candidateCriterionNanos[idx] = 0;
+        }
+        return System.nanoTime();
+    }
+
+    void endCandidate(final String resourceId, final long candidateStartNanos, final boolean matched) {
+        evaluatedCandidates++;
+        if (matched) {
+            matchedResourceId = resourceId;
+        }
+        stats.record(resourceId, System.nanoTime() - candidateStartNanos, candidateCriterionNanos, matched);
+    }
+
+    void cachedMatch() {
+        cacheOutcome = "match";
+    }
+
+    void cachedNoMatch() {
+        cacheOutcome = "no-match";
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    int getEvaluatedCandidates() {
+        return evaluatedCandidates;
+    }
+
+    long getCriterionNanos(final MatchCriterion criterion) {
+        return criterionNanos[criterion.ordinal()];
+    }
+
+    /**
+     * @return e.g.: "candidates=2; cache=miss; match=1; url=5020ns; method=310ns; post=0ns; headers=0ns; query=0ns; total=41200ns"
+     */
+    String toHeaderValue() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("candidates=").append(evaluatedCandidates);
+        builder.append("; cache=").append(cacheOutcome);
+        builder.append("; match=").append(ObjectUtils.isNull(matchedResourceId) ? "none" : matchedResourceId);
+        for (final MatchCriterion criterion : CRITERIA) {
+            builder.append("; ").append(criterion.getLabel()).append('=').append(criterionNanos[criterion.ordinal()]).append("ns");
+        }
+        builder.append("; total=").append(totalNanos).append("ns");
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stub aggregate of the {@link MatchTrace traced} match attempts: how many times every stub was evaluated as a
+ * candidate and matched, the nanoseconds spent on every {@link MatchCriterion}, and a histogram of how long a single
+ * evaluation took. The histogram buckets are powers of two, i.e.: the bucket "<1024ns" counts evaluations that took
+ * from 512 to 1023 nanoseconds.
+ */
+final class MatchTraceStats {
+
+    private static final MatchCriterion[] CRITERIA = MatchCriterion.values();
+    private static final int HISTOGRAM_BUCKETS = 63;
+
+    private final ConcurrentHashMap<String, StubTimings> timingsByResourceId;
+
+    MatchTraceStats() {
+        this.timingsByResourceId = new ConcurrentHashMap<>();
+    }
+
+    void record(final String resourceId, final long evaluationNanos, final long[] criterionNanos, final boolean matched) {
+        timingsByResourceId.computeIfAbsent(resourceId, id -> new StubTimings()).record(evaluationNanos, criterionNanos, matched);
+    }
+
+    /**
+     * @return e.g.: {"0": {"evaluations": 2, "matches": 1, "criteria": {"url": 4020, ...}, "histogram": {"<2048ns": 2}}}
+     */
+    String toJson() {
+        final Map<String, Object> stats = new TreeMap<>();
+        for (final Map.Entry<String, StubTimings> entry : timingsByResourceId.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().toJson());
+        }
+
+        return new JSONObject(stats).toString();
+    }
+
+    private static final class StubTimings {
+
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final AtomicLongArray criterionNanos = new AtomicLongArray(CRITERIA.length);
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        private void record(final long evaluationNanos, final long[] evaluationCriterionNanos, final boolean matched) {
+            evaluations.increment();
+            if (matched) {
+                matches.increment();
+            }
+            for (int idx = 0; idx < CRITERIA.length; idx++) {
+                criterionNanos.addAndGet(idx, evaluationCriterionNanos[idx]);
+            }
+            histogram.incrementAndGet(bucketOf(evaluationNanos));
+        }
+
+        private static int bucketOf(final long nanos) {
+            return Math.min(HISTOGRAM_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+        }
+
+        private JSONObject toJson() {
+            final Map<String, Object> criteria = new TreeMap<>();
+            for (final MatchCriterion criterion : CRITERIA) {
+                criteria.put(criterion.getLabel(), criterionNanos.get(criterion.ordinal()));
+            }
+
+            final Map<String, Object> buckets = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+                final long count = histogram.get(bucket);
+                if (count > 0) {
+                    buckets.put(String.format("<%sns", 1L << bucket), count);
+                }
+            }
+
+            final Map<String, Object> timings = new LinkedHashMap<>();
+            timings.put("evaluations", evaluations.sum());
+            timings.put("matches", matches.sum());
+            timings.put("criteria", new JSONObject(criteria));
+            timings.put("histogram", new JSONObject(buckets));
+            final JSONObject json = new JSONObject(timings);
+
+            return json;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Matches an incoming request against a large list of candidate stubs on a dedicated {@link ForkJoinPool}.
+ * <p>
+ * The candidates are split into chunks that are scanned concurrently, each chunk in YAML declaration order. Chunks
+ * stop early once a match with a lower index than their own position has been found by another chunk, so the result
+ * is always the lowest-index (first-declared) match, exactly like a sequential scan would return.
+ * <p>
+ * The regex groups captured while matching on the pool threads are thrown away, because the incoming request is
+ * not safe to modify concurrently. The caller is expected to match the returned stub once more on its own thread.
+ */
+final class ParallelStubMatcher {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    ParallelStubMatcher(final int threshold, final int parallelism) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Parallel matching threshold must be positive: " + threshold);
+        }
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread workerThread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            workerThread.setName(ParallelStubMatcher.class.getSimpleName() + "-" + workerThread.getPoolIndex());
+            workerThread.setDaemon(true);
+            return workerThread;
+        }, null, false);
+    }
+
+    /**
+     * @return true if there are enough candidates to pay for splitting the scan into parallel tasks
+     */
+    boolean isWorthParallelizing(final List<StubHttpLifecycle> candidates) {
+        return candidates.size() >= threshold;
+    }
+
+    int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return index of the first candidate that matches the incoming request, or -1 if none of the candidates match
+     */
+    int indexOfFirstMatch(final StubRequest assertingRequest, final List<StubHttpLifecycle> candidates) {
+        final AtomicInteger firstMatchIndex = new AtomicInteger(NO_MATCH);
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, candidates.size() / (pool.getParallelism() * 4));
+        pool.invoke(new MatchTask(assertingRequest, candidates, 0, candidates.size(), chunkSize, firstMatchIndex));
+
+        final int index = firstMatchIndex.get();
+        return index == NO_MATCH ? -1 : index;
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class MatchTask extends RecursiveAction {
+
+        private final StubRequest assertingRequest;
+        private final List<StubHttpLifecycle> candidates;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final AtomicInteger firstMatchIndex;
+
+        private MatchTask(final StubRequest assertingRequest,
+                          final List<StubHttpLifecycle> candidates,
+                          final int from,
+                          final int to,
+                          final int chunkSize,
+                          final AtomicInteger firstMatchIndex) {
+            this.assertingRequest = assertingRequest;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.firstMatchIndex = firstMatchIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                scan();
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new MatchTask(assertingRequest, candidates, from, middle, chunkSize, firstMatchIndex),
+                    new MatchTask(assertingRequest, candidates, middle, to, chunkSize, firstMatchIndex));
+        }
+
+        private void scan() {
+            final StubMatcher stubMatcher = new StubMatcher(new HashMap<>());
+            for (int idx = from; idx < to && idx < firstMatchIndex.get(); idx++) {
+                if (stubMatcher.matches(candidates.get(idx).getRequest(), assertingRequest)) {
+                    firstMatchIndex.accumulateAndGet(idx, Math::min);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+import org.skyscreamer.jsonassert.JSONCompare;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.skyscreamer.jsonassert.JSONParser;
+
+import java.util.Iterator;
+
+/**
+ * A JSON post body that was parsed once, either when its stub was loaded or when the incoming request was first
+ * compared to a stub with a JSON post body.
+ * <p>
+ * Besides the parsed tree, a structural hash is kept: it covers the kind of every value, the keys of every object
+ * and the length of every array, but not the leaf values. Arrays and objects are hashed regardless of the order of
+ * their elements, so two bodies that are equal in {@link JSONCompareMode#NON_EXTENSIBLE} mode always have the same
+ * structural hash, which allows to reject most mismatches without a deep compare.
+ */
+final class ParsedJsonBody {
+
+    private static final ParsedJsonBody UNPARSABLE = new ParsedJsonBody(null, 0);
+
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int NUMBER = 3;
+    private static final int BOOLEAN = 4;
+    private static final int NULL = 5;
+
+    private final Object tree;
+    private final int structuralHash;
+
+    private ParsedJsonBody(final Object tree, final int structuralHash) {
+        this.tree = tree;
+        this.structuralHash = structuralHash;
+    }
+
+    /**
+     * @return the parsed body, or an unparsable body that does not match anything if the given value is not JSON
+     */
+    static ParsedJsonBody parse(final String json) {
+        try {
+            final Object tree = JSONParser.parseJSON(json);
+            return new ParsedJsonBody(tree, structuralHashOf(tree));
+        } catch (final JSONException | RuntimeException e) {
+            return UNPARSABLE;
+        }
+    }
+
+    boolean isParsable() {
+        return tree != null;
+    }
+
+    int getStructuralHash() {
+        return structuralHash;
+    }
+
+    /**
+     * Compares this (stubbed) body to the incoming one, like {@link JSONCompare#compareJSON(String, String, JSONCompareMode)}
+     * in {@link JSONCompareMode#NON_EXTENSIBLE} mode would compare their unparsed values.
+     */
+    boolean matches(final ParsedJsonBody assertingBody) {
+        if (!isParsable() || !assertingBody.isParsable() || structuralHash != assertingBody.structuralHash) {
+            return false;
+        }
+
+        try {
+            final Object assertingTree = assertingBody.tree;
+            if (tree instanceof JSONObject && assertingTree instanceof JSONObject) {
+                return JSONCompare.compareJSON((JSONObject) tree, (JSONObject) assertingTree, JSONCompareMode.NON_EXTENSIBLE).passed();
+            } else if (tree instanceof JSONArray && assertingTree instanceof JSONArray) {
+                return JSONCompare.compareJSON((JSONArray) tree, (JSONArray) assertingTree, JSONCompareMode.NON_EXTENSIBLE).passed();
+            } else if (tree instanceof JSONString && assertingTree instanceof JSONString) {
+                return JSONCompare.compareJson((JSONString) tree, (JSONString) assertingTree).passed();
+            }
+            return false;
+        } catch (final JSONException e) {
+            return false;
+        }
+    }
+
+    private static int structuralHashOf(final Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            final JSONObject jsonObject = (JSONObject) value;
+            int hash = 31 * OBJECT + jsonObject.length();
+            final Iterator<?> keys = jsonObject.keys();
+            while (keys.hasNext()) {
+                final String key = String.valueOf(keys.next());
+                // Summing up makes the hash independent of the key order
+                hash += key.hashCode() * 31 + structuralHashOf(jsonObject.get(key));
+            }
+            return hash;
+        } else if (value instanceof JSONArray) {
+            final JSONArray jsonArray = (JSONArray) value;
+            int hash = 31 * ARRAY + jsonArray.length();
+            for (int idx = 0; idx < jsonArray.length(); idx++) {
+                // Summing up makes the hash independent of the element order, which is not strict in NON_EXTENSIBLE mode
+                hash += 31 * structuralHashOf(jsonArray.get(idx));
+            }
+            return hash;
+        } else if (value instanceof Number) {
+            return NUMBER;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            return NULL;
+        }
+        // Strings and top level JSON string values
+        return value.getClass().getName().hashCode();
+    }
+}
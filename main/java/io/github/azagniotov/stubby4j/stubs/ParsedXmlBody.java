@@ -0,0 +1,150 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.custommonkey.xmlunit.Diff;
+import org.custommonkey.xmlunit.ElementNameAndAttributeQualifier;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An XML post body that was parsed into a DOM once, either when its stub was loaded or when the incoming request
+ * was first compared to a stub with an XML post body.
+ * <p>
+ * Besides the DOM, a digest of its canonical form is kept (attributes are sorted, everything else is taken as is),
+ * so identical documents are matched without walking them with XMLUnit. Documents with different digests are still
+ * compared by XMLUnit, which also accepts similar documents.
+ * <p>
+ * DOM implementations do not guarantee thread safety even for reading, so a {@link Diff} locks both documents it
+ * walks: the incoming document first, then the stubbed one.
+ */
+final class ParsedXmlBody {
+
+    private static final ParsedXmlBody UNPARSABLE = new ParsedXmlBody(null, null);
+    private static final Comparator<Attr> ATTRIBUTE_ORDER =
+            Comparator.comparing((Attr attr) -> String.valueOf(attr.getNamespaceURI())).thenComparing(Attr::getName);
+
+    private final Document document;
+    private final byte[] canonicalDigest;
+
+    private ParsedXmlBody(final Document document, final byte[] canonicalDigest) {
+        this.document = document;
+        this.canonicalDigest = canonicalDigest;
+    }
+
+    static ParsedXmlBody parseStubbed(final String xml) {
+        if (!looksLikeXml(xml)) {
+            return UNPARSABLE;
+        }
+        try {
+            return of(XMLUnit.buildControlDocument(xml));
+        } catch (final Exception e) {
+            return UNPARSABLE;
+        }
+    }
+
+    static ParsedXmlBody parseIncoming(final String xml) {
+        if (!looksLikeXml(xml)) {
+            return UNPARSABLE;
+        }
+        try {
+            return of(XMLUnit.buildTestDocument(xml));
+        } catch (final Exception e) {
+            return UNPARSABLE;
+        }
+    }
+
+    boolean isParsable() {
+        return document != null;
+    }
+
+    /**
+     * Compares this (stubbed) body to the incoming one, like an XMLUnit {@link Diff} of their unparsed values would
+     */
+    boolean matches(final ParsedXmlBody assertingBody) {
+        if (MessageDigest.isEqual(canonicalDigest, assertingBody.canonicalDigest)) {
+            return true;
+        }
+
+        synchronized (assertingBody.document) {
+            synchronized (document) {
+                final Diff diff = new Diff(document, assertingBody.document);
+                diff.overrideElementQualifier(new ElementNameAndAttributeQualifier());
+
+                return (diff.similar() || diff.identical());
+            }
+        }
+    }
+
+    // Saves the parser from reporting a fatal error on the console for the bodies that are obviously not XML
+    private static boolean looksLikeXml(final String value) {
+        return value != null && value.trim().startsWith("<");
+    }
+
+    private static ParsedXmlBody of(final Document document) throws NoSuchAlgorithmException {
+        final StringBuilder canonicalForm = new StringBuilder();
+        canonicalForm.append(document.getXmlVersion()).append('|').append(document.getXmlStandalone());
+        appendChildren(canonicalForm, document);
+
+        final byte[] canonicalDigest = MessageDigest.getInstance("SHA-256").digest(canonicalForm.toString().getBytes(StandardCharsets.UTF_8));
+
+        return new ParsedXmlBody(document, canonicalDigest);
+    }
+
+    private static void appendChildren(final StringBuilder canonicalForm, final Node parent) {
+        final NodeList children = parent.getChildNodes();
+        for (int idx = 0; idx < children.getLength(); idx++) {
+            appendNode(canonicalForm, children.item(idx));
+        }
+    }
+
+    private static void appendNode(final StringBuilder canonicalForm, final Node node) {
+        // Every value is prefixed with its length, so that no two different documents share a canonical form
+        canonicalForm.append('(').append(node.getNodeType());
+        appendValue(canonicalForm, node.getNamespaceURI());
+        appendValue(canonicalForm, node.getNodeName());
+
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            final NamedNodeMap attributes = node.getAttributes();
+            final List<Attr> sortedAttributes = new ArrayList<>(attributes.getLength());
+            for (int idx = 0; idx < attributes.getLength(); idx++) {
+                sortedAttributes.add((Attr) attributes.item(idx));
+            }
+            sortedAttributes.sort(ATTRIBUTE_ORDER);
+            for (final Attr attribute : sortedAttributes) {
+                appendValue(canonicalForm, attribute.getNamespaceURI());
+                appendValue(canonicalForm, attribute.getName());
+                appendValue(canonicalForm, attribute.getValue());
+            }
+            appendChildren(canonicalForm, node);
+        } else if (node.getNodeType() == Node.DOCUMENT_TYPE_NODE) {
+            final DocumentType documentType = (DocumentType) node;
+            appendValue(canonicalForm, documentType.getPublicId());
+            appendValue(canonicalForm, documentType.getSystemId());
+            appendValue(canonicalForm, documentType.getInternalSubset());
+        } else {
+            appendValue(canonicalForm, node.getNodeValue());
+            appendChildren(canonicalForm, node);
+        }
+        canonicalForm.append(')');
+    }
+
+    private static void appendValue(final StringBuilder canonicalForm, final String value) {
+        if (value == null) {
+            canonicalForm.append("-1:");
+        } else {
+            canonicalForm.append(value.length()).append(':').append(value);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses response bodies without template tokens into the gzip and deflate encodings, the first time a client
+ * accepts them. The encodings are kept in the {@link FileContentStore}, keyed on the hash of the body, so that they
+ * share its budget of bytes with the file content and are evicted the same way.
+ * <p>
+ * Bodies smaller than {@link #MIN_BODY_BYTES}, or than the minimum size a caller asks for, are not worth the
+ * compression overhead and bodies larger than {@link #MAX_BODY_BYTES} are not worth keeping, so both are sent as they
+ * are. An encoding that turns out no smaller than the body itself, e.g.: of an image, is not kept either.
+ */
+final class PrecompressedBodies {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final int MIN_BODY_BYTES = 256;
+    static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private PrecompressedBodies() {
+
+    }
+
+    static boolean isSupported(final String contentCoding) {
+        return GZIP.equals(contentCoding) || DEFLATE.equals(contentCoding);
+    }
+
+    static boolean isWorthCompressing(final int bodyLength, final int minBodyBytes) {
+        return bodyLength >= Math.max(MIN_BODY_BYTES, minBodyBytes) && bodyLength <= MAX_BODY_BYTES;
+    }
+
+    /**
+     * @return the body in the given content coding, or empty if the coding is not supported, or if the encoding
+     * would not be any smaller than the body
+     */
+    static Optional<ByteBuffer> compress(final String contentCoding, final ByteBuffer body) {
+        if (!isSupported(contentCoding)) {
+            return Optional.empty();
+        }
+
+        final int bodyLength = body.remaining();
+        final byte[] bodyBytes = new byte[bodyLength];
+        body.duplicate().get(bodyBytes);
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bodyLength / 2);
+        try (final OutputStream compressingStream = GZIP.equals(contentCoding) ?
+                new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed)) {
+            compressingStream.write(bodyBytes);
+        } catch (final IOException e) {
+            return Optional.empty();
+        }
+
+        if (compressed.size() >= bodyLength) {
+            return Optional.empty();
+        }
+        return Optional.of(ByteBuffer.wrap(compressed.toByteArray()));
+    }
+}
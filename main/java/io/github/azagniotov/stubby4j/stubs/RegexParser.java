@@ -3,11 +3,12 @@ package io.github.azagniotov.stubby4j.stubs;
 
 import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 import static io.github.azagniotov.stubby4j.utils.StringUtils.buildToken;
 import static java.util.regex.Pattern.quote;
@@ -16,8 +17,11 @@ enum RegexParser {
 
     INSTANCE;
 
+    // Every stubbed value is compared as a pattern, so the cache has to be bounded for stubs pushed over the admin portal
+    private static final int PATTERN_CACHE_MAX_SIZE = 4096;
+
     @VisibleForTesting
-    static final Map<Integer, Pattern> PATTERN_CACHE = new ConcurrentHashMap<>();
+    static final RegexPatternCache PATTERN_CACHE = new RegexPatternCache(PATTERN_CACHE_MAX_SIZE);
 
     // A very primitive way to test if string is *maybe* a regex pattern, instead of compiling a Pattern
     @VisibleForTesting
@@ -34,52 +38,69 @@ enum RegexParser {
             quote("?")));
 
     void compilePatternAndCache(final String value) {
-        compilePatternAndCache(value, Pattern.MULTILINE);
+        if (SPECIAL_REGEX_CHARS.matcher(value).matches()) {
+            PATTERN_CACHE.get(value, Pattern.MULTILINE);
+        }
     }
 
-    private void compilePatternAndCache(final String value, final int flags) {
-        try {
-            if (SPECIAL_REGEX_CHARS.matcher(value).matches()) {
-                PATTERN_CACHE.computeIfAbsent(value.hashCode(), hashCode -> Pattern.compile(value, flags));
-            }
-        } catch (final PatternSyntaxException e) {
-            // We could not compile, probably because of some characters that are special for Pattern
-            compilePatternAndCache(value, Pattern.LITERAL | Pattern.MULTILINE);
+    /**
+     * Resolves the {@link Pattern} of a stubbed value once, so it can be held by the stub itself. Only values that
+     * look like regex patterns go through the shared cache, plain values are compiled privately for their stub.
+     */
+    Pattern compile(final String value) {
+        if (SPECIAL_REGEX_CHARS.matcher(value).matches()) {
+            return PATTERN_CACHE.get(value, Pattern.MULTILINE);
         }
+        return RegexPatternCache.compile(value, Pattern.MULTILINE);
+    }
+
+    Map<String, Long> getPatternCacheStats() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) PATTERN_CACHE.size());
+        stats.put("hits", PATTERN_CACHE.getHits());
+        stats.put("misses", PATTERN_CACHE.getMisses());
+        stats.put("evictions", PATTERN_CACHE.getEvictions());
+
+        return stats;
     }
 
-    boolean match(final String patternCandidate, final String subject, final String templateTokenName, final Map<String, String> regexGroups) {
+    boolean match(final String patternCandidate, final String subject, final String templateTokenName, final Map<String, MatchResult> regexMatchResults) {
         // Pattern.MULTILINE changes the behavior of '^' and '$' characters,
         // it does not mean that newline feeds and carriage return will be matched by default
         // You need to make sure that you regex pattern covers both \r (carriage return) and \n (linefeed).
         // It is achievable by using symbol '\s+' which covers both \r (carriage return) and \n (linefeed).
-        return match(patternCandidate, subject, templateTokenName, regexGroups, Pattern.MULTILINE);
+        return match(PATTERN_CACHE.get(patternCandidate, Pattern.MULTILINE), subject, templateTokenName, regexMatchResults);
     }
 
-    private boolean match(final String patternCandidate, final String subject, final String templateTokenName, final Map<String, String> regexGroups, final int flags) {
-        try {
-            final Pattern pattern = PATTERN_CACHE.computeIfAbsent(
-                    patternCandidate.hashCode(), hashCode -> Pattern.compile(patternCandidate, flags));
-
-            final Matcher matcher = pattern.matcher(subject);
-            final boolean isMatch = matcher.matches();
-            if (isMatch) {
-                // group(0) holds the full regex matchStubByIndex
-                regexGroups.put(buildToken(templateTokenName, 0), matcher.group(0));
-
-                //Matcher.groupCount() returns the number of explicitly defined capturing groups in the pattern regardless
-                // of whether the capturing groups actually participated in the matchStubByIndex. It does not include matcher.group(0)
-                final int groupCount = matcher.groupCount();
-                if (groupCount > 0) {
-                    for (int idx = 1; idx <= groupCount; idx++) {
-                        regexGroups.put(buildToken(templateTokenName, idx), matcher.group(idx));
-                    }
-                }
+    /**
+     * Only the {@link MatchResult} of a successful match is kept under its template token name. The capturing groups
+     * are turned into template token values by {@link #toRegexGroups(Map)} only if the stubbed response needs them.
+     */
+    boolean match(final Pattern pattern, final String subject, final String templateTokenName, final Map<String, MatchResult> regexMatchResults) {
+        final Matcher matcher = pattern.matcher(subject);
+        final boolean isMatch = matcher.matches();
+        if (isMatch) {
+            regexMatchResults.put(templateTokenName, matcher.toMatchResult());
+        }
+        return isMatch;
+    }
+
+    Map<String, String> toRegexGroups(final Map<String, MatchResult> regexMatchResults) {
+        final Map<String, String> regexGroups = new TreeMap<>();
+        for (final Map.Entry<String, MatchResult> entry : regexMatchResults.entrySet()) {
+            final String templateTokenName = entry.getKey();
+            final MatchResult matchResult = entry.getValue();
+
+            // group(0) holds the full regex match
+            regexGroups.put(buildToken(templateTokenName, 0), matchResult.group(0));
+
+            //MatchResult.groupCount() returns the number of explicitly defined capturing groups in the pattern regardless
+            // of whether the capturing groups actually participated in the match. It does not include group(0)
+            final int groupCount = matchResult.groupCount();
+            for (int idx = 1; idx <= groupCount; idx++) {
+                regexGroups.put(buildToken(templateTokenName, idx), matchResult.group(idx));
             }
-            return isMatch;
-        } catch (final PatternSyntaxException e) {
-            // We could not compile, probably because of some characters that are special for Pattern
-            return match(patternCandidate, subject, templateTokenName, regexGroups, Pattern.LITERAL | Pattern.MULTILINE);
         }
+        return regexGroups;
     }
 }
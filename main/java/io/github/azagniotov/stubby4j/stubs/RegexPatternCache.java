@@ -0,0 +1,147 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A bounded cache of compiled {@link Pattern patterns}, keyed on the full pattern string and its compile flags.
+ * <p>
+ * Lookups are lock-free: every entry records the tick of its last access, and when the cache grows over its
+ * maximum size the least recently used entries are evicted. Eviction only happens when a new pattern is compiled,
+ * which after the stubs are loaded is rare, so the O(n) scan for the least recently used entry stays off the hot path.
+ */
+final class RegexPatternCache {
+
+    private final int maxSize;
+    private final ConcurrentHashMap<PatternKey, CachedPattern> cache;
+    private final AtomicLong clock;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    RegexPatternCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>();
+        this.clock = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * @return the cached {@link Pattern}, compiling it first if needed. A value that cannot be compiled with the
+     * given flags, probably because of some characters that are special for {@link Pattern}, is compiled as
+     * {@link Pattern#LITERAL} and cached under the requested flags, so it does not fail to compile on every lookup
+     */
+    Pattern get(final String value, final int flags) {
+        final PatternKey key = new PatternKey(value, flags);
+        final CachedPattern cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            cached.lastAccessed = clock.incrementAndGet();
+            return cached.pattern;
+        }
+
+        misses.increment();
+        final CachedPattern compiled = new CachedPattern(compile(value, flags), clock.incrementAndGet());
+        final CachedPattern existing = cache.putIfAbsent(key, compiled);
+        if (existing != null) {
+            return existing.pattern;
+        }
+        if (cache.size() > maxSize) {
+            evictLeastRecentlyUsed();
+        }
+
+        return compiled.pattern;
+    }
+
+    boolean contains(final String value, final int flags) {
+        return cache.containsKey(new PatternKey(value, flags));
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    private synchronized void evictLeastRecentlyUsed() {
+        while (cache.size() > maxSize) {
+            Map.Entry<PatternKey, CachedPattern> eldest = null;
+            for (final Map.Entry<PatternKey, CachedPattern> entry : cache.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccessed < eldest.getValue().lastAccessed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (cache.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    static Pattern compile(final String value, final int flags) {
+        try {
+            return Pattern.compile(value, flags);
+        } catch (final PatternSyntaxException e) {
+            return Pattern.compile(value, Pattern.LITERAL | flags);
+        }
+    }
+
+    private static final class CachedPattern {
+        private final Pattern pattern;
+        private volatile long lastAccessed;
+
+        private CachedPattern(final Pattern pattern, final long lastAccessed) {
+            this.pattern = pattern;
+            this.lastAccessed = lastAccessed;
+        }
+    }
+
+    private static final class PatternKey {
+        private final String value;
+        private final int flags;
+
+        private PatternKey(final String value, final int flags) {
+            this.value = value;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof PatternKey)) {
+                return false;
+            }
+            final PatternKey that = (PatternKey) o;
+            return flags == that.flags && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * value.hashCode() + flags;
+        }
+    }
+}
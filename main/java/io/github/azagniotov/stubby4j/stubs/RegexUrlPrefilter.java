@@ -0,0 +1,245 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static io.github.azagniotov.stubby4j.stubs.UrlSegmentTrie.hasTopLevelAlternation;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * Pre-filters regex {@link StubRequest#getUri() url} stubs before their {@link Pattern patterns} are evaluated.
+ * <p>
+ * For every stubbed regex URL, the longest literal that any URL matched by that regex must contain is extracted
+ * (e.g. {@code ^/api/v1/users/[0-9]+/orders$} requires {@code /api/v1/users/}). All required literals are compiled
+ * into a single Aho–Corasick automaton, so one pass over the incoming URL tells which stubs can possibly match it.
+ * Stubs without a required literal are always reported as possible matches. The full {@link Pattern} evaluation
+ * with capturing groups only has to run on the stubs that passed the filter.
+ */
+final class RegexUrlPrefilter {
+
+    private static final int ROOT_STATE = 0;
+    // Escapes followed by a variable-length payload, e.g.: \x41, \u0041, \p{Lu}, \k<name> or back references
+    private static final String MULTI_CHARACTER_ESCAPES = "xuUcpPkN0123456789";
+
+    private final BitSet unconditionalPositions;
+    private final List<Map<Character, Integer>> transitions;
+    private final List<List<Integer>> outputPositions;
+    private int[] failureLinks;
+
+    RegexUrlPrefilter() {
+        this.unconditionalPositions = new BitSet();
+        this.transitions = new ArrayList<>();
+        this.outputPositions = new ArrayList<>();
+        this.failureLinks = new int[0];
+        newState();
+    }
+
+    void add(final String stubbedUri, final int position) {
+        final String requiredLiteral = requiredLiteral(stubbedUri);
+        if (isNotSet(requiredLiteral)) {
+            unconditionalPositions.set(position);
+            return;
+        }
+
+        int state = ROOT_STATE;
+        for (int idx = 0; idx < requiredLiteral.length(); idx++) {
+            final Character character = requiredLiteral.charAt(idx);
+            Integer nextState = transitions.get(state).get(character);
+            if (nextState == null) {
+                nextState = newState();
+                transitions.get(state).put(character, nextState);
+            }
+            state = nextState;
+        }
+        outputPositions.get(state).add(position);
+    }
+
+    /**
+     * Computes the failure links of the automaton. Must be called once, after all stubbed URLs were added.
+     */
+    void compile() {
+        failureLinks = new int[transitions.size()];
+
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (final Integer state : transitions.get(ROOT_STATE).values()) {
+            failureLinks[state] = ROOT_STATE;
+            queue.add(state);
+        }
+
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            for (final Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+                final int nextState = transition.getValue();
+                failureLinks[nextState] = nextState(failureLinks[state], transition.getKey());
+                // A state reports the literals of its failure state too, since they are suffixes of its own literal
+                outputPositions.get(nextState).addAll(outputPositions.get(failureLinks[nextState]));
+                queue.add(nextState);
+            }
+        }
+    }
+
+    /**
+     * @param assertingUri incoming URL path
+     * @return positions of the stubs that can possibly match the incoming URL
+     */
+    BitSet possibleMatches(final String assertingUri) {
+        final BitSet possibleMatches = (BitSet) unconditionalPositions.clone();
+        if (isNotSet(assertingUri)) {
+            return possibleMatches;
+        }
+
+        int state = ROOT_STATE;
+        for (int idx = 0; idx < assertingUri.length(); idx++) {
+            state = nextState(state, assertingUri.charAt(idx));
+            for (final Integer position : outputPositions.get(state)) {
+                possibleMatches.set(position);
+            }
+        }
+
+        return possibleMatches;
+    }
+
+    /**
+     * Extracts the longest literal that every string matched by the given regex must contain. The extraction is
+     * conservative: escapes, character classes, groups and optional characters all end the current literal run,
+     * and patterns with top-level alternation, inline flags or quoting have no required literal at all.
+     *
+     * @return the required literal, or {@code null} if none could be determined
+     */
+    @VisibleForTesting
+    static String requiredLiteral(final String pattern) {
+        if (isNotSet(pattern) || pattern.contains("\\Q") || pattern.contains("(?") || hasTopLevelAlternation(pattern)) {
+            return null;
+        }
+        try {
+            Pattern.compile(pattern);
+        } catch (final PatternSyntaxException e) {
+            // Stubbed value will be matched as Pattern.LITERAL or using String.equals()
+            return null;
+        }
+
+        String longest = "";
+        final StringBuilder run = new StringBuilder();
+        for (int idx = 0; idx < pattern.length(); idx++) {
+            final char character = pattern.charAt(idx);
+            switch (character) {
+                case '?':
+                case '*':
+                case '{':
+                    // The previous character is optional (or repeated an unknown number of times)
+                    if (run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    longest = longestOf(longest, run);
+                    if (character == '{') {
+                        final int closingIdx = pattern.indexOf('}', idx);
+                        idx = closingIdx < 0 ? pattern.length() : closingIdx;
+                    }
+                    break;
+                case '+':
+                    longest = longestOf(longest, run);
+                    break;
+                case '\\':
+                    if (idx + 1 < pattern.length() && MULTI_CHARACTER_ESCAPES.indexOf(pattern.charAt(idx + 1)) >= 0) {
+                        return null;
+                    }
+                    longest = longestOf(longest, run);
+                    idx++;
+                    break;
+                case '[':
+                    longest = longestOf(longest, run);
+                    idx = skipCharacterClass(pattern, idx);
+                    break;
+                case '(':
+                    longest = longestOf(longest, run);
+                    idx = skipGroup(pattern, idx);
+                    break;
+                case '^':
+                case '$':
+                case '.':
+                    longest = longestOf(longest, run);
+                    break;
+                default:
+                    run.append(character);
+            }
+        }
+        longest = longestOf(longest, run);
+
+        return longest.isEmpty() ? null : longest;
+    }
+
+    private int newState() {
+        transitions.add(new HashMap<>());
+        outputPositions.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    private int nextState(int state, final char character) {
+        while (true) {
+            final Integer nextState = transitions.get(state).get(character);
+            if (nextState != null) {
+                return nextState;
+            } else if (state == ROOT_STATE) {
+                return ROOT_STATE;
+            }
+            state = failureLinks[state];
+        }
+    }
+
+    private static String longestOf(final String longest, final StringBuilder run) {
+        final String candidate = run.toString();
+        run.setLength(0);
+        return candidate.length() > longest.length() ? candidate : longest;
+    }
+
+    private static int skipCharacterClass(final String pattern, final int openingIdx) {
+        int idx = openingIdx + 1;
+        if (idx < pattern.length() && pattern.charAt(idx) == '^') {
+            idx++;
+        }
+        // A closing bracket right after the opening one is a literal, e.g.: []abc] or [^]abc]
+        if (idx < pattern.length() && pattern.charAt(idx) == ']') {
+            idx++;
+        }
+
+        int depth = 1;
+        for (; idx < pattern.length(); idx++) {
+            final char character = pattern.charAt(idx);
+            if (character == '\\') {
+                idx++;
+            } else if (character == '[') {
+                depth++;
+            } else if (character == ']' && --depth == 0) {
+                return idx;
+            }
+        }
+        return pattern.length();
+    }
+
+    private static int skipGroup(final String pattern, final int openingIdx) {
+        int depth = 0;
+        for (int idx = openingIdx; idx < pattern.length(); idx++) {
+            final char character = pattern.charAt(idx);
+            if (character == '\\') {
+                idx++;
+            } else if (character == '[') {
+                idx = skipCharacterClass(pattern, idx);
+            } else if (character == '(') {
+                depth++;
+            } else if (character == ')' && --depth == 0) {
+                return idx;
+            }
+        }
+        return pattern.length();
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identifies an incoming {@link StubRequest} by everything that stub matching can look at: HTTP methods, URL path,
+ * the values of the headers and query params that any loaded stub references, and the post body.
+ * <p>
+ * Two incoming requests with equal fingerprints are matched to the same stub (or to no stub at all) by the same
+ * {@link StubsSnapshot}, which makes the fingerprint a safe key for caching match results. The post body is kept
+ * as its length and a 64-bit hash only, so cached keys do not hold on to large request payloads. When none of the
+ * stubs that the request is routed to matches on a post body, the post body is left out, so that the incoming body
+ * is never read.
+ */
+final class RequestFingerprint {
+
+    private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
+    private final HttpMethodSet methods;
+    private final String uri;
+    private final String[] headerValues;
+    private final String[] queryValues;
+    private final int postBodyLength;
+    private final long postBodyHash;
+    private final int hashCode;
+
+    private RequestFingerprint(final StubRequest assertingRequest, final String[] headerKeys, final String[] queryKeys, final boolean includePostBody) {
+        this.methods = assertingRequest.getMethodSet();
+        this.uri = assertingRequest.getUri();
+        this.headerValues = valuesOf(assertingRequest.getHeaders(), headerKeys);
+        this.queryValues = valuesOf(assertingRequest.getQuery(), queryKeys);
+
+        final String postBody = includePostBody ? assertingRequest.getPostBody() : null;
+        this.postBodyLength = postBody == null ? -1 : postBody.length();
+        this.postBodyHash = fnv64(postBody);
+
+        int result = Objects.hashCode(methods);
+        result = 31 * result + Objects.hashCode(uri);
+        result = 31 * result + Arrays.hashCode(headerValues);
+        result = 31 * result + Arrays.hashCode(queryValues);
+        result = 31 * result + postBodyLength;
+        result = 31 * result + Long.hashCode(postBodyHash);
+        this.hashCode = result;
+    }
+
+    /**
+     * @param headerKeys      lower-cased header names referenced by the loaded stubs, in a fixed order
+     * @param queryKeys       query param names referenced by the loaded stubs, in a fixed order
+     * @param includePostBody false if none of the stubs that the request is routed to matches on a post body
+     */
+    static RequestFingerprint of(final StubRequest assertingRequest, final String[] headerKeys, final String[] queryKeys, final boolean includePostBody) {
+        return new RequestFingerprint(assertingRequest, headerKeys, queryKeys, includePostBody);
+    }
+
+    /**
+     * @return true if a non-empty post body is part of the fingerprint, which then only tells bodies apart by their hash
+     */
+    boolean hasPostBody() {
+        return postBodyLength > 0;
+    }
+
+    private static String[] valuesOf(final Map<String, String> mappings, final String[] keys) {
+        final String[] values = new String[keys.length];
+        for (int idx = 0; idx < keys.length; idx++) {
+            final String value = mappings.get(keys[idx]);
+            // A missing key stays null, while a present key without a value matches exactly like an empty one
+            values[idx] = value == null && mappings.containsKey(keys[idx]) ? "" : value;
+        }
+        return values;
+    }
+
+    private static long fnv64(final String value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = FNV_64_OFFSET_BASIS;
+        for (int idx = 0; idx < value.length(); idx++) {
+            hash ^= value.charAt(idx);
+            hash *= FNV_64_PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof RequestFingerprint)) {
+            return false;
+        }
+        final RequestFingerprint that = (RequestFingerprint) o;
+        return hashCode == that.hashCode &&
+                postBodyLength == that.postBodyLength &&
+                postBodyHash == that.postBodyHash &&
+                Objects.equals(methods, that.methods) &&
+                Objects.equals(uri, that.uri) &&
+                Arrays.equals(headerValues, that.headerValues) &&
+                Arrays.equals(queryValues, that.queryValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
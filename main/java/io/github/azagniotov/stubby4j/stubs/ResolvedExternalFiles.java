@@ -0,0 +1,64 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The files that a response with a templated file path resolved to, so that their content is loaded into the
+ * {@link FileContentStore} once rather than read and normalized on every request.
+ * <p>
+ * Files are keyed on their {@link ExternalFile#getRegistryKey() canonical path, last modification time and size}, so a
+ * file that changed on disk is loaded anew, while its previous version is left to be evicted. At most
+ * {@link #MAX_FILES} files are kept, the least recently used are evicted first.
+ */
+final class ResolvedExternalFiles {
+
+    static final int MAX_FILES = 256;
+
+    private final Map<String, ExternalFile> files;
+
+    ResolvedExternalFiles() {
+        this.files = new LinkedHashMap<String, ExternalFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, ExternalFile> eldest) {
+                return size() > MAX_FILES;
+            }
+        };
+    }
+
+    /**
+     * @return the {@link ExternalFile} of the given file as it is on disk now, the same instance for as long as the
+     * file does not change and is not evicted
+     */
+    ExternalFile resolve(final File file) throws IOException {
+        final String registryKey = ExternalFile.of(file).getRegistryKey();
+        synchronized (files) {
+            final ExternalFile resolved = files.get(registryKey);
+            if (resolved != null) {
+                return resolved;
+            }
+        }
+
+        final ExternalFile registered = ExternalFileRegistry.INSTANCE.register(file);
+        synchronized (files) {
+            files.put(registryKey, registered);
+        }
+        return registered;
+    }
+
+    boolean contains(final File file) throws IOException {
+        final String registryKey = ExternalFile.of(file).getRegistryKey();
+        synchronized (files) {
+            return files.containsKey(registryKey);
+        }
+    }
+
+    int size() {
+        synchronized (files) {
+            return files.size();
+        }
+    }
+}
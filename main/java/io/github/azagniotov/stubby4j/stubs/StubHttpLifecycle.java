@@ -97,8 +97,34 @@ public class StubHttpLifecycle implements ReflectableStub {
         return getResponses().get(0).getResourceIDHeader();
     }
 
-    void setResourceId(final int resourceId) {
-        getResponses().forEach(response -> response.addResourceIDHeader(resourceId));
+    /**
+     * @return this stub if its responses already have the given resource ID, otherwise a copy of it whose responses
+     * have the given resource ID, so that a stub is never renumbered under the requests that are still matching
+     * against a previously published {@link StubsSnapshot}
+     */
+    StubHttpLifecycle withResourceId(final int resourceId) {
+        final String resourceIdHeader = String.valueOf(resourceId);
+        final List<StubResponse> responses = getResponses();
+        boolean isRenumbered = false;
+        for (final StubResponse stubResponse : responses) {
+            isRenumbered |= !resourceIdHeader.equals(stubResponse.getResourceIDHeader());
+        }
+        if (!isRenumbered) {
+            return this;
+        }
+
+        final Object renumberedResponse;
+        if (response instanceof StubResponse) {
+            renumberedResponse = ((StubResponse) response).withResourceIDHeader(resourceId);
+        } else {
+            final List<StubResponse> renumberedResponses = new LinkedList<>();
+            responses.forEach(stubResponse -> renumberedResponses.add(stubResponse.withResourceIDHeader(resourceId)));
+            renumberedResponse = renumberedResponses;
+        }
+        final StubHttpLifecycle renumbered = new StubHttpLifecycle(request, renumberedResponse, requestAsYAML, responseAsYAML, completeYAML);
+        renumbered.responseSequencedIdCounter.set(responseSequencedIdCounter.get());
+
+        return renumbered;
     }
 
     /**
@@ -0,0 +1,91 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded cache of match results, keyed on the {@link RequestFingerprint} of the incoming request.
+ * <p>
+ * Both matches and misses are cached, so an incoming request that did not match any stub before does not
+ * pay for comparing it with every candidate stub again. A cached match is always compared with the incoming request
+ * again, while a cached miss is not, so misses are not cached for fingerprints that include a post body: the body is
+ * only kept as a hash there, and a hash collision would otherwise turn into a lasting false miss.
+ * <p>
+ * Lookups are lock-free. Updates are rare next to lookups, and are serialized so that the insertion order stays in
+ * step with the cached entries. When the cache grows over its maximum size, the oldest entries are evicted first.
+ * A cache belongs to a single {@link StubsSnapshot}.
+ */
+final class StubMatchCache {
+
+    private static final CachedMatch NO_MATCH = new CachedMatch(null);
+
+    private final int maxSize;
+    private final ConcurrentHashMap<RequestFingerprint, CachedMatch> cache;
+    // Guarded by itself
+    private final LinkedHashSet<RequestFingerprint> insertionOrder;
+
+    StubMatchCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>();
+        this.insertionOrder = new LinkedHashSet<>();
+    }
+
+    /**
+     * @return the cached match result, or {@code null} if there is none for the given fingerprint
+     */
+    CachedMatch get(final RequestFingerprint fingerprint) {
+        return cache.get(fingerprint);
+    }
+
+    void putMatch(final RequestFingerprint fingerprint, final StubHttpLifecycle matchedStub) {
+        put(fingerprint, new CachedMatch(matchedStub));
+    }
+
+    void putNoMatch(final RequestFingerprint fingerprint) {
+        if (!fingerprint.hasPostBody()) {
+            put(fingerprint, NO_MATCH);
+        }
+    }
+
+    void remove(final RequestFingerprint fingerprint) {
+        synchronized (insertionOrder) {
+            cache.remove(fingerprint);
+            insertionOrder.remove(fingerprint);
+        }
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private void put(final RequestFingerprint fingerprint, final CachedMatch cachedMatch) {
+        synchronized (insertionOrder) {
+            cache.put(fingerprint, cachedMatch);
+            insertionOrder.add(fingerprint);
+
+            final Iterator<RequestFingerprint> eldest = insertionOrder.iterator();
+            while (cache.size() > maxSize && eldest.hasNext()) {
+                cache.remove(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    static final class CachedMatch {
+        private final StubHttpLifecycle matchedStub;
+
+        private CachedMatch(final StubHttpLifecycle matchedStub) {
+            this.matchedStub = matchedStub;
+        }
+
+        boolean isNoMatch() {
+            return matchedStub == null;
+        }
+
+        StubHttpLifecycle getMatchedStub() {
+            return matchedStub;
+        }
+    }
+}
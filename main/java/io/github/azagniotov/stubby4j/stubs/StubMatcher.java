@@ -1,185 +1,174 @@
 package io.github.azagniotov.stubby4j.stubs;
 
 
-import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 import io.github.azagniotov.stubby4j.cli.ANSITerminal;
 import io.github.azagniotov.stubby4j.common.Common;
-import org.custommonkey.xmlunit.Diff;
-import org.custommonkey.xmlunit.ElementNameAndAttributeQualifier;
-import org.json.JSONException;
-import org.skyscreamer.jsonassert.JSONCompare;
-import org.skyscreamer.jsonassert.JSONCompareMode;
-import org.xml.sax.SAXException;
-
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
+
 import java.util.Map;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
 
-import static io.github.azagniotov.stubby4j.utils.StringUtils.escapeSpecialRegexCharacters;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.URL;
 
 class StubMatcher {
 
-    private final Map<String, String> regexGroups;
+    private final Map<String, MatchResult> regexMatchResults;
 
-    StubMatcher(final Map<String, String> regexGroups) {
-        this.regexGroups = regexGroups;
+    StubMatcher(final Map<String, MatchResult> regexMatchResults) {
+        this.regexMatchResults = regexMatchResults;
     }
 
     boolean matches(final StubRequest stubbedRequest, final StubRequest assertingRequest) {
-        if (!urlsMatch(stubbedRequest.getUri(), assertingRequest.getUri())) {
-            ANSITerminal.error(String.format("Failed to match on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri()));
+        final CompiledStubRequest compiledRequest = stubbedRequest.getCompiledRequest();
+        // Checked once, so that a muted or INFO level console does not pay for building the diagnostics below
+        final boolean isTraceEnabled = ANSITerminal.isTraceEnabled();
+        // Null unless match tracing is enabled, in which case every check below is timed
+        final MatchTrace matchTrace = assertingRequest.getMatchTrace();
+
+        long startNanos = startTiming(matchTrace);
+        final boolean urlsMatch = stringsMatch(compiledRequest.getUrl(), compiledRequest.getUrlPattern(), assertingRequest.getUri(), URL.toString());
+        stopTiming(matchTrace, MatchCriterion.URL, startNanos);
+        if (!urlsMatch) {
+            if (isTraceEnabled) {
+                ANSITerminal.error("Failed to match on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri());
+            }
             return false;
         }
-        ANSITerminal.info(String.format("Matched on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri()));
+        if (isTraceEnabled) {
+            ANSITerminal.info("Matched on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri());
+        }
 
-        if (!listsIntersect(stubbedRequest.getMethod(), assertingRequest.getMethod())) {
-            ANSITerminal.error(String.format("Failed to match on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod()));
+        startNanos = startTiming(matchTrace);
+        final boolean methodsMatch = compiledRequest.acceptsAnyMethodOf(assertingRequest.getMethodSet());
+        stopTiming(matchTrace, MatchCriterion.METHOD, startNanos);
+        if (!methodsMatch) {
+            if (isTraceEnabled) {
+                ANSITerminal.error("Failed to match on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod());
+            }
             return false;
         }
-        ANSITerminal.info(String.format("Matched on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod()));
+        if (isTraceEnabled) {
+            ANSITerminal.info("Matched on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod());
+        }
 
-        if (!postBodiesMatch(stubbedRequest.isPostStubbed(), stubbedRequest.getPostBody(), assertingRequest)) {
-            ANSITerminal.error(String.format("Failed to match on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody()));
+        final Map<String, String> assertingHeaders = assertingRequest.getHeaders();
+        startNanos = startTiming(matchTrace);
+        final boolean postBodiesMatch = postBodiesMatch(compiledRequest, assertingRequest, assertingHeaders);
+        stopTiming(matchTrace, MatchCriterion.POST, startNanos);
+        if (!postBodiesMatch) {
+            if (isTraceEnabled) {
+                ANSITerminal.error("Failed to match on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody());
+            }
             return false;
         }
-        ANSITerminal.info(String.format("Matched on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody()));
+        if (isTraceEnabled) {
+            ANSITerminal.info("Matched on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody());
+        }
 
-        if (!headersMatch(stubbedRequest.getHeaders(), assertingRequest.getHeaders())) {
-            ANSITerminal.error(String.format("Failed to match on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingRequest.getHeaders()));
+        startNanos = startTiming(matchTrace);
+        final boolean headersMatch = mappingsMatch(compiledRequest.getHeaders(), assertingHeaders);
+        stopTiming(matchTrace, MatchCriterion.HEADERS, startNanos);
+        if (!headersMatch) {
+            if (isTraceEnabled) {
+                ANSITerminal.error("Failed to match on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingHeaders);
+            }
             return false;
         }
-        ANSITerminal.info(String.format("Matched on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingRequest.getHeaders()));
+        if (isTraceEnabled) {
+            ANSITerminal.info("Matched on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingHeaders);
+        }
 
-        if (!queriesMatch(stubbedRequest.getQuery(), assertingRequest.getQuery())) {
-            ANSITerminal.error(String.format("Failed to match on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery()));
+        startNanos = startTiming(matchTrace);
+        final boolean queriesMatch = mappingsMatch(compiledRequest.getQuery(), assertingRequest.getQuery());
+        stopTiming(matchTrace, MatchCriterion.QUERY, startNanos);
+        if (!queriesMatch) {
+            if (isTraceEnabled) {
+                ANSITerminal.error("Failed to match on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery());
+            }
             return false;
         }
-        ANSITerminal.info(String.format("Matched on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery()));
+        if (isTraceEnabled) {
+            ANSITerminal.info("Matched on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery());
+        }
 
         return true;
     }
 
-    private boolean urlsMatch(final String stubbedUrl, final String assertingUrl) {
-        return stringsMatch(stubbedUrl, assertingUrl, URL.toString());
+    private static long startTiming(final MatchTrace matchTrace) {
+        return matchTrace == null ? 0L : System.nanoTime();
+    }
+
+    private static void stopTiming(final MatchTrace matchTrace, final MatchCriterion criterion, final long startNanos) {
+        if (matchTrace != null) {
+            matchTrace.recordCriterion(criterion, startNanos);
+        }
     }
 
-    private boolean postBodiesMatch(final boolean isPostStubbed, final String stubbedPostBody, final StubRequest assertingRequest) {
-        final String assertingPostBody = assertingRequest.getPostBody();
-        if (isPostStubbed) {
-            final String assertingContentType = assertingRequest.getHeaders().get("content-type");
+    private boolean postBodiesMatch(final CompiledStubRequest compiledRequest, final StubRequest assertingRequest, final Map<String, String> assertingHeaders) {
+        if (compiledRequest.isPostStubbed()) {
+            final String stubbedPostBody = compiledRequest.getPostBody();
+            final String assertingPostBody = assertingRequest.getPostBody();
+            final String assertingContentType = assertingHeaders.get("content-type");
             if (isNotSet(assertingPostBody)) {
                 return false;
             } else if (isSet(assertingContentType) && assertingContentType.contains(Common.HEADER_APPLICATION_JSON)) {
-                return jsonMatch(stubbedPostBody, assertingPostBody);
+                return jsonMatch(compiledRequest, assertingRequest, assertingPostBody);
             } else if (isSet(assertingContentType) && assertingContentType.contains(Common.HEADER_APPLICATION_XML)) {
-                return xmlMatch(stubbedPostBody, assertingPostBody);
+                return xmlMatch(compiledRequest, assertingRequest, assertingPostBody);
             } else {
-                return stringsMatch(stubbedPostBody, assertingPostBody, POST.toString());
+                return stringsMatch(stubbedPostBody, compiledRequest.getPostPattern(), assertingPostBody, POST.toString());
             }
         }
 
         return true;
     }
 
-    private boolean queriesMatch(final Map<String, String> stubbedQuery, final Map<String, String> assertingQuery) {
-        return mapsMatch(stubbedQuery, assertingQuery, QUERY.toString());
-    }
-
-    private boolean headersMatch(final Map<String, String> stubbedHeaders, final Map<String, String> assertingHeaders) {
-        final Map<String, String> stubbedHeadersCopy = new HashMap<>(stubbedHeaders);
-        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
-            // auth header is dealt with in StubRepository after request is matched
-            stubbedHeadersCopy.remove(authorizationType.asYAMLProp());
-        }
-        return mapsMatch(stubbedHeadersCopy, assertingHeaders, HEADERS.toString());
-    }
-
-    @VisibleForTesting
-    boolean mapsMatch(final Map<String, String> stubbedMappings, final Map<String, String> assertingMappings, final String mapName) {
+    private boolean mappingsMatch(final CompiledStubRequest.CompiledMapping stubbedMappings, final Map<String, String> assertingMappings) {
         if (stubbedMappings.isEmpty()) {
             return true;
         } else if (assertingMappings.isEmpty()) {
             return false;
         }
 
-        final Map<String, String> stubbedMappingsCopy = new HashMap<>(stubbedMappings);
-        final Map<String, String> assertingMappingsCopy = new HashMap<>(assertingMappings);
-
-        for (final Map.Entry<String, String> stubbedMappingEntry : stubbedMappingsCopy.entrySet()) {
-            final boolean containsRequiredParam = assertingMappingsCopy.containsKey(stubbedMappingEntry.getKey());
-            if (!containsRequiredParam) {
+        for (int idx = 0; idx < stubbedMappings.size(); idx++) {
+            final String key = stubbedMappings.keyAt(idx);
+            if (!assertingMappings.containsKey(key)) {
+                return false;
+            }
+            if (!stringsMatch(stubbedMappings.valueAt(idx), stubbedMappings.patternAt(idx), assertingMappings.get(key), stubbedMappings.templateTokenNameAt(idx))) {
                 return false;
-            } else {
-                final String assertingValue = assertingMappingsCopy.get(stubbedMappingEntry.getKey());
-                final String templateTokenName = String.format("%s.%s", mapName, stubbedMappingEntry.getKey());
-
-                if (!stringsMatch(stubbedMappingEntry.getValue(), assertingValue, templateTokenName)) {
-                    return false;
-                }
             }
         }
 
         return true;
     }
 
-    @VisibleForTesting
-    boolean stringsMatch(final String stubbedValue, final String assertingValue, final String templateTokenName) {
+    private boolean stringsMatch(final String stubbedValue, final Pattern stubbedPattern, final String assertingValue, final String templateTokenName) {
         if (isNotSet(stubbedValue)) {
             return true;
         } else if (isNotSet(assertingValue)) {
             return false;
         }
-        return regexMatch(stubbedValue, assertingValue, templateTokenName) || stubbedValue.equals(assertingValue);
-    }
-
-    private boolean regexMatch(final String stubbedValue, final String assertingValue, final String templateTokenName) {
-        return RegexParser.INSTANCE.match(stubbedValue, assertingValue, templateTokenName, regexGroups);
+        return RegexParser.INSTANCE.match(stubbedPattern, assertingValue, templateTokenName, regexMatchResults) || stubbedValue.equals(assertingValue);
     }
 
-    @VisibleForTesting
-    boolean listsIntersect(final List<String> stubbedArray, final List<String> assertingArray) {
-        if (stubbedArray.isEmpty()) {
+    private boolean jsonMatch(final CompiledStubRequest compiledRequest, final StubRequest assertingRequest, final String assertingJson) {
+        // Both bodies were parsed at most once, and their structural hashes reject most mismatches before a deep compare
+        if (compiledRequest.getPostJson().matches(assertingRequest.getParsedPostJson())) {
             return true;
-        } else if (!assertingArray.isEmpty()) {
-            for (final String entry : assertingArray) {
-                if (stubbedArray.contains(entry)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean jsonMatch(final String stubbedJson, final String assertingJson) {
-        try {
-            boolean passed = JSONCompare.compareJSON(stubbedJson, assertingJson, JSONCompareMode.NON_EXTENSIBLE).passed();
-            if (passed) {
-                return true;
-            } else {
-                final String escapedStubbedPostBody = escapeSpecialRegexCharacters(stubbedJson);
-                return stringsMatch(escapedStubbedPostBody, assertingJson, POST.toString());
-            }
-        } catch (final JSONException e) {
-            final String escapedStubbedPostBody = escapeSpecialRegexCharacters(stubbedJson);
-            return stringsMatch(escapedStubbedPostBody, assertingJson, POST.toString());
         }
+        return stringsMatch(compiledRequest.getPostJsonFallback(), compiledRequest.getPostJsonFallbackPattern(), assertingJson, POST.toString());
     }
 
-    private boolean xmlMatch(final String stubbedXml, final String assertingXml) {
-        try {
-            final Diff diff = new Diff(stubbedXml, assertingXml);
-            diff.overrideElementQualifier(new ElementNameAndAttributeQualifier());
-
-            return (diff.similar() || diff.identical());
-        } catch (SAXException | IOException e) {
-            return stringsMatch(stubbedXml, assertingXml, POST.toString());
+    private boolean xmlMatch(final CompiledStubRequest compiledRequest, final StubRequest assertingRequest, final String assertingXml) {
+        final ParsedXmlBody stubbedXmlBody = compiledRequest.getPostXml();
+        final ParsedXmlBody assertingXmlBody = assertingRequest.getParsedPostXml();
+        if (stubbedXmlBody.isParsable() && assertingXmlBody.isParsable()) {
+            return stubbedXmlBody.matches(assertingXmlBody);
         }
+        return stringsMatch(compiledRequest.getPostBody(), compiledRequest.getPostPattern(), assertingXml, POST.toString());
     }
 }
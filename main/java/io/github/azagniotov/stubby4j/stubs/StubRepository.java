@@ -13,7 +13,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -32,54 +31,62 @@ import static io.github.azagniotov.stubby4j.stubs.StubResponse.unauthorizedRespo
 import static io.github.azagniotov.stubby4j.utils.CollectionUtils.constructParamMap;
 import static io.github.azagniotov.stubby4j.utils.ConsoleUtils.logAssertingRequest;
 import static io.github.azagniotov.stubby4j.utils.HandlerUtils.extractPostRequestBody;
-import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
 import static io.github.azagniotov.stubby4j.utils.ReflectionUtils.injectObjectFields;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
-import static java.util.Collections.list;
 
 public class StubRepository {
 
     private final File configFile;
-    private final List<StubHttpLifecycle> stubs;
     private final Future<List<StubHttpLifecycle>> stubLoadComputation;
     private final StubbyHttpTransport stubbyHttpTransport;
     private final ConcurrentHashMap<String, AtomicLong> resourceStats;
-    private final ConcurrentHashMap<String, StubHttpLifecycle> matchedStubsCache;
+    private volatile StubsSnapshot snapshot;
+    private volatile ParallelStubMatcher parallelStubMatcher;
+    private volatile MatchTraceStats matchTraceStats;
 
     public StubRepository(final File configFile, final Future<List<StubHttpLifecycle>> stubLoadComputation) {
-        this.stubs = new ArrayList<>();
+        this.snapshot = StubsSnapshot.empty();
         this.configFile = configFile;
         this.stubLoadComputation = stubLoadComputation;
         this.stubbyHttpTransport = new StubbyHttpTransport();
         this.resourceStats = new ConcurrentHashMap<>();
-        this.matchedStubsCache = new ConcurrentHashMap<>();
     }
 
     public StubSearchResult search(final HttpServletRequest incomingRequest) throws IOException {
         final StubRequest assertionStubRequest = this.toStubRequest(incomingRequest);
         logAssertingRequest(assertionStubRequest);
 
-        final StubResponse match = findMatch(new StubHttpLifecycle.Builder().withRequest(assertionStubRequest).build());
+        final MatchTraceStats currentMatchTraceStats = this.matchTraceStats;
+        if (ObjectUtils.isNull(currentMatchTraceStats) || !isTraceRequested(incomingRequest)) {
+            final StubResponse match = findMatch(new StubHttpLifecycle.Builder().withRequest(assertionStubRequest).build());
 
-        return new StubSearchResult(assertionStubRequest, match);
-    }
+            return new StubSearchResult(assertionStubRequest, match);
+        }
 
-    public StubRequest toStubRequest(final HttpServletRequest request) throws IOException {
-        final StubRequest.Builder builder = new StubRequest.Builder();
-        builder.withUrl(request.getPathInfo())
-                .withPost(extractPostRequestBody(request, "stubs"))
-                .withMethod(request.getMethod());
+        final MatchTrace matchTrace = new MatchTrace(currentMatchTraceStats);
+        assertionStubRequest.setMatchTrace(matchTrace);
+        final StubResponse match = findMatch(new StubHttpLifecycle.Builder().withRequest(assertionStubRequest).build());
+        matchTrace.finish();
 
-        final Enumeration<String> headerNamesEnumeration = request.getHeaderNames();
-        final List<String> headerNames = isNotNull(headerNamesEnumeration) ? list(request.getHeaderNames()) : new LinkedList<>();
-        for (final String headerName : headerNames) {
-            final String headerValue = request.getHeader(headerName);
+        return new StubSearchResult(assertionStubRequest, match, matchTrace.toHeaderValue());
+    }
 
-            builder.withHeader(toLower(headerName), headerValue);
-        }
+    private static boolean isTraceRequested(final HttpServletRequest incomingRequest) {
+        return Boolean.parseBoolean(incomingRequest.getHeader(StubSearchResult.STUBBY_TRACE_HEADER));
+    }
 
-        return builder.withQuery(constructParamMap(request.getQueryString())).build();
+    /**
+     * Wraps the incoming request into a {@link StubRequest} without copying it: the headers are fetched as stubs look
+     * them up, and the post body is read only once a stub with a post body or a file is compared to the request.
+     */
+    public StubRequest toStubRequest(final HttpServletRequest request) throws IOException {
+        return StubRequest.incoming(request, () -> {
+            try {
+                return extractPostRequestBody(request, "stubs");
+            } catch (final IOException e) {
+                return null;
+            }
+        }, constructParamMap(request.getQueryString()));
     }
 
     private StubResponse findMatch(final StubHttpLifecycle incomingRequest) {
@@ -109,8 +116,9 @@ public class StubRepository {
             try {
                 final StubbyResponse stubbyResponse = stubbyHttpTransport.fetchRecordableHTTPResponse(matchedStub.getRequest(), recordingSource);
                 injectObjectFields(matchedStubResponse, BODY.toString(), stubbyResponse.getContent());
+                matchedStubResponse.onBodyRecorded();
             } catch (Exception e) {
-                ANSITerminal.error(String.format("Could not record from %s: %s", recordingSource, e.toString()));
+                ANSITerminal.error("Could not record from %s: %s", recordingSource, e.toString());
             }
         }
         return matchedStubResponse;
@@ -120,14 +128,24 @@ public class StubRepository {
      * That's the point where the incoming {@link StubHttpLifecycle} that was created from the incoming
      * raw {@link HttpServletRequest request} is matched to the in-memory stubs.
      * <p>
-     * First, the local cache holding previously matched stubs is checked to see if there is a match for the incoming
-     * {@link StubHttpLifecycle request} URI. If the incoming {@link StubHttpLifecycle} URI found in the cache, then the
-     * cached match and the incoming {@link StubHttpLifecycle} are compared to each other to determine a complete
-     * equality based on the {@link StubRequest#equals(Object)}.
+     * Matching does not lock: the current {@link StubsSnapshot} is read once from a volatile reference and the
+     * whole match runs against it, while admin updates and YAML reloads publish a new snapshot instead.
+     * <p>
+     * First, the local cache holding previous match results is checked using the {@link RequestFingerprint} of the
+     * incoming {@link StubHttpLifecycle request}. A cached miss is returned right away, which is why misses are not
+     * cached for requests whose post body is part of the fingerprint. A cached match and the incoming
+     * {@link StubHttpLifecycle} are compared to each other to determine a complete equality based on the
+     * {@link StubRequest#equals(Object)}, which also captures the regex groups of the incoming request.
      * <p>
-     * If a complete equality with the cached {@link StubHttpLifecycle match} was not achieved, the incoming
-     * {@link StubHttpLifecycle request} is compared to every {@link StubHttpLifecycle element} in the list of loaded
-     * stubs.
+     * If there was no cached result, or a complete equality with the cached {@link StubHttpLifecycle match} was not
+     * achieved, the incoming
+     * {@link StubHttpLifecycle request} is compared to every candidate {@link StubHttpLifecycle element} that the
+     * {@link StubsIndex} of the current snapshot returns for the incoming method and URL, in YAML declaration order.
+     * When parallel matching is enabled and there are at least as many candidates as its threshold, the candidates
+     * are matched in chunks on the {@link ParallelStubMatcher} pool instead, which still finds the first-declared match.
+     * <p>
+     * When match tracing is enabled and the incoming request asks for a trace, every candidate evaluation is timed into
+     * the {@link MatchTrace} of the incoming request, and the candidates are always matched sequentially.
      * <p>
      * The {@link List<StubHttpLifecycle>#indexOf(Object)} implicitly invokes {@link StubHttpLifecycle#equals(Object)},
      * which invokes the {@link StubRequest#equals(Object)}.
@@ -139,52 +157,160 @@ public class StubRepository {
      * @see StubRequest#equals(Object)
      * @see StubMatcher#matches(StubRequest, StubRequest)
      */
-    private synchronized Optional<StubHttpLifecycle> matchStub(final StubHttpLifecycle incomingStub) {
-
+    private Optional<StubHttpLifecycle> matchStub(final StubHttpLifecycle incomingStub) {
+
+        final StubsSnapshot currentSnapshot = this.snapshot;
+        final MatchTrace matchTrace = incomingStub.getRequest().getMatchTrace();
+        final StubMatchCache matchCache = currentSnapshot.getMatchCache();
+        // The candidates decide whether the fingerprint needs the post body, which is then read only if one of them
+        // matches on a post body or a file
+        final List<StubHttpLifecycle> candidates = currentSnapshot.candidatesFor(incomingStub.getRequest());
+        final RequestFingerprint fingerprint = currentSnapshot.fingerprintOf(incomingStub.getRequest(), candidates);
         final String incomingRequestUrl = incomingStub.getUrl();
-        if (matchedStubsCache.containsKey(incomingRequestUrl)) {
-            ANSITerminal.loaded(String.format("Local cache contains potential match for the URL [%s]", incomingRequestUrl));
-            final StubHttpLifecycle cachedPotentialMatch = matchedStubsCache.get(incomingRequestUrl);
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(fingerprint);
+        if (cachedMatch != null) {
+            if (cachedMatch.isNoMatch()) {
+                if (ObjectUtils.isNotNull(matchTrace)) {
+                    matchTrace.cachedNoMatch();
+                }
+                if (ANSITerminal.isTraceEnabled()) {
+                    ANSITerminal.loaded("Local cache contains no match for the URL [%s]", incomingRequestUrl);
+                }
+
+                return Optional.empty();
+            }
+            if (ANSITerminal.isTraceEnabled()) {
+                ANSITerminal.loaded("Local cache contains potential match for the URL [%s]", incomingRequestUrl);
+            }
+            final StubHttpLifecycle cachedPotentialMatch = cachedMatch.getMatchedStub();
             // The order(?) in which equality is determined is important here (what object is "equal to" the other one)
-            if (incomingStub.equals(cachedPotentialMatch)) {
-                ANSITerminal.loaded(String.format("Potential match for the URL [%s] was deemed as a full match", incomingRequestUrl));
+            // Matching the cached stub again also captures the regex groups of the incoming request
+            if (matchesCandidate(incomingStub, cachedPotentialMatch, matchTrace)) {
+                if (ObjectUtils.isNotNull(matchTrace)) {
+                    matchTrace.cachedMatch();
+                }
+                if (ANSITerminal.isTraceEnabled()) {
+                    ANSITerminal.loaded("Potential match for the URL [%s] was deemed as a full match", incomingRequestUrl);
+                }
 
                 return Optional.of(cachedPotentialMatch);
             }
-            ANSITerminal.warn(String.format("Cached match for the URL [%s] failed to match fully, invalidating match cache..", incomingRequestUrl));
-            matchedStubsCache.remove(incomingRequestUrl);
+            if (ANSITerminal.isTraceEnabled()) {
+                ANSITerminal.warn("Cached match for the URL [%s] failed to match fully, invalidating match cache..", incomingRequestUrl);
+            }
+            matchCache.remove(fingerprint);
         }
 
         final long initialStart = System.currentTimeMillis();
-        for (final StubHttpLifecycle stubbed : stubs) {
-            if (incomingStub.equals(stubbed)) {
-                final long elapsed = System.currentTimeMillis() - initialStart;
-                ANSITerminal.status(String.format("Found a match after %s milliseconds, caching the found match for URL [%s]", elapsed, incomingRequestUrl));
-                matchedStubsCache.put(incomingRequestUrl, stubbed);
+        final ParallelStubMatcher currentParallelStubMatcher = this.parallelStubMatcher;
+        // A traced request is matched sequentially, so that its timings add up
+        if (ObjectUtils.isNull(matchTrace) && ObjectUtils.isNotNull(currentParallelStubMatcher) && currentParallelStubMatcher.isWorthParallelizing(candidates)) {
+            final int matchIndex = currentParallelStubMatcher.indexOfFirstMatch(incomingStub.getRequest(), candidates);
+            // Matching the found stub again on this thread captures the regex groups of the incoming request
+            if (matchIndex != -1 && incomingStub.equals(candidates.get(matchIndex))) {
+                final StubHttpLifecycle stubbed = candidates.get(matchIndex);
+                if (ANSITerminal.isTraceEnabled()) {
+                    final long elapsed = System.currentTimeMillis() - initialStart;
+                    ANSITerminal.status("Found a match among %s candidates in parallel after %s milliseconds, caching the found match for URL [%s]", candidates.size(), elapsed, incomingRequestUrl);
+                }
+                matchCache.putMatch(fingerprint, stubbed);
 
                 return Optional.of(stubbed);
             }
+            matchCache.putNoMatch(fingerprint);
+
+            return Optional.empty();
         }
 
+        for (final StubHttpLifecycle stubbed : candidates) {
+            if (matchesCandidate(incomingStub, stubbed, matchTrace)) {
+                if (ANSITerminal.isTraceEnabled()) {
+                    final long elapsed = System.currentTimeMillis() - initialStart;
+                    ANSITerminal.status("Found a match after %s milliseconds, caching the found match for URL [%s]", elapsed, incomingRequestUrl);
+                }
+                matchCache.putMatch(fingerprint, stubbed);
+
+                return Optional.of(stubbed);
+            }
+        }
+        matchCache.putNoMatch(fingerprint);
+
         return Optional.empty();
     }
 
-    public synchronized Optional<StubHttpLifecycle> matchStubByIndex(final int index) {
-        if (!canMatchStubByIndex(index)) {
+    private static boolean matchesCandidate(final StubHttpLifecycle incomingStub, final StubHttpLifecycle stubbed, final MatchTrace matchTrace) {
+        if (ObjectUtils.isNull(matchTrace)) {
+            return incomingStub.equals(stubbed);
+        }
+        final long startNanos = matchTrace.startCandidate();
+        final boolean matched = incomingStub.equals(stubbed);
+        matchTrace.endCandidate(stubbed.getResourceId(), startNanos, matched);
+
+        return matched;
+    }
+
+    /**
+     * Turns on parallel matching for requests that the {@link StubsIndex} could not narrow down to less than
+     * the given number of candidate stubs. Smaller candidate lists are still scanned on the request thread.
+     *
+     * @param threshold minimum number of candidate stubs to match in parallel
+     */
+    public synchronized void enableParallelMatching(final int threshold) {
+        disableParallelMatching();
+        this.parallelStubMatcher = new ParallelStubMatcher(threshold, Runtime.getRuntime().availableProcessors());
+    }
+
+    public synchronized void disableParallelMatching() {
+        if (ObjectUtils.isNotNull(this.parallelStubMatcher)) {
+            this.parallelStubMatcher.shutdown();
+            this.parallelStubMatcher = null;
+        }
+    }
+
+    /**
+     * Turns on match tracing: the number of candidate stubs and the time spent on every match criterion are
+     * recorded for incoming requests that carry the {@link StubSearchResult#STUBBY_TRACE_HEADER} header with a value
+     * of 'true', and added up per stub. Other requests are not traced, and still matched in parallel when enabled,
+     * while traced requests are never matched in parallel.
+     * <p>
+     * The per-stub totals are keyed on positional resource IDs, so they start over whenever the stubs change.
+     */
+    public synchronized void enableMatchTracing() {
+        if (ObjectUtils.isNull(this.matchTraceStats)) {
+            this.matchTraceStats = new MatchTraceStats();
+        }
+    }
+
+    public synchronized void disableMatchTracing() {
+        this.matchTraceStats = null;
+    }
+
+    public boolean isMatchTracingEnabled() {
+        return ObjectUtils.isNotNull(this.matchTraceStats);
+    }
+
+    /**
+     * @return the per-stub match timings as JSON, keyed on stub resource IDs, or an empty JSON object if match
+     * tracing is off
+     */
+    public String getMatchTraceStatsAsJson() {
+        final MatchTraceStats currentMatchTraceStats = this.matchTraceStats;
+
+        return ObjectUtils.isNull(currentMatchTraceStats) ? "{}" : currentMatchTraceStats.toJson();
+    }
+
+    public Optional<StubHttpLifecycle> matchStubByIndex(final int index) {
+        final List<StubHttpLifecycle> currentStubs = this.snapshot.getStubs();
+        if (currentStubs.size() - 1 < index) {
             return Optional.empty();
         }
-        return Optional.of(stubs.get(index));
+        return Optional.of(currentStubs.get(index));
     }
 
     synchronized boolean resetStubsCache(final List<StubHttpLifecycle> newStubs) {
-        this.matchedStubsCache.clear();
-        this.stubs.clear();
-        final boolean added = this.stubs.addAll(newStubs);
-        if (added) {
-            this.matchedStubsCache.clear();
-            updateResourceIDHeaders();
-        }
-        return added;
+        publish(this.snapshot.withStubs(newStubs));
+
+        return !newStubs.isEmpty();
     }
 
     public synchronized void refreshStubsFromYAMLConfig(final YAMLParser yamlParser) throws Exception {
@@ -205,7 +331,7 @@ public class StubRepository {
 
     // Just a shallow copy that protects collection from modification, the points themselves are not copied
     public List<StubHttpLifecycle> getStubs() {
-        return new LinkedList<>(stubs);
+        return new LinkedList<>(this.snapshot.getStubs());
     }
 
     // Just a shallow copy that protects collection from modification, the points themselves are not copied
@@ -213,24 +339,32 @@ public class StubRepository {
         return new ConcurrentHashMap<>(resourceStats);
     }
 
+    public Map<String, Long> getRegexPatternCacheStats() {
+        return RegexParser.INSTANCE.getPatternCacheStats();
+    }
+
+    public Map<String, Long> getFileContentStoreStats() {
+        return ExternalFileRegistry.CONTENT_STORE.getStats();
+    }
+
     @CoberturaIgnore
     public String getResourceStatsAsCsv() {
         final String csvNoHeader = resourceStats.toString().replaceAll("\\{|\\}", "").replaceAll(", ", FileUtils.BR).replaceAll("=", ",");
         return String.format("resourceId,hits%s%s", FileUtils.BR, csvNoHeader);
     }
 
-    public synchronized String getOnlyStubRequestUrl() {
-        return stubs.get(0).getUrl();
+    public String getOnlyStubRequestUrl() {
+        return this.snapshot.getStubs().get(0).getUrl();
     }
 
     public File getYAMLConfig() {
         return configFile;
     }
 
-    public synchronized Map<File, Long> getExternalFiles() {
+    public Map<File, Long> getExternalFiles() {
         final Set<String> escrow = new HashSet<>();
         final Map<File, Long> externalFiles = new HashMap<>();
-        for (final StubHttpLifecycle stub : stubs) {
+        for (final StubHttpLifecycle stub : this.snapshot.getStubs()) {
             cacheExternalFile(escrow, externalFiles, stub.getRequest().getRawFile());
 
             final List<StubResponse> responses = stub.getResponses();
@@ -242,10 +376,21 @@ public class StubRepository {
         return externalFiles;
     }
 
+    // Files are deduped on their canonical path, so that a file referred to through different relative paths is
+    // watched once, while different files that happen to have the same name are all watched
     private void cacheExternalFile(final Set<String> escrow, final Map<File, Long> externalFiles, final File file) {
-        if (ObjectUtils.isNotNull(file) && !escrow.contains(file.getName())) {
-            escrow.add(file.getName());
-            externalFiles.put(file, file.lastModified());
+        if (ObjectUtils.isNull(file)) {
+            return;
+        }
+        try {
+            final ExternalFile externalFile = ExternalFileRegistry.INSTANCE.register(file);
+            if (escrow.add(externalFile.getCanonicalPath())) {
+                externalFiles.put(externalFile.getFile(), externalFile.getLastModified());
+            }
+        } catch (IOException e) {
+            if (escrow.add(file.getAbsolutePath())) {
+                externalFiles.put(file, file.lastModified());
+            }
         }
     }
 
@@ -258,48 +403,52 @@ public class StubRepository {
         }
     }
 
-    public synchronized String getStubYAML() {
+    public String getStubYAML() {
         final StringBuilder builder = new StringBuilder();
-        for (final StubHttpLifecycle stub : stubs) {
+        for (final StubHttpLifecycle stub : this.snapshot.getStubs()) {
             builder.append(stub.getCompleteYAML()).append(FileUtils.BR).append(FileUtils.BR);
         }
 
         return builder.toString();
     }
 
-    public synchronized String getStubYAMLByIndex(final int index) {
-        return stubs.get(index).getCompleteYAML();
+    public String getStubYAMLByIndex(final int index) {
+        return this.snapshot.getStubs().get(index).getCompleteYAML();
     }
 
     synchronized void updateStubByIndex(final int index, final StubHttpLifecycle newStub) {
-        deleteStubByIndex(index);
-        stubs.add(index, newStub);
-        updateResourceIDHeaders();
+        publish(this.snapshot.withStubAt(index, newStub));
     }
 
-    public synchronized boolean canMatchStubByIndex(final int index) {
-        return stubs.size() - 1 >= index;
+    public boolean canMatchStubByIndex(final int index) {
+        return this.snapshot.getStubs().size() - 1 >= index;
     }
 
     public synchronized StubHttpLifecycle deleteStubByIndex(final int index) {
-        final StubHttpLifecycle removedStub = stubs.remove(index);
-        updateResourceIDHeaders();
+        final StubsSnapshot currentSnapshot = this.snapshot;
+        final StubHttpLifecycle removedStub = currentSnapshot.getStubs().get(index);
+        publish(currentSnapshot.withoutStubAt(index));
 
         return removedStub;
     }
 
-    private void updateResourceIDHeaders() {
-        for (int index = 0; index < stubs.size(); index++) {
-            stubs.get(index).setResourceId(index);
-        }
-    }
-
     @CoberturaIgnore
-    public void retrieveLoadedStubs() {
+    public synchronized void retrieveLoadedStubs() {
         try {
-            stubs.addAll(stubLoadComputation.get());
+            final List<StubHttpLifecycle> loadedStubs = new ArrayList<>(this.snapshot.getStubs());
+            loadedStubs.addAll(stubLoadComputation.get());
+            publish(this.snapshot.withStubs(loadedStubs));
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
         }
     }
+
+    // Resource IDs are positional and get reused by the new stubs, so the match trace totals recorded against the
+    // previous stubs are dropped. The snapshot is published first: whoever sees the new totals also sees the new stubs
+    private synchronized void publish(final StubsSnapshot newSnapshot) {
+        this.snapshot = newSnapshot;
+        if (ObjectUtils.isNotNull(this.matchTraceStats)) {
+            this.matchTraceStats = new MatchTraceStats();
+        }
+    }
 }
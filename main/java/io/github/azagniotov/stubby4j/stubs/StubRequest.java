@@ -6,17 +6,19 @@ import io.github.azagniotov.stubby4j.common.Common;
 import io.github.azagniotov.stubby4j.utils.CollectionUtils;
 import io.github.azagniotov.stubby4j.utils.FileUtils;
 import io.github.azagniotov.stubby4j.utils.ObjectUtils;
-import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpMethod;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.regex.MatchResult;
 
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedArrayList;
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedLinkedHashMap;
@@ -24,8 +26,8 @@ import static io.github.azagniotov.stubby4j.stubs.StubbableAuthorizationType.BAS
 import static io.github.azagniotov.stubby4j.stubs.StubbableAuthorizationType.BEARER;
 import static io.github.azagniotov.stubby4j.stubs.StubbableAuthorizationType.CUSTOM;
 import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.newStringUtf8;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.FILE;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
@@ -34,7 +36,6 @@ import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.URL;
 import static java.lang.String.valueOf;
-import static java.util.stream.Collectors.toCollection;
 
 
 public class StubRequest implements ReflectableStub {
@@ -42,13 +43,27 @@ public class StubRequest implements ReflectableStub {
     static final String HTTP_HEADER_AUTHORIZATION = "authorization";
 
     private final String url;
-    private final String post;
     private final File file;
-    private final byte[] fileBytes;
+    // Shared with the other stubs posting the same file, together with its decoded content
+    private final transient ExternalFile externalFile;
+    private final transient Supplier<String> incomingPostReader;
+    private volatile String post;
+    private transient volatile String postBody;
+    private transient volatile boolean postBodyResolved;
     private final List<String> method;
+    private final transient HttpMethodSet methodSet;
     private final Map<String, String> headers;
+    private final transient Map<StubbableAuthorizationType, String> stubbedAuthorizationHeaders;
+    private final transient StubbableAuthorizationType stubbedAuthorizationType;
+    private final transient String rawHeaderAuthorization;
     private final Map<String, String> query;
-    private final Map<String, String> regexGroups;
+    private final transient Map<String, MatchResult> regexMatchResults;
+    private final transient StubMatcher stubMatcher;
+    private transient volatile CompiledStubRequest compiledRequest;
+    private transient volatile byte[] postBodyBytes;
+    private transient volatile ParsedJsonBody parsedPostJson;
+    private transient volatile ParsedXmlBody parsedPostXml;
+    private transient MatchTrace matchTrace;
 
     private StubRequest(final String url,
                         final String post,
@@ -56,18 +71,78 @@ public class StubRequest implements ReflectableStub {
                         final List<String> method,
                         final Map<String, String> headers,
                         final Map<String, String> query) {
+        this(url, post, null, file, method, toLowerCaseKeys(headers), query);
+    }
+
+    private StubRequest(final String url,
+                        final String post,
+                        final Supplier<String> incomingPostReader,
+                        final File file,
+                        final List<String> method,
+                        final Map<String, String> lowerCaseHeaders,
+                        final Map<String, String> query) {
         this.url = url;
-        this.post = post;
         this.file = file;
-        this.fileBytes = ObjectUtils.isNull(file) ? new byte[]{} : getFileBytes();
+        this.externalFile = ObjectUtils.isNull(file) ? null : registerExternalFile(file);
+        this.incomingPostReader = incomingPostReader;
+        if (ObjectUtils.isNull(incomingPostReader)) {
+            this.post = post;
+            this.postBody = normalizePostBody();
+            this.postBodyResolved = true;
+        }
         this.method = method;
-        this.headers = headers;
+        this.methodSet = HttpMethodSet.of(method);
+        this.headers = lowerCaseHeaders;
+        this.stubbedAuthorizationHeaders = new EnumMap<>(StubbableAuthorizationType.class);
+        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
+            if (this.headers.containsKey(authorizationType.asYAMLProp())) {
+                this.stubbedAuthorizationHeaders.put(authorizationType, this.headers.get(authorizationType.asYAMLProp()));
+            }
+        }
+        this.stubbedAuthorizationType = this.stubbedAuthorizationHeaders.containsKey(BASIC) ? BASIC :
+                (this.stubbedAuthorizationHeaders.containsKey(BEARER) ? BEARER : CUSTOM);
+        this.rawHeaderAuthorization = this.headers.get(HTTP_HEADER_AUTHORIZATION);
         this.query = query;
-        this.regexGroups = new TreeMap<>();
+        this.regexMatchResults = new HashMap<>();
+        this.stubMatcher = new StubMatcher(regexMatchResults);
+    }
+
+    /**
+     * Creates a view of the incoming servlet request that stub matching can assert against. Instead of being copied
+     * upfront, the headers are fetched from the servlet request as they are looked up, and the post body is read
+     * only the first time it is needed, i.e.: when the request is compared to a stub with a post body or a file.
+     *
+     * @param request         incoming servlet request
+     * @param postReader      reads the post body from the servlet request
+     * @param query           params parsed from the incoming query string
+     */
+    static StubRequest incoming(final HttpServletRequest request,
+                                final Supplier<String> postReader,
+                                final Map<String, String> query) {
+        final List<String> method = new ArrayList<>();
+        if (isSet(request.getMethod())) {
+            method.add(request.getMethod());
+        }
+
+        return new StubRequest(request.getPathInfo(), null, postReader, null, method, new IncomingRequestHeaders(request), query);
     }
 
     public final ArrayList<String> getMethod() {
-        return method.stream().map(StringUtils::toUpper).collect(toCollection(ArrayList::new));
+        return new ArrayList<>(methodSet.asList());
+    }
+
+    /**
+     * @return true if the given method is one of the methods of this request
+     */
+    public boolean hasMethod(final HttpMethod httpMethod) {
+        return methodSet.contains(httpMethod);
+    }
+
+    /**
+     * @return the methods of this request, upper-cased and folded into a bitmask once, when the request was built
+     */
+    HttpMethodSet getMethodSet() {
+        return methodSet;
     }
 
     public String getUri() {
@@ -84,9 +159,11 @@ public class StubRequest implements ReflectableStub {
             return url;
         }
 
+        // The params of an incoming request are QueryParameters, which build their query string once and keep it, see
+        // CollectionUtils#constructQueryString. The query string of a stubbed request is built on every call
         final String queryString = CollectionUtils.constructQueryString(query);
 
-        return String.format("%s?%s", url, queryString);
+        return url + "?" + queryString;
     }
 
     private byte[] getFileBytes() {
@@ -97,41 +174,147 @@ public class StubRequest implements ReflectableStub {
         }
     }
 
-    public String getPostBody() {
-        if (fileBytes.length == 0) {
+    private static ExternalFile registerExternalFile(final File file) {
+        try {
+            return ExternalFileRegistry.INSTANCE.register(file);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // The request is immutable, so its post body is decoded and its line separators are enforced only once. The
+    // file content is only kept as the post body, which stub matching needs anyway, and is decoded once for all the
+    // stubs posting the same file
+    private String normalizePostBody() {
+        final String fileContent = getExternalFileText();
+        if (fileContent.isEmpty()) {
             return FileUtils.enforceSystemLineSeparator(post);
         }
-        final String utf8FileContent = newStringUtf8(fileBytes);
-        return FileUtils.enforceSystemLineSeparator(utf8FileContent);
+        return fileContent;
+    }
+
+    private String getExternalFileText() {
+        if (ObjectUtils.isNull(externalFile)) {
+            return "";
+        }
+        try {
+            return externalFile.getText();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    public String getPostBody() {
+        if (!postBodyResolved) {
+            resolveIncomingPostBody();
+        }
+        return postBody;
+    }
+
+    // The incoming post body is read at most once, even if stubs are matched against it on several threads
+    private synchronized void resolveIncomingPostBody() {
+        if (!postBodyResolved) {
+            this.post = incomingPostReader.get();
+            this.postBody = FileUtils.enforceSystemLineSeparator(post);
+            this.postBodyResolved = true;
+        }
+    }
+
+    /**
+     * @return UTF-8 bytes of the {@link #getPostBody() post body}, encoded on first use only
+     */
+    public byte[] getPostBodyBytes() {
+        byte[] current = postBodyBytes;
+        if (current == null) {
+            current = getBytesUtf8(getPostBody());
+            postBodyBytes = current;
+        }
+        return current;
+    }
+
+    /**
+     * Parses the post body of the incoming request as JSON once, no matter how many stubs it is compared to
+     */
+    ParsedJsonBody getParsedPostJson() {
+        ParsedJsonBody current = parsedPostJson;
+        if (current == null) {
+            current = ParsedJsonBody.parse(getPostBody());
+            parsedPostJson = current;
+        }
+        return current;
+    }
+
+    /**
+     * Parses the post body of the incoming request as XML once, no matter how many stubs it is compared to
+     */
+    ParsedXmlBody getParsedPostXml() {
+        ParsedXmlBody current = parsedPostXml;
+        if (current == null) {
+            current = ParsedXmlBody.parseIncoming(getPostBody());
+            parsedPostXml = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return the trace that the matching of this incoming request is recorded into, or null if match tracing is off
+     */
+    MatchTrace getMatchTrace() {
+        return matchTrace;
+    }
+
+    void setMatchTrace(final MatchTrace matchTrace) {
+        this.matchTrace = matchTrace;
     }
 
     //Used by reflection when populating stubby admin page with stubbed information
     public String getPost() {
+        if (!postBodyResolved) {
+            resolveIncomingPostBody();
+        }
         return post;
     }
 
-    public final Map<String, String> getHeaders() {
-        final Map<String, String> headersCopy = new LinkedHashMap<>(headers);
-        final Set<Map.Entry<String, String>> entrySet = headersCopy.entrySet();
-        this.headers.clear();
-        for (final Map.Entry<String, String> entry : entrySet) {
-            this.headers.put(toLower(entry.getKey()), entry.getValue());
+    // Headers are looked up by their lower-cased names, so their keys are lower-cased once and the map is never modified
+    private static Map<String, String> toLowerCaseKeys(final Map<String, String> headers) {
+        final Map<String, String> lowerCaseHeaders = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> entry : headers.entrySet()) {
+            lowerCaseHeaders.put(toLower(entry.getKey()), entry.getValue());
         }
 
+        return Collections.unmodifiableMap(lowerCaseHeaders);
+    }
+
+    /**
+     * @return an unmodifiable view of the headers, keyed on lower-cased header names
+     */
+    public final Map<String, String> getHeaders() {
         return headers;
     }
 
+    /**
+     * @return the value of the given header, which is looked up by its lower-cased name, or null if there is none
+     */
+    public String getHeader(final String name) {
+        return headers.get(toLower(name));
+    }
+
     public Map<String, String> getQuery() {
         return query;
     }
 
     public byte[] getFile() {
-        return fileBytes;
+        return ObjectUtils.isNull(file) ? new byte[]{} : getFileBytes();
     }
 
-    // Just a shallow copy that protects collection from modification, the points themselves are not copied
+    /**
+     * Builds the regex template token values (e.g.: url.0, url.1, headers.content-type.0) from the capturing groups
+     * of the regex matches. This is done on demand, as most stubbed responses are not templated.
+     *
+     * @return a new {@link Map} of template token names and their values
+     */
     public Map<String, String> getRegexGroups() {
-        return new TreeMap<>(regexGroups);
+        return RegexParser.INSTANCE.toRegexGroups(regexMatchResults);
     }
 
     public File getRawFile() {
@@ -139,7 +322,7 @@ public class StubRequest implements ReflectableStub {
     }
 
     public boolean hasHeaders() {
-        return !getHeaders().isEmpty();
+        return !headers.isEmpty();
     }
 
     public boolean hasQuery() {
@@ -151,33 +334,25 @@ public class StubRequest implements ReflectableStub {
     }
 
     boolean isSecured() {
-        return getHeaders().containsKey(BASIC.asYAMLProp()) ||
-                getHeaders().containsKey(BEARER.asYAMLProp()) ||
-                getHeaders().containsKey(CUSTOM.asYAMLProp());
+        return !stubbedAuthorizationHeaders.isEmpty();
     }
 
     @VisibleForTesting
     StubbableAuthorizationType getStubbedAuthorizationType() {
-        if (getHeaders().containsKey(BASIC.asYAMLProp())) {
-            return BASIC;
-        } else if (getHeaders().containsKey(BEARER.asYAMLProp())) {
-            return BEARER;
-        } else {
-            return CUSTOM;
-        }
+        return stubbedAuthorizationType;
     }
 
     String getStubbedHeaderAuthorization(final StubbableAuthorizationType stubbableAuthorizationType) {
-        return getHeaders().get(stubbableAuthorizationType.asYAMLProp());
+        return stubbedAuthorizationHeaders.get(stubbableAuthorizationType);
     }
 
     public String getRawHeaderAuthorization() {
-        return getHeaders().get(HTTP_HEADER_AUTHORIZATION);
+        return rawHeaderAuthorization;
     }
 
     @VisibleForTesting
     boolean isPostStubbed() {
-        return isSet(this.getPostBody()) && (getMethod().contains("POST") || getMethod().contains("PUT"));
+        return isSet(getPostBody()) && (methodSet.contains(HttpMethod.POST) || methodSet.contains(HttpMethod.PUT));
     }
 
     public void compileRegexPatternsAndCache() {
@@ -189,7 +364,22 @@ public class StubRequest implements ReflectableStub {
         }
 
         this.getQuery().values().forEach(RegexParser.INSTANCE::compilePatternAndCache);
-        this.getHeaders().values().forEach(RegexParser.INSTANCE::compilePatternAndCache);
+        this.headers.values().forEach(RegexParser.INSTANCE::compilePatternAndCache);
+
+        this.compiledRequest = CompiledStubRequest.compile(this);
+    }
+
+    /**
+     * @return the pre-processed view of this stubbed request, compiled on first use if the stub was not
+     * loaded through {@link #compileRegexPatternsAndCache()}
+     */
+    CompiledStubRequest getCompiledRequest() {
+        CompiledStubRequest current = this.compiledRequest;
+        if (current == null) {
+            current = CompiledStubRequest.compile(this);
+            this.compiledRequest = current;
+        }
+        return current;
     }
 
     @Override
@@ -200,7 +390,7 @@ public class StubRequest implements ReflectableStub {
         } else if (that instanceof StubRequest) {
             final StubRequest stubbedRequest = (StubRequest) that;
 
-            if (new StubMatcher(regexGroups).matches(stubbedRequest, this)) {
+            if (stubMatcher.matches(stubbedRequest, this)) {
                 return true;
             }
         }
@@ -213,8 +403,8 @@ public class StubRequest implements ReflectableStub {
     public int hashCode() {
         int result = (isNotNull(url) ? url.hashCode() : 0);
         result = 31 * result + method.hashCode();
-        result = 31 * result + (isNotNull(post) ? post.hashCode() : 0);
-        result = 31 * result + (isNotNull(fileBytes) && fileBytes.length != 0 ? Arrays.hashCode(fileBytes) : 0);
+        result = 31 * result + (isNotNull(getPost()) ? getPost().hashCode() : 0);
+        result = 31 * result + (isNotNull(file) && isSet(postBody) ? postBody.hashCode() : 0);
         result = 31 * result + headers.hashCode();
         result = 31 * result + query.hashCode();
 
@@ -229,11 +419,11 @@ public class StubRequest implements ReflectableStub {
         sb.append("{url=").append(url);
         sb.append(", method=").append(method);
 
-        if (!ObjectUtils.isNull(post)) {
-            sb.append(", post=").append(post);
+        if (!ObjectUtils.isNull(getPost())) {
+            sb.append(", post=").append(getPost());
         }
         sb.append(", query=").append(query);
-        sb.append(", headers=").append(getHeaders());
+        sb.append(", headers=").append(headers);
         sb.append('}');
 
         return sb.toString();
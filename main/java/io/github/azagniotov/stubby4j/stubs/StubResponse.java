@@ -3,16 +3,20 @@ package io.github.azagniotov.stubby4j.stubs;
 import io.github.azagniotov.stubby4j.annotations.CoberturaIgnore;
 import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 import io.github.azagniotov.stubby4j.utils.FileUtils;
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
 import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpStatus.Code;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedLinkedHashMap;
-import static io.github.azagniotov.stubby4j.utils.FileUtils.fileToBytes;
 import static io.github.azagniotov.stubby4j.utils.FileUtils.isFilePathContainTemplateTokens;
 import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
@@ -31,9 +35,19 @@ public class StubResponse implements ReflectableStub {
     private final Code httpStatusCode;
     private final String body;
     private final File file;
-    private final byte[] fileBytes;
+    // Shared with the other stubs referring to the same file. Null if there is no file, or if its path is templated
+    private final transient ExternalFile externalFile;
     private final String latency;
     private final Map<String, String> headers;
+    // Resolved on first use, as the body of a file response can only be checked for template tokens once it is loaded
+    private transient volatile Optional<ResponseTemplate> bodyTemplate;
+    private final transient ResponseTemplate filePathTemplate;
+    // Null unless the file path is templated
+    private final transient ResolvedExternalFiles resolvedExternalFiles;
+    private final transient Map<String, ResponseTemplate> headerTemplates;
+    // Hashed on first use, so that the precompressed encodings of the stubbed body can be looked up in the content store
+    private transient volatile String bodyHash;
+    private transient volatile int bodyLength;
 
     private StubResponse(final Code httpStatusCode,
                          final String body,
@@ -43,9 +57,27 @@ public class StubResponse implements ReflectableStub {
         this.httpStatusCode = httpStatusCode;
         this.body = body;
         this.file = file;
-        this.fileBytes = isNull(file) ? new byte[]{} : getFileBytes();
         this.latency = latency;
         this.headers = isNull(headers) ? new LinkedHashMap<>() : headers;
+        this.filePathTemplate = isFilePathTemplated() ? ResponseTemplate.compile(file.getAbsolutePath()) : null;
+        this.externalFile = isNull(file) || !isNull(filePathTemplate) ? null : registerExternalFile(file);
+        this.resolvedExternalFiles = isNull(filePathTemplate) ? null : new ResolvedExternalFiles();
+        this.headerTemplates = compileHeaderTemplates(this.headers);
+    }
+
+    private StubResponse(final StubResponse stubResponse, final Map<String, String> headers) {
+        this.httpStatusCode = stubResponse.httpStatusCode;
+        this.body = stubResponse.body;
+        this.file = stubResponse.file;
+        this.externalFile = stubResponse.externalFile;
+        this.latency = stubResponse.latency;
+        this.headers = headers;
+        this.filePathTemplate = stubResponse.filePathTemplate;
+        this.resolvedExternalFiles = stubResponse.resolvedExternalFiles;
+        this.bodyTemplate = stubResponse.bodyTemplate;
+        this.headerTemplates = stubResponse.headerTemplates;
+        this.bodyLength = stubResponse.bodyLength;
+        this.bodyHash = stubResponse.bodyHash;
     }
 
     public static StubResponse okResponse() {
@@ -64,13 +96,8 @@ public class StubResponse implements ReflectableStub {
         if (!stubResponseOptional.isPresent()) {
             return new StubResponse.Builder().withHttpStatusCode(Code.MOVED_PERMANENTLY).build();
         }
-        final StubResponse foundStubResponse = stubResponseOptional.get();
-        return new StubResponse(
-                foundStubResponse.getHttpStatusCode(),
-                foundStubResponse.getBody(),
-                foundStubResponse.getRawFile(),
-                foundStubResponse.getLatency(),
-                foundStubResponse.getHeaders());
+        // Shares the templates that the found response has already compiled
+        return new StubResponse(stubResponseOptional.get(), stubResponseOptional.get().getHeaders());
     }
 
     public Code getHttpStatusCode() {
@@ -98,7 +125,14 @@ public class StubResponse implements ReflectableStub {
      * Used by reflection when populating stubby admin page with stubbed information
      */
     public byte[] getFile() {
-        return fileBytes;
+        if (isNull(externalFile)) {
+            return new byte[]{};
+        }
+        try {
+            return toBytes(ExternalFileRegistry.CONTENT_STORE.peek(externalFile));
+        } catch (Exception e) {
+            return new byte[]{};
+        }
     }
 
     public File getRawFile() {
@@ -110,19 +144,162 @@ public class StubResponse implements ReflectableStub {
     }
 
     public byte[] getResponseBodyAsBytes() {
-
-        if (fileBytes.length == 0) {
+        final ByteBuffer fileContent = getFileContent();
+        if (isNull(fileContent)) {
             return StringUtils.getBytesUtf8(getBody());
         }
-        return fileBytes;
+        return toBytes(fileContent);
+    }
+
+    /**
+     * The file is loaded on first use, and then served from the {@link FileContentStore} for as long as it stays
+     * among the recently used files.
+     *
+     * @return a read-only view of the file content, which is memory mapped for large binary files. Every call
+     * returns a new view, so that concurrent responses can each consume their own. Null if the response has no file,
+     * or if its file is empty or could not be loaded
+     */
+    public ByteBuffer getFileContent() {
+        if (isNull(externalFile)) {
+            return null;
+        }
+        try {
+            final ByteBuffer fileContent = ExternalFileRegistry.CONTENT_STORE.get(externalFile);
+            return fileContent.hasRemaining() ? fileContent : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A binary file that is too large to be kept in the {@link FileContentStore} would be memory mapped anew on every
+     * use, so it is better streamed from disk, the same way as the binary files of templated file paths.
+     *
+     * @return the response file if it is such a binary file, otherwise null
+     */
+    public File getStreamedFile() {
+        if (isNull(externalFile) || !ExternalFileRegistry.CONTENT_STORE.isTooLargeToKeep(externalFile.getLength())) {
+            return null;
+        }
+        try {
+            return FileUtils.isCharacterFile(file) ? null : externalFile.getFile();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only for responses whose file path has template tokens, see {@link #getFilePathTemplate()}
+     *
+     * @param resolvedFile the file that the templated file path resolved to for the current request
+     * @return a read-only view of the file content, loaded the same way as by {@link #getFileContent()}, and only
+     * loaded again once the file changes on disk
+     */
+    public ByteBuffer getResolvedFileContent(final File resolvedFile) throws IOException {
+        return ExternalFileRegistry.CONTENT_STORE.get(resolvedExternalFiles.resolve(resolvedFile));
     }
 
     public boolean isBodyContainsTemplateTokens() {
-        final boolean isFileTemplate = fileBytes.length != 0 && isTemplateFile();
-        return isFileTemplate || StringUtils.isTokenized(getBody());
+        return getBodyTemplate() != null;
     }
 
     public boolean isFilePathContainsTemplateTokens() {
+        return filePathTemplate != null;
+    }
+
+    /**
+     * @return the response body, i.e.: the file content or the stubbed body, split into template segments the first
+     * time it is needed, or null if the body has no template tokens
+     */
+    public ResponseTemplate getBodyTemplate() {
+        Optional<ResponseTemplate> current = bodyTemplate;
+        if (current == null) {
+            current = Optional.ofNullable(isBodyTemplated() ? ResponseTemplate.compile(StringUtils.newStringUtf8(getResponseBodyAsBytes())) : null);
+            bodyTemplate = current;
+        }
+        return current.orElse(null);
+    }
+
+    /**
+     * @return the absolute path of the response file split into template segments when the response was loaded,
+     * or null if the path has no template tokens
+     */
+    public ResponseTemplate getFilePathTemplate() {
+        return filePathTemplate;
+    }
+
+    /**
+     * @return the header values that have template tokens, split into template segments when the response was loaded
+     */
+    public Map<String, ResponseTemplate> getHeaderTemplates() {
+        return headerTemplates;
+    }
+
+    /**
+     * Responses whose body is rendered per request, whose body is yet to be recorded, or whose stubbed headers already
+     * declare a content encoding, are not precompressed.
+     *
+     * @param contentCoding "gzip" or "deflate"
+     * @param minBodyBytes   the size below which a body is not compressed, in addition to {@link PrecompressedBodies#MIN_BODY_BYTES}
+     * @return a read-only view of the response body in the given content coding, compressed on first use and then kept
+     * in the {@link FileContentStore} for as long as it stays among the recently used content. Null if the response
+     * is not precompressed
+     * @see PrecompressedBodies
+     */
+    public ByteBuffer getPrecompressedBody(final String contentCoding, final int minBodyBytes) {
+        if (isFilePathContainsTemplateTokens() || getHeaders().containsKey("content-encoding")) {
+            return null;
+        }
+        if (isRecordingRequired() || !PrecompressedBodies.isSupported(contentCoding)) {
+            return null;
+        }
+        if (!isNull(externalFile) && externalFile.getLength() > PrecompressedBodies.MAX_BODY_BYTES) {
+            return null;
+        }
+        if (isBodyContainsTemplateTokens()) {
+            return null;
+        }
+
+        final ByteBuffer fileContent = getFileContent();
+        if (!isNull(fileContent)) {
+            final String contentHash = externalFile.getContentHash();
+            if (isNull(contentHash) || !PrecompressedBodies.isWorthCompressing(fileContent.remaining(), minBodyBytes)) {
+                return null;
+            }
+            return ExternalFileRegistry.CONTENT_STORE.getEncoded(contentHash, contentCoding,
+                    () -> PrecompressedBodies.compress(contentCoding, fileContent));
+        }
+
+        String contentHash = bodyHash;
+        if (isNull(contentHash)) {
+            final byte[] bodyBytes = StringUtils.getBytesUtf8(getBody());
+            bodyLength = bodyBytes.length;
+            contentHash = ExternalFile.hashOf(ByteBuffer.wrap(bodyBytes));
+            bodyHash = contentHash;
+        }
+        if (!PrecompressedBodies.isWorthCompressing(bodyLength, minBodyBytes)) {
+            return null;
+        }
+        return ExternalFileRegistry.CONTENT_STORE.getEncoded(contentHash, contentCoding,
+                () -> PrecompressedBodies.compress(contentCoding, ByteBuffer.wrap(StringUtils.getBytesUtf8(getBody()))));
+    }
+
+    /**
+     * Called once the body was recorded, as the body template and the body hash were derived from the recording
+     * source URL, which the recorded body has replaced
+     */
+    void onBodyRecorded() {
+        this.bodyTemplate = null;
+        this.bodyHash = null;
+    }
+
+    private boolean isBodyTemplated() {
+        // Binary files are never templates, so they are not loaded only to find that out
+        final boolean isFileTemplate = isTemplateFile() && !isNull(getFileContent());
+        return isFileTemplate || StringUtils.isTokenized(getBody());
+    }
+
+    private boolean isFilePathTemplated() {
         try {
             return isFilePathContainTemplateTokens(file);
         } catch (Exception e) {
@@ -130,24 +307,40 @@ public class StubResponse implements ReflectableStub {
         }
     }
 
-    @CoberturaIgnore
-    private boolean isTemplateFile() {
+    private static ExternalFile registerExternalFile(final File file) {
         try {
-            return FileUtils.isTemplateFile(file);
+            return ExternalFileRegistry.INSTANCE.register(file);
         } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
+    private static Map<String, ResponseTemplate> compileHeaderTemplates(final Map<String, String> headers) {
+        final Map<String, ResponseTemplate> headerTemplates = new HashMap<>();
+        for (final Map.Entry<String, String> headerPair : headers.entrySet()) {
+            if (StringUtils.isSet(headerPair.getValue()) && StringUtils.isTokenized(headerPair.getValue())) {
+                headerTemplates.put(headerPair.getKey(), ResponseTemplate.compile(headerPair.getValue()));
+            }
+        }
+        return headerTemplates.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(headerTemplates);
+    }
+
     @CoberturaIgnore
-    private byte[] getFileBytes() {
+    private boolean isTemplateFile() {
         try {
-            return fileToBytes(file);
+            return FileUtils.isTemplateFile(file);
         } catch (Exception e) {
-            return new byte[]{};
+            return false;
         }
     }
 
+    private static byte[] toBytes(final ByteBuffer content) {
+        final byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+
+        return bytes;
+    }
+
     public boolean hasHeaderLocation() {
         return getHeaders().containsKey("location");
     }
@@ -156,6 +349,17 @@ public class StubResponse implements ReflectableStub {
         getHeaders().put(STUBBY_RESOURCE_ID_HEADER, String.valueOf(resourceIndex));
     }
 
+    /**
+     * @return a copy of this response with its own headers, which has the given resource ID, and which shares the
+     * templates that this response has already compiled
+     */
+    StubResponse withResourceIDHeader(final int resourceIndex) {
+        final StubResponse renumbered = new StubResponse(this, new LinkedHashMap<>(getHeaders()));
+        renumbered.addResourceIDHeader(resourceIndex);
+
+        return renumbered;
+    }
+
     String getResourceIDHeader() {
         return getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER);
     }
@@ -1,14 +1,28 @@
 package io.github.azagniotov.stubby4j.stubs;
 
 
+import java.util.Optional;
+
 public class StubSearchResult {
 
+    /**
+     * When match tracing is enabled, only incoming requests that carry this header with a value of 'true' are traced,
+     * and they get their match trace back in the same response header
+     */
+    public static final String STUBBY_TRACE_HEADER = "x-stubby-trace";
+
     private final StubRequest invariant;
     private final StubResponse match;
+    private final String matchTrace;
 
     StubSearchResult(final StubRequest invariant, final StubResponse match) {
+        this(invariant, match, null);
+    }
+
+    StubSearchResult(final StubRequest invariant, final StubResponse match, final String matchTrace) {
         this.invariant = invariant;
         this.match = match;
+        this.matchTrace = matchTrace;
     }
 
     public StubRequest getInvariant() {
@@ -18,4 +32,12 @@ public class StubSearchResult {
     public StubResponse getMatch() {
         return match;
     }
+
+    /**
+     * @return how the incoming request was matched, e.g.: "candidates=2; cache=miss; match=1; url=5020ns; ...",
+     * or an empty {@link Optional} if match tracing is off or the request did not ask for a trace
+     */
+    public Optional<String> getMatchTrace() {
+        return Optional.ofNullable(matchTrace);
+    }
 }
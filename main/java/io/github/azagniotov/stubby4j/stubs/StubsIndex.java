@@ -0,0 +1,208 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * Narrows down the list of stubs that an incoming request has to be compared with.
+ * <p>
+ * Stubs with a literal (non-regex) {@link StubRequest#getUri() url} are bucketed by that url and by each of
+ * their HTTP methods, so a request for a literal url only needs to be compared with the stubs in its bucket.
+ * Stubs whose url is a regex pattern, or that have no url at all, are routed through a {@link UrlSegmentTrie}
+ * by the literal path segments their url starts with. The routed stubs are then narrowed down further by the
+ * {@link RegexUrlPrefilter}, and the remaining ones are merged with the bucket.
+ * <p>
+ * Candidates are always returned in YAML declaration order, so the first declared stub still wins.
+ */
+final class StubsIndex {
+
+    // Any character that would make Pattern.matches() behave differently from String.equals()
+    @VisibleForTesting
+    static final Pattern REGEX_META_CHARS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final List<StubHttpLifecycle> stubs;
+    private final Map<String, MethodRoutes> literalUrlRoutes;
+    private final UrlSegmentTrie regexUrlRoutes;
+    private final RegexUrlPrefilter regexUrlPrefilter;
+
+    StubsIndex(final List<StubHttpLifecycle> stubs) {
+        this.stubs = stubs;
+
+        this.literalUrlRoutes = new HashMap<>();
+        this.regexUrlRoutes = new UrlSegmentTrie();
+        this.regexUrlPrefilter = new RegexUrlPrefilter();
+
+        for (int position = 0; position < stubs.size(); position++) {
+            final StubRequest stubbedRequest = stubs.get(position).getRequest();
+            final String stubbedUri = stubbedRequest.getUri();
+
+            if (!isLiteralUrl(stubbedUri)) {
+                regexUrlRoutes.add(stubbedUri, position);
+                regexUrlPrefilter.add(stubbedUri, position);
+                continue;
+            }
+
+            literalUrlRoutes.computeIfAbsent(stubbedUri, uri -> new MethodRoutes()).add(stubbedRequest.getMethodSet(), position);
+        }
+
+        for (final MethodRoutes methodRoutes : literalUrlRoutes.values()) {
+            methodRoutes.compile();
+        }
+        this.regexUrlPrefilter.compile();
+    }
+
+    /**
+     * @param assertingRequest the incoming {@link StubRequest}
+     * @return stubs that can potentially match the incoming request, in YAML declaration order
+     */
+    List<StubHttpLifecycle> candidatesFor(final StubRequest assertingRequest) {
+        final String assertingUri = assertingRequest.getUri();
+        final int[] regexRoutes = prefilter(regexUrlRoutes.route(assertingUri), assertingUri);
+        final MethodRoutes methodRoutes = literalUrlRoutes.get(assertingUri);
+        if (methodRoutes == null) {
+            return collect(regexRoutes);
+        }
+
+        final List<int[]> routes = new ArrayList<>();
+        routes.add(regexRoutes);
+        methodRoutes.addRoutesOf(assertingRequest.getMethodSet(), routes);
+
+        return collect(merge(routes));
+    }
+
+    @VisibleForTesting
+    static boolean isLiteralUrl(final String stubbedUri) {
+        return !isNotSet(stubbedUri) && !REGEX_META_CHARS.matcher(stubbedUri).find();
+    }
+
+    private int[] prefilter(final int[] routes, final String assertingUri) {
+        if (routes.length == 0) {
+            return routes;
+        }
+
+        final BitSet possibleMatches = regexUrlPrefilter.possibleMatches(assertingUri);
+        int filtered = 0;
+        for (final int position : routes) {
+            if (possibleMatches.get(position)) {
+                routes[filtered++] = position;
+            }
+        }
+        return Arrays.copyOf(routes, filtered);
+    }
+
+    private List<StubHttpLifecycle> collect(final int[] positions) {
+        final List<StubHttpLifecycle> candidates = new ArrayList<>(positions.length);
+        for (final int position : positions) {
+            candidates.add(stubs.get(position));
+        }
+        return candidates;
+    }
+
+    private static void addIfPresent(final List<int[]> routes, final int[] route) {
+        if (route != null) {
+            routes.add(route);
+        }
+    }
+
+    private static int[] merge(final List<int[]> routes) {
+        int total = 0;
+        for (final int[] route : routes) {
+            total += route.length;
+        }
+
+        final int[] merged = new int[total];
+        int offset = 0;
+        for (final int[] route : routes) {
+            System.arraycopy(route, 0, merged, offset, route.length);
+            offset += route.length;
+        }
+        Arrays.sort(merged);
+
+        // A stub stubbed with several methods can be routed more than once
+        int distinct = 0;
+        for (int idx = 0; idx < merged.length; idx++) {
+            if (idx == 0 || merged[idx] != merged[idx - 1]) {
+                merged[distinct++] = merged[idx];
+            }
+        }
+
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    private static int[] toIntArray(final List<Integer> positions) {
+        final int[] array = new int[positions.size()];
+        for (int idx = 0; idx < array.length; idx++) {
+            array[idx] = positions.get(idx);
+        }
+        return array;
+    }
+
+    /**
+     * Positions of the stubs stubbed with a literal url, bucketed by their HTTP methods. Standard methods are looked up
+     * by the bits of the {@link HttpMethodSet} mask, non-standard ones by their upper-cased names.
+     */
+    private static final class MethodRoutes {
+
+        private final List<Integer> anyMethodPositions = new ArrayList<>();
+        private final Map<Integer, List<Integer>> standardMethodPositions = new HashMap<>();
+        private final Map<String, List<Integer>> nonStandardMethodPositions = new HashMap<>();
+
+        private int[] anyMethodRoute;
+        private int[][] standardMethodRoutes;
+        private Map<String, int[]> nonStandardMethodRoutes;
+
+        private void add(final HttpMethodSet stubbedMethods, final int position) {
+            if (stubbedMethods.isEmpty()) {
+                anyMethodPositions.add(position);
+                return;
+            }
+            int mask = stubbedMethods.getMask();
+            while (mask != 0) {
+                final int ordinal = Integer.numberOfTrailingZeros(mask);
+                standardMethodPositions.computeIfAbsent(ordinal, key -> new ArrayList<>()).add(position);
+                mask &= mask - 1;
+            }
+            for (final String nonStandardMethod : stubbedMethods.getNonStandardMethods()) {
+                nonStandardMethodPositions.computeIfAbsent(nonStandardMethod, key -> new ArrayList<>()).add(position);
+            }
+        }
+
+        private void compile() {
+            this.anyMethodRoute = anyMethodPositions.isEmpty() ? null : toIntArray(anyMethodPositions);
+            this.standardMethodRoutes = new int[Integer.SIZE][];
+            for (final Map.Entry<Integer, List<Integer>> entry : standardMethodPositions.entrySet()) {
+                standardMethodRoutes[entry.getKey()] = toIntArray(entry.getValue());
+            }
+            this.nonStandardMethodRoutes = new HashMap<>();
+            for (final Map.Entry<String, List<Integer>> entry : nonStandardMethodPositions.entrySet()) {
+                nonStandardMethodRoutes.put(entry.getKey(), toIntArray(entry.getValue()));
+            }
+            // The positions are not needed once the routes are built
+            anyMethodPositions.clear();
+            standardMethodPositions.clear();
+            nonStandardMethodPositions.clear();
+        }
+
+        private void addRoutesOf(final HttpMethodSet assertingMethods, final List<int[]> routes) {
+            addIfPresent(routes, anyMethodRoute);
+            int mask = assertingMethods.getMask();
+            while (mask != 0) {
+                addIfPresent(routes, standardMethodRoutes[Integer.numberOfTrailingZeros(mask)]);
+                mask &= mask - 1;
+            }
+            for (final String nonStandardMethod : assertingMethods.getNonStandardMethods()) {
+                addIfPresent(routes, nonStandardMethodRoutes.get(nonStandardMethod));
+            }
+        }
+    }
+}
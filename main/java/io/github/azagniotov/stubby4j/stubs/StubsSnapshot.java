@@ -0,0 +1,129 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable, versioned view of the loaded stubs.
+ * <p>
+ * {@link StubRepository} publishes a new snapshot through a volatile reference every time the stubs are reloaded
+ * from YAML or modified through the admin portal, so request threads can match against a consistent stub list
+ * without taking any locks. A snapshot is never modified after it has been published.
+ * <p>
+ * The resource ID of a stub is its index in the snapshot. A stub whose index differs from the resource ID it already
+ * has, e.g.: one that followed a deleted stub, is copied with the new resource ID rather than renumbered, as the
+ * previously published snapshot may still be serving it.
+ */
+final class StubsSnapshot {
+
+    private static final int MATCH_CACHE_MAX_SIZE = 4096;
+    private static final String CONTENT_TYPE_HEADER = "content-type";
+
+    private final long version;
+    private final List<StubHttpLifecycle> stubs;
+    private final StubsIndex index;
+    private final StubMatchCache matchCache;
+    private final String[] referencedHeaderKeys;
+    private final String[] referencedQueryKeys;
+
+    StubsSnapshot(final long version, final List<StubHttpLifecycle> stubs) {
+        this.version = version;
+        this.stubs = Collections.unmodifiableList(withResourceIds(stubs));
+        this.index = new StubsIndex(this.stubs);
+        this.matchCache = new StubMatchCache(MATCH_CACHE_MAX_SIZE);
+
+        final Set<String> headerKeys = new TreeSet<>();
+        // The incoming content type decides how the post bodies are compared
+        headerKeys.add(CONTENT_TYPE_HEADER);
+        final Set<String> queryKeys = new TreeSet<>();
+        for (final StubHttpLifecycle stub : this.stubs) {
+            final CompiledStubRequest compiledRequest = stub.getRequest().getCompiledRequest();
+            addKeys(compiledRequest.getHeaders(), headerKeys);
+            addKeys(compiledRequest.getQuery(), queryKeys);
+        }
+        this.referencedHeaderKeys = headerKeys.toArray(new String[0]);
+        this.referencedQueryKeys = queryKeys.toArray(new String[0]);
+    }
+
+    static StubsSnapshot empty() {
+        return new StubsSnapshot(0, Collections.emptyList());
+    }
+
+    StubsSnapshot withStubs(final List<StubHttpLifecycle> newStubs) {
+        return new StubsSnapshot(version + 1, newStubs);
+    }
+
+    StubsSnapshot withStubAt(final int index, final StubHttpLifecycle newStub) {
+        final List<StubHttpLifecycle> newStubs = new ArrayList<>(stubs);
+        newStubs.set(index, newStub);
+
+        return new StubsSnapshot(version + 1, newStubs);
+    }
+
+    StubsSnapshot withoutStubAt(final int index) {
+        final List<StubHttpLifecycle> newStubs = new ArrayList<>(stubs);
+        newStubs.remove(index);
+
+        return new StubsSnapshot(version + 1, newStubs);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    List<StubHttpLifecycle> getStubs() {
+        return stubs;
+    }
+
+    /**
+     * @see StubsIndex#candidatesFor(StubRequest)
+     */
+    List<StubHttpLifecycle> candidatesFor(final StubRequest assertingRequest) {
+        return index.candidatesFor(assertingRequest);
+    }
+
+    /**
+     * The cache of previous match results lives and dies with the snapshot, so a match (or a miss) cached against
+     * stale stubs can never be served after a newer snapshot has been published.
+     */
+    StubMatchCache getMatchCache() {
+        return matchCache;
+    }
+
+    /**
+     * @param candidates the stubs that {@link #candidatesFor(StubRequest)} routed the incoming request to
+     * @return a fingerprint of the incoming request over the headers and query params referenced by this snapshot,
+     * and over the post body only if one of the candidates matches on it, so that the incoming body is not read for
+     * requests that no stub with a post body or a file could match
+     */
+    RequestFingerprint fingerprintOf(final StubRequest assertingRequest, final List<StubHttpLifecycle> candidates) {
+        return RequestFingerprint.of(assertingRequest, referencedHeaderKeys, referencedQueryKeys, isAnyPostStubbed(candidates));
+    }
+
+    private static boolean isAnyPostStubbed(final List<StubHttpLifecycle> candidates) {
+        for (final StubHttpLifecycle candidate : candidates) {
+            if (candidate.getRequest().getCompiledRequest().isPostStubbed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addKeys(final CompiledStubRequest.CompiledMapping mappings, final Set<String> keys) {
+        for (int idx = 0; idx < mappings.size(); idx++) {
+            keys.add(mappings.keyAt(idx));
+        }
+    }
+
+    private static List<StubHttpLifecycle> withResourceIds(final List<StubHttpLifecycle> stubs) {
+        final List<StubHttpLifecycle> numberedStubs = new ArrayList<>(stubs.size());
+        for (int index = 0; index < stubs.size(); index++) {
+            numberedStubs.add(stubs.get(index).withResourceId(index));
+        }
+        return numberedStubs;
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.azagniotov.stubby4j.stubs.StubsIndex.REGEX_META_CHARS;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * A trie of URL path segments that routes incoming URLs to the stubs whose regex {@link StubRequest#getUri() url}
+ * can potentially match them.
+ * <p>
+ * Every stubbed regex URL is split into its leading literal path segments (e.g. {@code ^/api/v1/users/[0-9]+$}
+ * gives {@code [api, v1, users]}) and the stub position is stored under the trie node of its last literal segment.
+ * A stub without a literal prefix lives in the root node. Routing an incoming URL walks the trie segment by segment
+ * and collects the positions stored along the path, so only the stubs whose literal prefix matches the incoming path
+ * are compared with it.
+ */
+final class UrlSegmentTrie {
+
+    private static final char SEGMENT_SEPARATOR = '/';
+    private static final String QUANTIFIERS = "?*+{";
+
+    private final Node root;
+
+    UrlSegmentTrie() {
+        this.root = new Node();
+    }
+
+    void add(final String stubbedUri, final int position) {
+        Node node = root;
+        for (final String segment : literalPrefixSegments(stubbedUri)) {
+            node = node.children.computeIfAbsent(segment, key -> new Node());
+        }
+        node.positions.add(position);
+    }
+
+    /**
+     * @param assertingUri incoming URL path
+     * @return positions of the stubs whose literal URL prefix matches the incoming path, in ascending order
+     */
+    int[] route(final String assertingUri) {
+        final List<List<Integer>> routes = new ArrayList<>();
+        routes.add(root.positions);
+
+        if (!isNotSet(assertingUri) && assertingUri.charAt(0) == SEGMENT_SEPARATOR) {
+            Node node = root;
+            int segmentStart = 1;
+            while (segmentStart <= assertingUri.length()) {
+                int segmentEnd = assertingUri.indexOf(SEGMENT_SEPARATOR, segmentStart);
+                if (segmentEnd < 0) {
+                    segmentEnd = assertingUri.length();
+                }
+                node = node.children.get(assertingUri.substring(segmentStart, segmentEnd));
+                if (node == null) {
+                    break;
+                }
+                routes.add(node.positions);
+                segmentStart = segmentEnd + 1;
+            }
+        }
+
+        return merge(routes);
+    }
+
+    /**
+     * Extracts the path segments that every URL matched by the given regex must start with. The extraction is
+     * conservative: whenever a segment is not a plain literal, or top-level alternation could make the prefix
+     * optional, the prefix stops there.
+     */
+    @VisibleForTesting
+    static List<String> literalPrefixSegments(final String stubbedUri) {
+        if (isNotSet(stubbedUri) || hasTopLevelAlternation(stubbedUri)) {
+            return Collections.emptyList();
+        }
+
+        String pattern = stubbedUri.startsWith("^") ? stubbedUri.substring(1) : stubbedUri;
+        if (pattern.endsWith("$") && !pattern.endsWith("\\$")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        if (pattern.isEmpty() || pattern.charAt(0) != SEGMENT_SEPARATOR) {
+            return Collections.emptyList();
+        }
+
+        final List<String> segments = new ArrayList<>();
+        int segmentStart = 1;
+        while (segmentStart <= pattern.length()) {
+            final int separatorIdx = pattern.indexOf(SEGMENT_SEPARATOR, segmentStart);
+            final boolean isLastSegment = separatorIdx < 0;
+            final int segmentEnd = isLastSegment ? pattern.length() : separatorIdx;
+            final String segment = pattern.substring(segmentStart, segmentEnd);
+
+            if (REGEX_META_CHARS.matcher(segment).find()) {
+                break;
+            }
+            // A quantifier right after the separator makes it optional, e.g.: /users/?
+            if (!isLastSegment && segmentEnd + 1 < pattern.length() && QUANTIFIERS.indexOf(pattern.charAt(segmentEnd + 1)) >= 0) {
+                break;
+            }
+            segments.add(segment);
+            segmentStart = segmentEnd + 1;
+        }
+
+        return segments;
+    }
+
+    static boolean hasTopLevelAlternation(final String pattern) {
+        int groupDepth = 0;
+        boolean inCharacterClass = false;
+        for (int idx = 0; idx < pattern.length(); idx++) {
+            final char character = pattern.charAt(idx);
+            if (character == '\\') {
+                idx++;
+            } else if (inCharacterClass) {
+                inCharacterClass = character != ']';
+            } else if (character == '[') {
+                inCharacterClass = true;
+            } else if (character == '(') {
+                groupDepth++;
+            } else if (character == ')') {
+                groupDepth--;
+            } else if (character == '|' && groupDepth <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] merge(final List<List<Integer>> routes) {
+        int total = 0;
+        for (final List<Integer> route : routes) {
+            total += route.size();
+        }
+
+        final int[] merged = new int[total];
+        int offset = 0;
+        for (final List<Integer> route : routes) {
+            for (final Integer position : route) {
+                merged[offset++] = position;
+            }
+        }
+        Arrays.sort(merged);
+
+        return merged;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Integer> positions = new ArrayList<>();
+    }
+}
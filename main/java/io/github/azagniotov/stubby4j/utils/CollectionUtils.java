@@ -1,10 +1,6 @@
 package io.github.azagniotov.stubby4j.utils;
 
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * @author Alexander Zagniotov
@@ -16,43 +12,28 @@ public final class CollectionUtils {
 
     }
 
+    /**
+     * @return an immutable map of the query params, in the order they appear in the query string
+     */
     public static Map<String, String> constructParamMap(final String requestQueryString) {
         if (!StringUtils.isSet(requestQueryString)) {
-            return new LinkedHashMap<>();
+            return QueryParameters.EMPTY;
         }
 
-        final Map<String, String> paramMap = new LinkedHashMap<>();
-        final String[] pairs = requestQueryString.split("&");
-        for (final String pair : pairs) {
-            final String[] splittedPair = pair.split("=");
-
-            final String splittedPairKey = splittedPair[0];
-            String splittedPairValue = splittedPair.length > 1 ? splittedPair[1] : "";
-
-            if (StringUtils.isWithinSquareBrackets(splittedPairValue)) {
-                final String cleansedValue = StringUtils.decodeUrlEncodedQuotes(StringUtils.removeSquareBrackets(splittedPairValue));
-                final String bracketedQueryValueAsCSV = Arrays.asList(cleansedValue.split(",")).toString();
-                splittedPairValue = StringUtils.trimSpacesBetweenCSVElements(bracketedQueryValueAsCSV);
-            }
-
-            paramMap.put(splittedPairKey, StringUtils.decodeUrlEncoded(splittedPairValue));
-        }
-        return paramMap;
+        return QueryParameters.parse(requestQueryString);
     }
 
     public static String constructQueryString(final Map<String, String> query) {
-        final Set<Map.Entry<String, String>> mapEntries = query.entrySet();
-        final Iterator<Map.Entry<String, String>> iterator = mapEntries.iterator();
-        final StringBuilder queryStringBuilder = new StringBuilder();
+        if (query instanceof QueryParameters) {
+            return ((QueryParameters) query).toQueryString();
+        }
 
-        while (iterator.hasNext()) {
-            final Map.Entry<String, String> entry = iterator.next();
-            final String pair = String.format("%s=%s", entry.getKey(), entry.getValue());
-            queryStringBuilder.append(pair);
-            if (iterator.hasNext()) {
+        final StringBuilder queryStringBuilder = new StringBuilder();
+        for (final Map.Entry<String, String> entry : query.entrySet()) {
+            if (queryStringBuilder.length() > 0) {
                 queryStringBuilder.append('&');
             }
-
+            queryStringBuilder.append(entry.getKey()).append('=').append(entry.getValue());
         }
         return queryStringBuilder.toString();
     }
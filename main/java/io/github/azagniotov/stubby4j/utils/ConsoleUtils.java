@@ -26,9 +26,8 @@ import org.eclipse.jetty.http.HttpStatus;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Locale;
+import java.util.TimeZone;
 
 /**
  * @author Alexander Zagniotov
@@ -36,7 +35,9 @@ import java.util.Locale;
  */
 public final class ConsoleUtils {
 
+    private static final long SECONDS_IN_DAY = 24 * 60 * 60;
     private static boolean debug = false;
+    private static volatile CachedTime cachedTime = new CachedTime(Long.MIN_VALUE, "");
 
     private ConsoleUtils() {
 
@@ -45,14 +46,13 @@ public final class ConsoleUtils {
     @CoberturaIgnore
     public static void logIncomingRequestError(final HttpServletRequest request, final String source, final String error) {
 
-        final String logMessage = String.format("[%s] -> %s [%s]%s: %s",
+        ANSITerminal.error("[%s] -> %s [%s]%s: %s",
                 getTime(),
                 request.getMethod(),
                 source,
                 request.getRequestURI(),
                 error
         );
-        ANSITerminal.error(logMessage);
     }
 
     @CoberturaIgnore
@@ -65,12 +65,11 @@ public final class ConsoleUtils {
     @CoberturaIgnore
     public static void logIncomingRequest(final HttpServletRequest request) {
 
-        final String logMessage = String.format("[%s] -> %s [%s]",
+        ANSITerminal.incoming("[%s] -> %s [%s]",
                 getTime(),
                 request.getMethod(),
                 request.getRequestURI()
         );
-        ANSITerminal.incoming(logMessage);
 
         if (debug) {
             ConsoleUtils.logRawIncomingRequest(request);
@@ -90,23 +89,20 @@ public final class ConsoleUtils {
     public static void logOutgoingResponse(final String url, final HttpServletResponse response) {
         final int status = response.getStatus();
 
-        final String logMessage = String.format("[%s] <- %s [%s] %s",
-                getTime(),
-                status,
-                url,
-                HttpStatus.getMessage(status)
-        );
+        // The message is formatted by the console writer, off the request thread when async output is enabled
+        final String format = "[%s] <- %s [%s] %s";
+        final Object[] args = {getTime(), status, url, HttpStatus.getMessage(status)};
 
         if (status >= HttpStatus.BAD_REQUEST_400) {
-            ANSITerminal.error(logMessage);
+            ANSITerminal.error(format, args);
         } else if (status >= HttpStatus.MULTIPLE_CHOICES_300) {
-            ANSITerminal.warn(logMessage);
+            ANSITerminal.warn(format, args);
         } else if (status >= HttpStatus.OK_200) {
-            ANSITerminal.ok(logMessage);
+            ANSITerminal.ok(format, args);
         } else if (status >= HttpStatus.CONTINUE_100) {
-            ANSITerminal.info(logMessage);
+            ANSITerminal.info(format, args);
         } else {
-            ANSITerminal.log(logMessage);
+            ANSITerminal.log(format, args);
         }
     }
 
@@ -117,14 +113,30 @@ public final class ConsoleUtils {
         ANSITerminal.loaded(loadedMsg);
     }
 
+    /**
+     * The formatted time is cached for the current second, so logging many requests within the same second
+     * does not allocate a {@link java.util.Calendar} and format the time for each of them.
+     *
+     * @return current wall clock time as HH:mm:ss
+     */
     @CoberturaIgnore
     public static String getTime() {
-        final Calendar now = Calendar.getInstance(Locale.US);
-        return String.format("%02d:%02d:%02d",
-                now.get(Calendar.HOUR_OF_DAY),
-                now.get(Calendar.MINUTE),
-                now.get(Calendar.SECOND)
+        final long nowMillis = System.currentTimeMillis();
+        final long epochSecond = nowMillis / 1000;
+        final CachedTime cached = cachedTime;
+        if (cached.epochSecond == epochSecond) {
+            return cached.formatted;
+        }
+
+        final long localSecondOfDay = Math.floorMod((nowMillis + TimeZone.getDefault().getOffset(nowMillis)) / 1000, SECONDS_IN_DAY);
+        final String formatted = String.format("%02d:%02d:%02d",
+                localSecondOfDay / 3600,
+                (localSecondOfDay / 60) % 60,
+                localSecondOfDay % 60
         );
+        cachedTime = new CachedTime(epochSecond, formatted);
+
+        return formatted;
     }
 
     /**
@@ -136,4 +148,14 @@ public final class ConsoleUtils {
     public static void enableDebug(final boolean isDebug) {
         debug = isDebug;
     }
+
+    private static final class CachedTime {
+        private final long epochSecond;
+        private final String formatted;
+
+        private CachedTime(final long epochSecond, final String formatted) {
+            this.epochSecond = epochSecond;
+            this.formatted = formatted;
+        }
+    }
 }
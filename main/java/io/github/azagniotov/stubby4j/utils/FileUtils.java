@@ -28,8 +28,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -65,6 +68,8 @@ public final class FileUtils {
     private static final String LINE_SEPARATOR_MAC_OS_PRE_X = "\r";
     private static final String LINE_SEPARATOR_WINDOWS = "\r\n";
     private static final String LINE_SEPARATOR_TOKEN = "[_T_O_K_E_N_]";
+    // Smaller binary files are read into the heap, as a mapping takes at least a whole page of address space
+    private static final long MEMORY_MAPPED_FILE_MIN_LENGTH = 1024 * 1024;
 
     private FileUtils() {
 
@@ -119,6 +124,23 @@ public final class FileUtils {
     }
 
 
+    /**
+     * Loads the file content the same way as {@link #fileToBytes(File)}, except that a binary file of at least 1MB is
+     * memory mapped instead of being read into the heap, so that it can be written to a response without copying it.
+     *
+     * @return a read-only buffer of the file content
+     */
+    public static ByteBuffer fileToByteBuffer(final File file) throws IOException {
+        if (isCharacterFile(file) || file.length() < MEMORY_MAPPED_FILE_MIN_LENGTH) {
+            return ByteBuffer.wrap(fileToBytes(file)).asReadOnlyBuffer();
+        }
+
+        // The mapping stays valid after the channel is closed
+        try (final FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
+
     @CoberturaIgnore
     static byte[] binaryFileToBytes(final String dataYamlConfigParentDir, final String relativePath) throws IOException {
         final File contentFile = new File(dataYamlConfigParentDir, relativePath);
@@ -172,7 +194,7 @@ public final class FileUtils {
         return StringUtils.getBytesUtf8(loadedContent);
     }
 
-    private static boolean isCharacterFile(final File file) throws IOException {
+    public static boolean isCharacterFile(final File file) throws IOException {
         return ASCII_TYPES.contains(StringUtils.extractFilenameExtension(file.getName()));
     }
 }
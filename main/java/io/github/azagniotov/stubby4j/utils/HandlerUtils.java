@@ -98,6 +98,10 @@ public final class HandlerUtils {
         try {
             final String requestContent = StringUtils.inputStreamToString(request.getInputStream());
 
+            if (!requestContent.contains("\\/")) {
+                return requestContent;
+            }
+
             return requestContent.replaceAll("\\\\/", "/"); //https://code.google.com/p/snakeyaml/issues/detail?id=93
         } catch (final Exception ex) {
             final String err = String.format("Error when extracting POST body: %s, returning null..", ex.toString());
@@ -106,6 +110,57 @@ public final class HandlerUtils {
         }
     }
 
+    /**
+     * Picks the content coding that a response body can be precompressed in, e.g.: "gzip" for
+     * "Accept-Encoding: deflate;q=0.5, gzip". Gzip wins a tie, as it is the coding that clients support most reliably.
+     *
+     * @param acceptEncoding value of the Accept-Encoding request header
+     * @return "gzip", "deflate" or null if the client accepts neither
+     */
+    public static String negotiateContentCoding(final String acceptEncoding) {
+        if (!StringUtils.isSet(acceptEncoding)) {
+            return null;
+        }
+
+        float gzipQuality = -1;
+        float deflateQuality = -1;
+        float wildcardQuality = -1;
+        for (final String acceptedCoding : acceptEncoding.split(",")) {
+            final String[] codingAndParams = acceptedCoding.split(";");
+            final String coding = StringUtils.toLower(codingAndParams[0].trim());
+            final float quality = parseQuality(codingAndParams);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality, quality);
+            } else if (coding.equals("deflate")) {
+                deflateQuality = Math.max(deflateQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = Math.max(wildcardQuality, quality);
+            }
+        }
+        // Codings that are not listed are acceptable as much as the wildcard is
+        gzipQuality = gzipQuality < 0 ? wildcardQuality : gzipQuality;
+        deflateQuality = deflateQuality < 0 ? wildcardQuality : deflateQuality;
+
+        if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+            return "gzip";
+        }
+        return deflateQuality > 0 ? "deflate" : null;
+    }
+
+    private static float parseQuality(final String[] codingAndParams) {
+        for (int idx = 1; idx < codingAndParams.length; idx++) {
+            final String param = codingAndParams[idx].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2));
+                } catch (final NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
     public static String calculateStubbyUpTime(final long timestamp) {
         final long days = MILLISECONDS.toDays(timestamp);
         final long hours = MILLISECONDS.toHours(timestamp) - DAYS.toHours(MILLISECONDS.toDays(timestamp));
@@ -0,0 +1,192 @@
+package io.github.azagniotov.stubby4j.utils;
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map of query params, parsed from a raw query string in a single pass.
+ * <p>
+ * Names and values are kept in two arrays in the order the names first appeared in the query string, and are
+ * looked up by a linear scan, which beats hashing for the handful of params a query string usually has. The query
+ * string that {@link CollectionUtils#constructQueryString(java.util.Map)} would build from the params is computed
+ * once, on first use.
+ */
+final class QueryParameters extends AbstractMap<String, String> {
+
+    static final QueryParameters EMPTY = new QueryParameters(new String[0], new String[0], 0);
+
+    private final String[] names;
+    private final String[] values;
+    private final int size;
+    private volatile String queryString;
+
+    private QueryParameters(final String[] names, final String[] values, final int size) {
+        this.names = names;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Splits the query string on '&amp;' and every pair on its first '='. The value stops at the following '=', if
+     * any. Empty pairs at the end of the query string are ignored. A name that appears more than once keeps its
+     * first position and its last value.
+     */
+    static QueryParameters parse(final String rawQueryString) {
+        final int length = rawQueryString.length();
+        String[] names = new String[8];
+        String[] values = new String[8];
+        int size = 0;
+        boolean pendingEmptyPair = false;
+
+        int pairStart = 0;
+        while (pairStart <= length) {
+            int pairEnd = rawQueryString.indexOf('&', pairStart);
+            if (pairEnd == -1) {
+                pairEnd = length;
+            }
+
+            if (pairStart == pairEnd) {
+                // Only kept if some non-empty pair follows
+                pendingEmptyPair = true;
+            } else {
+                if (size + 2 > names.length) {
+                    names = Arrays.copyOf(names, names.length * 2);
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                if (pendingEmptyPair) {
+                    size = put(names, values, size, "", "");
+                    pendingEmptyPair = false;
+                }
+
+                final int firstEquals = indexOf(rawQueryString, '=', pairStart, pairEnd);
+                final String name;
+                String value;
+                if (firstEquals == -1) {
+                    name = rawQueryString.substring(pairStart, pairEnd);
+                    value = "";
+                } else {
+                    final int secondEquals = indexOf(rawQueryString, '=', firstEquals + 1, pairEnd);
+                    name = rawQueryString.substring(pairStart, firstEquals);
+                    value = rawQueryString.substring(firstEquals + 1, secondEquals == -1 ? pairEnd : secondEquals);
+                }
+
+                if (StringUtils.isWithinSquareBrackets(value)) {
+                    value = StringUtils.bracketedValueAsCSV(value);
+                }
+                size = put(names, values, size, name, StringUtils.decodeUrlEncoded(value));
+            }
+            pairStart = pairEnd + 1;
+        }
+
+        return size == 0 ? EMPTY : new QueryParameters(names, values, size);
+    }
+
+    private static int put(final String[] names, final String[] values, final int size, final String name, final String value) {
+        for (int idx = 0; idx < size; idx++) {
+            if (names[idx].equals(name)) {
+                values[idx] = value;
+                return size;
+            }
+        }
+        names[size] = name;
+        values[size] = value;
+
+        return size + 1;
+    }
+
+    private static int indexOf(final String value, final char toFind, final int from, final int to) {
+        for (int idx = from; idx < to; idx++) {
+            if (value.charAt(idx) == toFind) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the params joined back into a query string, e.g.: "paramOne=one&amp;paramTwo=two"
+     */
+    String toQueryString() {
+        String current = queryString;
+        if (current == null) {
+            final StringBuilder queryStringBuilder = new StringBuilder();
+            for (int idx = 0; idx < size; idx++) {
+                if (idx > 0) {
+                    queryStringBuilder.append('&');
+                }
+                queryStringBuilder.append(names[idx]).append('=').append(values[idx]);
+            }
+            current = queryStringBuilder.toString();
+            queryString = current;
+        }
+        return current;
+    }
+
+    @Override
+    public String get(final Object name) {
+        for (int idx = 0; idx < size; idx++) {
+            if (names[idx].equals(name)) {
+                return values[idx];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(final Object name) {
+        for (int idx = 0; idx < size; idx++) {
+            if (names[idx].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int idx = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return idx < size;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (idx >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, String> entry = new SimpleImmutableEntry<>(names[idx], values[idx]);
+                        idx++;
+
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -25,6 +25,7 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Arrays;
@@ -36,8 +37,12 @@ import java.util.Map;
 
 public final class ReflectionUtils {
 
+    // Transient fields, i.e.: the state that stubs derive from their properties, are skipped as well
     private static List<String> skipableProperties =
-            Collections.unmodifiableList(Arrays.asList("STUBBY_RESOURCE_ID_HEADER", "regexGroups", "fileBytes"));
+            Collections.unmodifiableList(Arrays.asList(
+                    "STUBBY_RESOURCE_ID_HEADER",
+                    "regexGroups",
+                    "fileBytes"));
 
     private ReflectionUtils() {
 
@@ -57,7 +62,7 @@ public final class ReflectionUtils {
                 }
             });
 
-            if (skipableProperties.contains(field.getName())) {
+            if (Modifier.isTransient(field.getModifiers()) || skipableProperties.contains(field.getName())) {
                 continue;
             }
 
@@ -0,0 +1,117 @@
+package io.github.azagniotov.stubby4j.utils;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response body, header value or file path split into literal and template token segments once, e.g.:
+ * "Hello, <% url.1 %>!" is split into the literal "Hello, ", the token "url.1" and the literal "!".
+ * <p>
+ * A token is the text between a "&lt;%" and the following "%&gt;", without its leading and trailing whitespace.
+ * Rendering walks the segments in order and puts the value of every token in its place, while a token without a
+ * value is rendered as it was written.
+ */
+public final class ResponseTemplate {
+
+    private static final String TOKEN_START = "<%";
+    private static final String TOKEN_END = "%>";
+
+    private final String template;
+    // Per segment: its text (the raw token, for a token segment), its UTF-8 bytes, and its token name, if any
+    private final String[] texts;
+    private final byte[][] textBytes;
+    private final String[] tokenNames;
+    private final boolean hasTokens;
+
+    private ResponseTemplate(final String template, final List<String> texts, final List<String> tokenNames) {
+        this.template = template;
+        this.texts = texts.toArray(new String[0]);
+        this.tokenNames = tokenNames.toArray(new String[0]);
+        this.textBytes = new byte[this.texts.length][];
+        boolean hasTokens = false;
+        for (int idx = 0; idx < this.texts.length; idx++) {
+            this.textBytes[idx] = StringUtils.getBytesUtf8(this.texts[idx]);
+            hasTokens |= this.tokenNames[idx] != null;
+        }
+        this.hasTokens = hasTokens;
+    }
+
+    public static ResponseTemplate compile(final String template) {
+        final List<String> texts = new ArrayList<>();
+        final List<String> tokenNames = new ArrayList<>();
+
+        int literalStart = 0;
+        int tokenStart = template.indexOf(TOKEN_START);
+        while (tokenStart != -1) {
+            final int tokenEnd = template.indexOf(TOKEN_END, tokenStart + TOKEN_START.length());
+            if (tokenEnd == -1) {
+                break;
+            }
+            // The closest "<%" opens the token, e.g.: in "<% <% url.1 %>" the token is "<% url.1 %>"
+            tokenStart = template.lastIndexOf(TOKEN_START, tokenEnd - TOKEN_START.length());
+            if (tokenStart > literalStart) {
+                texts.add(template.substring(literalStart, tokenStart));
+                tokenNames.add(null);
+            }
+            texts.add(template.substring(tokenStart, tokenEnd + TOKEN_END.length()));
+            tokenNames.add(trimWhitespace(template.substring(tokenStart + TOKEN_START.length(), tokenEnd)));
+
+            literalStart = tokenEnd + TOKEN_END.length();
+            tokenStart = template.indexOf(TOKEN_START, literalStart);
+        }
+        if (literalStart < template.length()) {
+            texts.add(template.substring(literalStart));
+            tokenNames.add(null);
+        }
+
+        return new ResponseTemplate(template, texts, tokenNames);
+    }
+
+    public boolean hasTokens() {
+        return hasTokens;
+    }
+
+    public String render(final Map<String, String> tokenValues) {
+        if (!hasTokens) {
+            return template;
+        }
+        final StringBuilder rendered = new StringBuilder(template.length());
+        for (int idx = 0; idx < texts.length; idx++) {
+            final String tokenValue = tokenNames[idx] == null ? null : tokenValues.get(tokenNames[idx]);
+            rendered.append(tokenValue == null ? texts[idx] : tokenValue);
+        }
+        return rendered.toString();
+    }
+
+    /**
+     * Same as writing the UTF-8 bytes of {@link #render(Map)}, without building the rendered string first
+     */
+    public void renderTo(final OutputStream outputStream, final Map<String, String> tokenValues) throws IOException {
+        for (int idx = 0; idx < texts.length; idx++) {
+            final String tokenValue = tokenNames[idx] == null ? null : tokenValues.get(tokenNames[idx]);
+            outputStream.write(tokenValue == null ? textBytes[idx] : StringUtils.getBytesUtf8(tokenValue));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    // Trims the characters that "\\s" matches, like the "<%\\s{0,}token\\s{0,}%>" regex that tokens used to be replaced by
+    private static String trimWhitespace(final String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && StringUtils.isRegexWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && StringUtils.isRegexWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(start, end);
+    }
+}
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Locale;
 import java.util.Map;
@@ -47,7 +48,6 @@ public final class StringUtils {
     private static final CharsetEncoder US_ASCII_ENCODER = Charset.forName("US-ASCII").newEncoder();
 
     private static final String TEMPLATE_TOKEN_LEFT = "<%";
-    private static final String TEMPLATE_TOKEN_RIGHT = "%>";
     private static final Base64.Encoder BASE_64_ENCODER = Base64.getEncoder();
 
     private StringUtils() {
@@ -113,12 +113,8 @@ public final class StringUtils {
         return replaceTokensInString(StringUtils.newStringUtf8(stringBytes), tokensAndValues);
     }
 
-    public static String replaceTokensInString(String template, final Map<String, String> tokensAndValues) {
-        for (final Map.Entry<String, String> entry : tokensAndValues.entrySet()) {
-            final String regexifiedKey = String.format("%s\\s{0,}%s\\s{0,}%s", TEMPLATE_TOKEN_LEFT, entry.getKey(), TEMPLATE_TOKEN_RIGHT);
-            template = template.replaceAll(regexifiedKey, entry.getValue());
-        }
-        return template;
+    public static String replaceTokensInString(final String template, final Map<String, String> tokensAndValues) {
+        return ResponseTemplate.compile(template).render(tokensAndValues);
     }
 
     public static boolean isTokenized(final String target) {
@@ -224,18 +220,61 @@ public final class StringUtils {
         return toCheck.startsWith("%5B") && toCheck.endsWith("%5D") || toCheck.startsWith("[") && toCheck.endsWith("]");
     }
 
+    /**
+     * Decodes the encoded spaces of only one kind, either '%2B', '%20' or '+' (in that order of precedence), and
+     * collapses every run of whitespace into a single space. Values without encoded spaces are returned as they are.
+     */
     static String decodeUrlEncoded(final String toCheck) {
         if (toCheck.contains("%2B")) {
-            return toCheck.replaceAll("%2B", " ").replaceAll("\\s+", " ");
+            return replaceAndCollapseWhitespace(toCheck, "%2B");
         } else if (toCheck.contains("%20")) {
-            return toCheck.replaceAll("%20", " ").replaceAll("\\s+", " ");
-        } else if (toCheck.contains("+")) {
-            return toCheck.replaceAll(Pattern.quote("+"), " ").replaceAll("\\s+", " ");
+            return replaceAndCollapseWhitespace(toCheck, "%20");
+        } else if (toCheck.indexOf('+') != -1) {
+            return replaceAndCollapseWhitespace(toCheck, "+");
         }
 
         return toCheck;
     }
 
+    // Same as replacing the encoded space with a space, and then every match of "\\s+" with a single space
+    private static String replaceAndCollapseWhitespace(final String toCheck, final String encodedSpace) {
+        final StringBuilder decoded = new StringBuilder(toCheck.length());
+        boolean withinWhitespace = false;
+        int idx = 0;
+        while (idx < toCheck.length()) {
+            final boolean isEncodedSpace = toCheck.startsWith(encodedSpace, idx);
+            final char character = toCheck.charAt(idx);
+            if (isEncodedSpace || isRegexWhitespace(character)) {
+                if (!withinWhitespace) {
+                    decoded.append(' ');
+                    withinWhitespace = true;
+                }
+                idx += isEncodedSpace ? encodedSpace.length() : 1;
+            } else {
+                decoded.append(character);
+                withinWhitespace = false;
+                idx++;
+            }
+        }
+        return decoded.toString();
+    }
+
+    // The characters that "\\s" matches
+    static boolean isRegexWhitespace(final char character) {
+        return character == ' ' || character == '\t' || character == '\n' || character == '\u000B' || character == '\f' || character == '\r';
+    }
+
+    /**
+     * Turns a bracketed query param value, e.g.: "[%27id%27, %27uuid%27]", into a comma separated list
+     * without spaces after the commas, e.g.: "['id','uuid']"
+     */
+    static String bracketedValueAsCSV(final String bracketedValue) {
+        final String cleansedValue = decodeUrlEncodedQuotes(removeSquareBrackets(bracketedValue));
+        final String bracketedQueryValueAsCSV = Arrays.asList(cleansedValue.split(",")).toString();
+
+        return trimSpacesBetweenCSVElements(bracketedQueryValueAsCSV);
+    }
+
     static String pluralize(final long timeUnit) {
         return timeUnit == 1 ? "" : "s";
     }
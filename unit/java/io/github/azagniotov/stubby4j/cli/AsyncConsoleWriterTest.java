@@ -0,0 +1,126 @@
+package io.github.azagniotov.stubby4j.cli;
+
+import io.github.azagniotov.stubby4j.utils.StringUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class AsyncConsoleWriterTest {
+
+    @Test
+    public void shouldWriteOutAllMessagesInOrder_WhenStopped() throws Exception {
+        final ByteArrayOutputStream consoleCaptor = new ByteArrayOutputStream();
+        final PrintStream console = new PrintStream(consoleCaptor, false, StringUtils.UTF_8);
+        final AsyncConsoleWriter asyncConsoleWriter = new AsyncConsoleWriter(16, ANSITerminal.OverflowPolicy.BLOCK, () -> console);
+
+        for (int idx = 0; idx < 100; idx++) {
+            asyncConsoleWriter.write("", "message " + idx);
+        }
+        asyncConsoleWriter.stop();
+
+        final String[] lines = consoleCaptor.toString(StringUtils.UTF_8).split(System.lineSeparator());
+        assertThat(lines).hasLength(100);
+        for (int idx = 0; idx < 100; idx++) {
+            assertThat(lines[idx]).isEqualTo("message " + idx + ANSITerminal.RESET);
+        }
+        assertThat(asyncConsoleWriter.getDroppedEvents()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCountDroppedMessages_WhenBufferIsFull() throws Exception {
+        final ByteArrayOutputStream consoleCaptor = new ByteArrayOutputStream();
+        final CountDownLatch writerBlocked = new CountDownLatch(1);
+        final CountDownLatch releaseWriter = new CountDownLatch(1);
+        final PrintStream slowConsole = new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+                consoleCaptor.write(b);
+            }
+
+            @Override
+            public void flush() {
+                writerBlocked.countDown();
+                try {
+                    releaseWriter.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, false);
+        final AsyncConsoleWriter asyncConsoleWriter = new AsyncConsoleWriter(4, ANSITerminal.OverflowPolicy.DROP, () -> slowConsole);
+
+        asyncConsoleWriter.write("", "first");
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int idx = 0; idx < 6; idx++) {
+            asyncConsoleWriter.write("", "buffered " + idx);
+        }
+        assertThat(asyncConsoleWriter.getDroppedEvents()).isEqualTo(2);
+
+        releaseWriter.countDown();
+        asyncConsoleWriter.stop();
+
+        final String consoleOutput = consoleCaptor.toString(StringUtils.UTF_8);
+        assertThat(consoleOutput).contains("buffered 3");
+        assertThat(consoleOutput).doesNotContain("buffered 4");
+    }
+
+    @Test
+    public void shouldFormatMessageOnWriterThread_WhenWrittenWithArguments() throws Exception {
+        final ByteArrayOutputStream consoleCaptor = new ByteArrayOutputStream();
+        final PrintStream console = new PrintStream(consoleCaptor, false, StringUtils.UTF_8);
+        final AsyncConsoleWriter asyncConsoleWriter = new AsyncConsoleWriter(16, ANSITerminal.OverflowPolicy.BLOCK, () -> console);
+        final Object formattingThread = new Object() {
+            @Override
+            public String toString() {
+                return Thread.currentThread().getName();
+            }
+        };
+
+        asyncConsoleWriter.write("", "[%s] <- %s formatted by %s", "12:00:00", 200, formattingThread);
+        asyncConsoleWriter.stop();
+
+        assertThat(consoleCaptor.toString(StringUtils.UTF_8))
+                .isEqualTo("[12:00:00] <- 200 formatted by AsyncConsoleWriter" + ANSITerminal.RESET + System.lineSeparator());
+    }
+
+    @Test
+    public void shouldWriteOutMessageAsIs_WhenWrittenWithoutArguments() throws Exception {
+        final ByteArrayOutputStream consoleCaptor = new ByteArrayOutputStream();
+        final PrintStream console = new PrintStream(consoleCaptor, false, StringUtils.UTF_8);
+        final AsyncConsoleWriter asyncConsoleWriter = new AsyncConsoleWriter(16, ANSITerminal.OverflowPolicy.BLOCK, () -> console);
+
+        asyncConsoleWriter.write("", "100% of %s");
+        asyncConsoleWriter.stop();
+
+        assertThat(consoleCaptor.toString(StringUtils.UTF_8)).isEqualTo("100% of %s" + ANSITerminal.RESET + System.lineSeparator());
+    }
+
+    @Test
+    public void shouldWriteOutMessage_WhenWrittenAfterWriterWentIdle() throws Exception {
+        final ByteArrayOutputStream consoleCaptor = new ByteArrayOutputStream();
+        final CountDownLatch written = new CountDownLatch(2);
+        final PrintStream console = new PrintStream(consoleCaptor, false, StringUtils.UTF_8) {
+            @Override
+            public void flush() {
+                super.flush();
+                written.countDown();
+            }
+        };
+        final AsyncConsoleWriter asyncConsoleWriter = new AsyncConsoleWriter(16, ANSITerminal.OverflowPolicy.BLOCK, () -> console);
+
+        asyncConsoleWriter.write("", "first");
+        TimeUnit.MILLISECONDS.sleep(200);
+        asyncConsoleWriter.write("", "second");
+
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        asyncConsoleWriter.stop();
+        assertThat(consoleCaptor.toString(StringUtils.UTF_8)).contains("second");
+    }
+}
@@ -74,6 +74,107 @@ public class CommandLineIntepreterTest {
         assertThat(isDebug).isTrue();
     }
 
+    @Test
+    public void testGetLogLevelWhenLongOptionGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--log_level", "info"});
+        final ANSITerminal.Level level = commandLineInterpreter.getLogLevel();
+
+        assertThat(level).isEqualTo(ANSITerminal.Level.INFO);
+    }
+
+    @Test
+    public void testGetLogLevelWhenOptionNotGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--mute"});
+        final ANSITerminal.Level level = commandLineInterpreter.getLogLevel();
+
+        assertThat(level).isEqualTo(ANSITerminal.Level.TRACE);
+    }
+
+    @Test
+    public void testGetLogLevelWhenInvalidValueGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--log_level", "debug"});
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value 'debug' was provided using command line option '--log_level', allowed values are: 'trace', 'info'.");
+
+        commandLineInterpreter.getLogLevel();
+    }
+
+    @Test
+    public void testParallelMatchingThresholdWhenParallelMatchingOptionGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--parallel_matching", "2048"});
+        final Map<String, String> params = commandLineInterpreter.getCommandlineParams();
+
+        assertThat(params.get(CommandLineInterpreter.OPTION_PARALLEL_MATCHING)).isEqualTo("2048");
+    }
+
+    @Test
+    public void testGetParallelMatchingThresholdWhenOptionGivenWithAndWithoutValue() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--parallel_matching", " 2048 "});
+
+        assertThat(commandLineInterpreter.getParallelMatchingThreshold()).isEqualTo(2048);
+        assertThat(CommandLineInterpreter.toParallelMatchingThreshold(null)).isEqualTo(CommandLineInterpreter.DEFAULT_PARALLEL_MATCHING_THRESHOLD);
+    }
+
+    @Test
+    public void testGetParallelMatchingThresholdWhenInvalidValueGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--parallel_matching", "many"});
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value 'many' was provided using command line option '--parallel_matching', allowed values are: positive integers.");
+
+        commandLineInterpreter.getParallelMatchingThreshold();
+    }
+
+    @Test
+    public void testToParallelMatchingThresholdWhenValueIsNotPositive() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value '0' was provided using command line option '--parallel_matching', allowed values are: positive integers.");
+
+        CommandLineInterpreter.toParallelMatchingThreshold("0");
+    }
+
+    @Test
+    public void testMatchTracingWhenMatchTracingOptionGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--match_tracing"});
+        final Map<String, String> params = commandLineInterpreter.getCommandlineParams();
+
+        assertThat(params.containsKey(CommandLineInterpreter.OPTION_MATCH_TRACING)).isTrue();
+    }
+
+    @Test
+    public void testToOverflowPolicyWhenAsyncConsoleOptionGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--async_console", "block"});
+        final Map<String, String> params = commandLineInterpreter.getCommandlineParams();
+
+        assertThat(CommandLineInterpreter.toOverflowPolicy(params.get(CommandLineInterpreter.OPTION_ASYNC_CONSOLE))).isEqualTo(ANSITerminal.OverflowPolicy.BLOCK);
+        assertThat(CommandLineInterpreter.toOverflowPolicy(null)).isEqualTo(ANSITerminal.OverflowPolicy.DROP);
+    }
+
+    @Test
+    public void testGetOverflowPolicyWhenAsyncConsoleOptionGiven() throws Exception {
+        final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
+        commandLineInterpreter.parseCommandLine(new String[]{"--async_console", " Block "});
+
+        assertThat(commandLineInterpreter.getOverflowPolicy()).isEqualTo(ANSITerminal.OverflowPolicy.BLOCK);
+    }
+
+    @Test
+    public void testToOverflowPolicyWhenInvalidValueGiven() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value 'wait' was provided using command line option '--async_console', allowed values are: 'drop', 'block'.");
+
+        CommandLineInterpreter.toOverflowPolicy("wait");
+    }
+
     @Test
     public void testIsAdminPortalDisabledWhenLongOptionGiven() throws Exception {
         final CommandLineInterpreter commandLineInterpreter = new CommandLineInterpreter();
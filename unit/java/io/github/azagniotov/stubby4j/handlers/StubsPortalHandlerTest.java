@@ -16,6 +16,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
@@ -26,8 +27,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static com.google.common.truth.Truth.assertThat;
 import static io.github.azagniotov.stubby4j.handlers.strategy.stubs.UnauthorizedResponseHandlingStrategy.NO_AUTHORIZATION_HEADER;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -64,6 +70,9 @@ public class StubsPortalHandlerTest {
     @Mock
     private Request mockRequest;
 
+    @Mock
+    private AsyncContext mockAsyncContext;
+
     @BeforeClass
     public static void beforeClass() throws Exception {
         ANSITerminal.muteConsole(true);
@@ -129,10 +138,11 @@ public class StubsPortalHandlerTest {
         final InputStream inputStream = new ByteArrayInputStream("".getBytes());
         when(mockHttpServletRequest.getInputStream()).thenReturn(getServletInputStream(inputStream));
 
-        setUpStubSearchMockExpectations(requestPathInfo);
+        final StubRequest assertionStubRequest = setUpStubSearchMockExpectations(requestPathInfo);
 
         verify(mockHttpServletResponse, never()).setStatus(HttpStatus.BAD_REQUEST_400);
         verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+        assertThat(assertionStubRequest.getPostBody()).isEmpty();
     }
 
     @Test
@@ -210,9 +220,10 @@ public class StubsPortalHandlerTest {
         final InputStream inputStream = new ByteArrayInputStream(postData.getBytes());
         when(mockHttpServletRequest.getInputStream()).thenReturn(getServletInputStream(inputStream));
 
-        setUpStubSearchMockExpectations(requestPathInfo);
+        final StubRequest assertionStubRequest = setUpStubSearchMockExpectations(requestPathInfo);
 
         verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+        assertThat(assertionStubRequest.getPostBody()).isEqualTo(postData);
     }
 
     @Test
@@ -249,7 +260,61 @@ public class StubsPortalHandlerTest {
         verify(mockPrintWriter, never()).println(SOME_RESULTS_MESSAGE);
     }
 
-    private void setUpStubSearchMockExpectations(final String requestPathInfo) throws Exception {
+    @Test
+    public void shouldDelayResponseOnRequestThread_WhenAsyncIsNotSupported() throws Exception {
+        final String requestPathInfo = "/path/1";
+
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethod.GET.asString());
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
+        when(mockStubResponse.getLatency()).thenReturn("100");
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(new byte[]{});
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        final long before = System.currentTimeMillis();
+        setUpStubSearchMockExpectations(requestPathInfo);
+        final long after = System.currentTimeMillis();
+
+        assertThat(after - before).isAtLeast(100L);
+        verify(mockHttpServletRequest, never()).startAsync();
+        verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+    }
+
+    @Test
+    public void shouldDelayResponseWithoutHoldingRequestThread_WhenAsyncIsSupported() throws Exception {
+        final String requestPathInfo = "/path/1";
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethod.GET.asString());
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(requestPathInfo);
+        when(mockHttpServletRequest.isAsyncSupported()).thenReturn(true);
+        when(mockHttpServletRequest.startAsync()).thenReturn(mockAsyncContext);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(mockAsyncContext).start(any(Runnable.class));
+        doAnswer(invocation -> {
+            completed.countDown();
+            return null;
+        }).when(mockAsyncContext).complete();
+        when(mockStubResponse.getLatency()).thenReturn("100");
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(new byte[]{});
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        final long before = System.currentTimeMillis();
+        setUpStubSearchMockExpectations(requestPathInfo);
+
+        verify(mockHttpServletResponse, never()).setStatus(HttpStatus.OK_200);
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(System.currentTimeMillis() - before).isAtLeast(100L);
+
+        verify(mockAsyncContext, times(1)).setTimeout(0);
+        verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+        verify(mockHttpServletResponse, never()).setStatus(HttpStatus.INTERNAL_SERVER_ERROR_500);
+    }
+
+    private StubRequest setUpStubSearchMockExpectations(final String requestPathInfo) throws Exception {
         when(mockStubRepository.toStubRequest(mockHttpServletRequest)).thenCallRealMethod();
         final StubRequest assertionStubRequest = mockStubRepository.toStubRequest(mockHttpServletRequest);
 
@@ -259,6 +324,8 @@ public class StubsPortalHandlerTest {
 
         final StubsPortalHandler stubsPortalHandler = new StubsPortalHandler(mockStubRepository);
         stubsPortalHandler.handle(requestPathInfo, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
+
+        return assertionStubRequest;
     }
 
     private ServletInputStream getServletInputStream(final InputStream inputStream) {
@@ -5,8 +5,11 @@ import io.github.azagniotov.stubby4j.stubs.StubRequest;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpStatus.Code;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -16,14 +19,23 @@ import org.mockito.junit.MockitoJUnitRunner;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.TreeMap;
 import java.util.UUID;
 
 import static com.google.common.truth.Truth.assertThat;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -64,6 +76,9 @@ public class DefaultResponseHandlingStrategyTest {
     @Mock
     private HttpServletResponse mockHttpServletResponse;
 
+    @Mock
+    private HttpOutput mockHttpOutput;
+
     @InjectMocks
     private DefaultResponseHandlingStrategy defaultResponseHandlingStrategy;
 
@@ -80,31 +95,16 @@ public class DefaultResponseHandlingStrategyTest {
     }
 
     @Test
-    public void shouldVerifyBehaviourWhenHandlingDefaultResponseWithLatency() throws Exception {
-        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
-        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(EMPTY_BYTES);
-        when(mockStubResponse.getLatency()).thenReturn("100");
-        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
-
-        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
-
-        verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
-        verifyMainHeaders(mockHttpServletResponse);
-    }
-
-    @Test
-    public void shouldCheckLatencyDelayWhenHandlingDefaultResponseWithLatency() throws Exception {
+    public void shouldNotApplyLatency_WhenHandlingDefaultResponse() throws Exception {
         when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
         when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
-        when(mockStubResponse.getLatency()).thenReturn("100");
         when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
 
-        long before = System.currentTimeMillis();
         defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
-        long after = System.currentTimeMillis();
-
-        assertThat(after - before).isAtLeast(100L);
 
+        // The latency is applied by the StubsPortalHandler, without holding on to the request thread
+        verify(mockStubResponse, never()).getLatency();
+        verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
         verifyMainHeaders(mockHttpServletResponse);
     }
 
@@ -130,6 +130,191 @@ public class DefaultResponseHandlingStrategyTest {
         verifyMainHeaders(mockHttpServletResponse);
     }
 
+    @Test
+    public void shouldNotBuildRegexGroups_WhenResponseHasNoTemplateTokens() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getHeaders()).thenReturn(new HashMap<String, String>() {{
+            put("Content-Type", "application/json");
+        }});
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockAssertionRequest, never()).getRegexGroups();
+        verify(mockHttpServletResponse, times(1)).setHeader("Content-Type", "application/json");
+    }
+
+    @Test
+    public void shouldSendFileContentAsIs_WhenResponseHasFileContent() throws Exception {
+        final ByteBuffer fileContent = ByteBuffer.wrap(getBytesUtf8(SOME_RESULTS_MESSAGE)).asReadOnlyBuffer();
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getFileContent()).thenReturn(fileContent);
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(mockHttpOutput);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockHttpOutput, times(1)).sendContent(fileContent);
+        verify(mockStubResponse, never()).getResponseBodyAsBytes();
+    }
+
+    @Test
+    public void shouldStreamFile_WhenResponseHasStreamedFile() throws Exception {
+        final File streamedFile = File.createTempFile("stubby-streamed", ".bin");
+        streamedFile.deleteOnExit();
+        Files.write(streamedFile.toPath(), getBytesUtf8(SOME_RESULTS_MESSAGE));
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getStreamedFile()).thenReturn(streamedFile);
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(mockHttpOutput);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockHttpOutput, times(1)).sendContent(any(ReadableByteChannel.class));
+        verify(mockStubResponse, never()).getFileContent();
+        verify(mockStubResponse, never()).getResponseBodyAsBytes();
+    }
+
+    @Test
+    public void shouldSendPrecompressedBody_WhenClientAcceptsGzip() throws Exception {
+        final ByteBuffer precompressedBody = ByteBuffer.wrap(getBytesUtf8(SOME_RESULTS_MESSAGE)).asReadOnlyBuffer();
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockAssertionRequest.getHeader(HttpHeader.ACCEPT_ENCODING.asString())).thenReturn("gzip, deflate");
+        when(mockStubResponse.getPrecompressedBody("gzip", GzipHandler.DEFAULT_MIN_GZIP_SIZE)).thenReturn(precompressedBody);
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(mockHttpOutput);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+        verify(mockHttpServletResponse, times(1)).setContentLength(SOME_RESULTS_MESSAGE.length());
+        verify(mockHttpOutput, times(1)).sendContent(precompressedBody);
+        verify(mockStubResponse, never()).getFileContent();
+        verify(mockStubResponse, never()).getResponseBodyAsBytes();
+    }
+
+    @Test
+    public void shouldSendBodyAsIs_WhenResponseIsNotPrecompressed() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockAssertionRequest.getHeader(HttpHeader.ACCEPT_ENCODING.asString())).thenReturn("gzip");
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockStubResponse, times(1)).getPrecompressedBody("gzip", GzipHandler.DEFAULT_MIN_GZIP_SIZE);
+        verify(mockHttpServletResponse, never()).setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+    }
+
+    @Test
+    public void shouldSendPrecompressedBody_WhenContentTypeIsCompressedByGzipHandler() throws Exception {
+        final ByteBuffer precompressedBody = ByteBuffer.wrap(getBytesUtf8(SOME_RESULTS_MESSAGE)).asReadOnlyBuffer();
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockHttpServletResponse.getContentType()).thenReturn("application/json;charset=UTF-8");
+        when(mockAssertionRequest.getHeader(HttpHeader.ACCEPT_ENCODING.asString())).thenReturn("gzip");
+        when(mockStubResponse.getPrecompressedBody("gzip", GzipHandler.DEFAULT_MIN_GZIP_SIZE)).thenReturn(precompressedBody);
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(mockHttpOutput);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+        verify(mockHttpOutput, times(1)).sendContent(precompressedBody);
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenContentTypeIsNotCompressedByGzipHandler() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockHttpServletResponse.getContentType()).thenReturn("application/octet-stream");
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenContentTypeIsExcludedByGzipHandler() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockHttpServletResponse.getContentType()).thenReturn("image/png");
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenRequestIsHead() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.HEAD)).thenReturn(true);
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenRequestMethodIsNotCompressedByGzipHandler() throws Exception {
+        final StubRequest postRequest = new StubRequest.Builder()
+                .withUrl("/resource")
+                .withMethodPost()
+                .withHeader(HttpHeader.ACCEPT_ENCODING.asString(), "gzip")
+                .build();
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, postRequest);
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenUserAgentIsExcludedByGzipHandler() throws Exception {
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockAssertionRequest.hasMethod(HttpMethod.GET)).thenReturn(true);
+        when(mockAssertionRequest.getHeader(HttpHeader.USER_AGENT.asString())).thenReturn("Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1)");
+        when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
+    @Test
+    public void shouldNotSendPrecompressedBody_WhenStatusHasNoBody() throws Exception {
+        for (final Code bodilessStatus : new Code[]{Code.CONTINUE, Code.NO_CONTENT, Code.NOT_MODIFIED}) {
+            when(mockStubResponse.getHttpStatusCode()).thenReturn(bodilessStatus);
+            when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(EMPTY_BYTES);
+            when(mockHttpServletResponse.getOutputStream()).thenReturn(SERVLET_OUTPUT_STREAM);
+
+            defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+            verify(mockHttpServletResponse, times(1)).setStatus(bodilessStatus.getCode());
+        }
+
+        verify(mockStubResponse, never()).getPrecompressedBody(anyString(), anyInt());
+        verify(mockHttpServletResponse, never()).setHeader(eq(HttpHeader.CONTENT_ENCODING.asString()), anyString());
+    }
+
     private void verifyMainHeaders(final HttpServletResponse mockHttpServletResponse) throws Exception {
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.SERVER.asString(), HandlerUtils.constructHeaderServerName());
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.CONTENT_TYPE.asString(), "text/html;charset=UTF-8");
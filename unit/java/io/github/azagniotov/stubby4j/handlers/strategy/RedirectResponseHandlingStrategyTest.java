@@ -16,6 +16,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import javax.servlet.http.HttpServletResponse;
 import java.io.PrintWriter;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -64,12 +65,13 @@ public class RedirectResponseHandlingStrategyTest {
     }
 
     @Test
-    public void shouldVerifyBehaviourWhenHandlingRedirectResponseWithLatency() throws Exception {
+    public void shouldNotApplyLatency_WhenHandlingRedirectResponse() throws Exception {
         when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.MOVED_PERMANENTLY);
-        when(mockStubResponse.getLatency()).thenReturn("100");
 
         redirectResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
 
+        verify(mockStubResponse, never()).getLatency();
+
         verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.MOVED_PERMANENTLY_301);
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.LOCATION.asString(), mockStubResponse.getHeaders().get("location"));
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.CONNECTION.asString(), "close");
@@ -0,0 +1,65 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class CompiledStubRequestTest {
+
+    @Test
+    public void shouldLowerCaseHeaderKeysAndRemoveAuthorizationHeaders() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("^/resources/[0-9]+$")
+                .withHeader("Content-Type", "application/json")
+                .withYAMLHeaderAuthorizationBasic("Ym9iOnNlY3JldA==")
+                .build();
+
+        final CompiledStubRequest.CompiledMapping headers = CompiledStubRequest.compile(stubbedRequest).getHeaders();
+
+        assertThat(headers.size()).isEqualTo(1);
+        assertThat(headers.keyAt(0)).isEqualTo("content-type");
+        assertThat(headers.valueAt(0)).isEqualTo("application/json");
+        assertThat(headers.templateTokenNameAt(0)).isEqualTo("headers.content-type");
+        assertThat(headers.patternAt(0).pattern()).isEqualTo("application/json");
+    }
+
+    @Test
+    public void shouldPreResolveUrlPattern() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("^/resources/[0-9]+$").build();
+
+        final CompiledStubRequest compiledRequest = CompiledStubRequest.compile(stubbedRequest);
+
+        assertThat(compiledRequest.getUrlPattern().matcher("/resources/123").matches()).isTrue();
+    }
+
+    @Test
+    public void shouldAcceptStubbedMethods() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withMethod("get")
+                .withMethod("PROPFIND")
+                .build();
+
+        final CompiledStubRequest compiledRequest = CompiledStubRequest.compile(stubbedRequest);
+
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods("GET"))).isTrue();
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods("propfind"))).isTrue();
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods("PUT", "get"))).isTrue();
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods("POST"))).isFalse();
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods())).isFalse();
+    }
+
+    @Test
+    public void shouldAcceptAnyMethod_WhenNoMethodStubbed() throws Exception {
+        final CompiledStubRequest compiledRequest = CompiledStubRequest.compile(new StubRequest.Builder().build());
+
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods())).isTrue();
+        assertThat(compiledRequest.acceptsAnyMethodOf(methods("DELETE"))).isTrue();
+    }
+
+    private static HttpMethodSet methods(final String... methods) {
+        return HttpMethodSet.of(Arrays.asList(methods));
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ExternalFileRegistryTest {
+
+    @Test
+    public void shouldShareExternalFile_WhenFileIsReferredToThroughDifferentPaths() throws Exception {
+        final File file = fileFromString("file content");
+        final File relativeFile = new File(file.getParentFile(), "." + File.separator + file.getName());
+
+        final ExternalFile externalFile = ExternalFileRegistry.INSTANCE.register(file);
+
+        assertThat(ExternalFileRegistry.INSTANCE.register(relativeFile)).isSameAs(externalFile);
+        assertThat(externalFile.getCanonicalPath()).isEqualTo(file.getCanonicalPath());
+        assertThat(externalFile.getText()).isSameAs(ExternalFileRegistry.INSTANCE.register(relativeFile).getText());
+    }
+
+    @Test
+    public void shouldRegisterFileAnew_WhenFileWasModified() throws Exception {
+        final File file = fileFromString("file content");
+        final ExternalFile externalFile = ExternalFileRegistry.INSTANCE.register(file);
+        assertThat(externalFile.getText()).isEqualTo("file content");
+
+        Files.write(file.toPath(), "modified file content".getBytes("UTF-8"));
+        assertThat(file.setLastModified(externalFile.getLastModified() + 2000)).isTrue();
+        final ExternalFile modifiedFile = ExternalFileRegistry.INSTANCE.register(file);
+
+        assertThat(modifiedFile).isNotSameAs(externalFile);
+        assertThat(modifiedFile.getText()).isEqualTo("modified file content");
+    }
+
+    private static File fileFromString(final String content) throws Exception {
+        final File file = File.createTempFile("tmp", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+        return file;
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class FileContentStoreTest {
+
+    @Test
+    public void shouldLoadFileOnlyOnce_WhenFileIsLookedUpRepeatedly() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final ExternalFile file = binaryFileOfLength(100);
+
+        final ByteBuffer first = fileContentStore.get(file);
+        final ByteBuffer second = fileContentStore.get(file);
+
+        assertThat(first).isEqualTo(ByteBuffer.wrap(Files.readAllBytes(file.getFile().toPath())));
+        assertThat(second).isEqualTo(first);
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.isReadOnly()).isTrue();
+        assertThat(fileContentStore.size()).isEqualTo(1);
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(100L);
+        assertThat(fileContentStore.getStats().get("hits")).isEqualTo(1L);
+        assertThat(fileContentStore.getStats().get("misses")).isEqualTo(1L);
+        assertThat(fileContentStore.getStats().get("hitRatePercent")).isEqualTo(50L);
+    }
+
+    @Test
+    public void shouldReturnIndependentViews_WhenContentIsConsumed() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final ExternalFile file = binaryFileOfLength(10);
+
+        final ByteBuffer consumed = fileContentStore.get(file);
+        consumed.get(new byte[10]);
+
+        assertThat(consumed.hasRemaining()).isFalse();
+        assertThat(fileContentStore.get(file).remaining()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed_WhenResidentBytesExceedBudget() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(250, 100);
+        final ExternalFile one = binaryFileOfLength(100, (byte) 1);
+        final ExternalFile two = binaryFileOfLength(100, (byte) 2);
+        final ExternalFile three = binaryFileOfLength(100, (byte) 3);
+
+        fileContentStore.get(one);
+        fileContentStore.get(two);
+        fileContentStore.get(one);
+        fileContentStore.get(three);
+
+        assertThat(fileContentStore.contains(one)).isTrue();
+        assertThat(fileContentStore.contains(two)).isFalse();
+        assertThat(fileContentStore.contains(three)).isTrue();
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(200L);
+        assertThat(fileContentStore.getStats().get("evictions")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldNotKeepContent_WhenFileIsLargerThanMaxEntry() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 100);
+        final ExternalFile file = binaryFileOfLength(101);
+
+        assertThat(fileContentStore.get(file).remaining()).isEqualTo(101);
+        assertThat(fileContentStore.contains(file)).isFalse();
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(0L);
+        assertThat(fileContentStore.getStats().get("uncachedLoads")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldNotKeepContent_WhenFileIsPeekedAt() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final ExternalFile file = binaryFileOfLength(10);
+
+        assertThat(fileContentStore.peek(file).remaining()).isEqualTo(10);
+        assertThat(fileContentStore.contains(file)).isFalse();
+    }
+
+    @Test
+    public void shouldStoreContentOnce_WhenFilesHaveSameContent() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final ExternalFile one = binaryFileOfLength(100);
+        final ExternalFile two = binaryFileOfLength(100);
+
+        fileContentStore.get(one);
+        final ByteBuffer shared = fileContentStore.get(two);
+
+        assertThat(one.getContentHash()).isEqualTo(two.getContentHash());
+        assertThat(shared.remaining()).isEqualTo(100);
+        assertThat(fileContentStore.contains(two)).isTrue();
+        assertThat(fileContentStore.size()).isEqualTo(1);
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(100L);
+    }
+
+    @Test
+    public void shouldEncodeContentOnlyOnce_WhenEncodingIsLookedUpRepeatedly() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final AtomicInteger encodings = new AtomicInteger();
+        final Supplier<Optional<ByteBuffer>> encoder = () -> {
+            encodings.incrementAndGet();
+            return Optional.of(ByteBuffer.wrap(new byte[100]));
+        };
+
+        final ByteBuffer first = fileContentStore.getEncoded("hash", "gzip", encoder);
+        final ByteBuffer second = fileContentStore.getEncoded("hash", "gzip", encoder);
+
+        assertThat(encodings.get()).isEqualTo(1);
+        assertThat(second).isEqualTo(first);
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.isReadOnly()).isTrue();
+        assertThat(fileContentStore.containsEncoded("hash", "gzip")).isTrue();
+        assertThat(fileContentStore.containsEncoded("hash", "deflate")).isFalse();
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(100L);
+    }
+
+    @Test
+    public void shouldNotEncodeContentAgain_WhenEncodingIsNotWorthKeeping() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        final AtomicInteger encodings = new AtomicInteger();
+        final Supplier<Optional<ByteBuffer>> encoder = () -> {
+            encodings.incrementAndGet();
+            return Optional.empty();
+        };
+
+        assertThat(fileContentStore.getEncoded("hash", "gzip", encoder)).isNull();
+        assertThat(fileContentStore.getEncoded("hash", "gzip", encoder)).isNull();
+        assertThat(encodings.get()).isEqualTo(1);
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void shouldEvictEncodingsAndFileContentAlike_WhenResidentBytesExceedBudget() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(250, 100);
+        final ExternalFile one = binaryFileOfLength(100, (byte) 1);
+        final ExternalFile two = binaryFileOfLength(100, (byte) 2);
+
+        fileContentStore.getEncoded("hash", "gzip", () -> Optional.of(ByteBuffer.wrap(new byte[100])));
+        fileContentStore.get(one);
+        fileContentStore.get(two);
+
+        assertThat(fileContentStore.containsEncoded("hash", "gzip")).isFalse();
+        assertThat(fileContentStore.contains(one)).isTrue();
+        assertThat(fileContentStore.contains(two)).isTrue();
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(200L);
+        assertThat(fileContentStore.getStats().get("evictions")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldReleaseResidentBytes_WhenCleared() throws Exception {
+        final FileContentStore fileContentStore = new FileContentStore(1024, 1024);
+        fileContentStore.get(binaryFileOfLength(10, (byte) 1));
+        fileContentStore.get(binaryFileOfLength(20, (byte) 2));
+
+        fileContentStore.clear();
+
+        assertThat(fileContentStore.size()).isEqualTo(0);
+        assertThat(fileContentStore.getResidentBytes()).isEqualTo(0L);
+    }
+
+    private static ExternalFile binaryFileOfLength(final int length) throws Exception {
+        return binaryFileOfLength(length, (byte) 0);
+    }
+
+    private static ExternalFile binaryFileOfLength(final int length, final byte seed) throws Exception {
+        final byte[] content = new byte[length];
+        for (int idx = 0; idx < length; idx++) {
+            content[idx] = (byte) (seed + idx);
+        }
+        final File file = File.createTempFile("tmp", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+
+        return ExternalFile.of(file);
+    }
+}
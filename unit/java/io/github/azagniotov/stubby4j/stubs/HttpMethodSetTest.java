@@ -0,0 +1,43 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.eclipse.jetty.http.HttpMethod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class HttpMethodSetTest {
+
+    @Test
+    public void shouldFoldStandardMethodsIntoMask_WhenMethodsInAnyCase() throws Exception {
+        final HttpMethodSet methodSet = HttpMethodSet.of(Arrays.asList("get", "Post", "PROPFIND"));
+
+        assertThat(methodSet.getMask()).isEqualTo(HttpMethodSet.bitOf(HttpMethod.GET) | HttpMethodSet.bitOf(HttpMethod.POST));
+        assertThat(methodSet.getNonStandardMethods()).containsExactly("PROPFIND");
+        assertThat(methodSet.asList()).containsExactly("GET", "POST", "PROPFIND").inOrder();
+        assertThat(methodSet.contains(HttpMethod.POST)).isTrue();
+        assertThat(methodSet.contains(HttpMethod.PUT)).isFalse();
+    }
+
+    @Test
+    public void shouldIntersect_WhenAnyMethodInCommon() throws Exception {
+        final HttpMethodSet methodSet = HttpMethodSet.of(Arrays.asList("GET", "PROPFIND"));
+
+        assertThat(methodSet.intersects(HttpMethodSet.of(Collections.singletonList("get")))).isTrue();
+        assertThat(methodSet.intersects(HttpMethodSet.of(Collections.singletonList("propfind")))).isTrue();
+        assertThat(methodSet.intersects(HttpMethodSet.of(Arrays.asList("PUT", "MKCOL")))).isFalse();
+        assertThat(methodSet.intersects(HttpMethodSet.of(Collections.emptyList()))).isFalse();
+    }
+
+    @Test
+    public void shouldBeEqual_WhenSameMethodsInDifferentCaseAndOrder() throws Exception {
+        final HttpMethodSet methodSet = HttpMethodSet.of(Arrays.asList("GET", "PROPFIND"));
+        final HttpMethodSet otherMethodSet = HttpMethodSet.of(Arrays.asList("propfind", "get"));
+
+        assertThat(methodSet).isEqualTo(otherMethodSet);
+        assertThat(methodSet.hashCode()).isEqualTo(otherMethodSet.hashCode());
+    }
+}
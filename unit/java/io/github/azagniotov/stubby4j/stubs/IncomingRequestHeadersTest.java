@@ -0,0 +1,85 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncomingRequestHeadersTest {
+
+    @Mock
+    private HttpServletRequest mockHttpServletRequest;
+
+    @Test
+    public void shouldFetchLookedUpHeaderOnlyOnce_WhenLookedUpRepeatedly() throws Exception {
+        when(mockHttpServletRequest.getHeader("content-type")).thenReturn("application/json");
+
+        final IncomingRequestHeaders headers = new IncomingRequestHeaders(mockHttpServletRequest);
+
+        assertThat(headers.get("content-type")).isEqualTo("application/json");
+        assertThat(headers.containsKey("content-type")).isTrue();
+        assertThat(headers.get("content-type")).isEqualTo("application/json");
+
+        verify(mockHttpServletRequest, times(1)).getHeader("content-type");
+        verify(mockHttpServletRequest, never()).getHeaderNames();
+    }
+
+    @Test
+    public void shouldRememberAbsentHeader_WhenLookedUpRepeatedly() throws Exception {
+        final IncomingRequestHeaders headers = new IncomingRequestHeaders(mockHttpServletRequest);
+
+        assertThat(headers.containsKey("authorization")).isFalse();
+        assertThat(headers.get("authorization")).isNull();
+
+        verify(mockHttpServletRequest, times(1)).getHeader("authorization");
+    }
+
+    @Test
+    public void shouldNotBeEmpty_WhenRequestHasHeaders() throws Exception {
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("Accept")));
+
+        final IncomingRequestHeaders headers = new IncomingRequestHeaders(mockHttpServletRequest);
+
+        assertThat(headers.isEmpty()).isFalse();
+        verify(mockHttpServletRequest, never()).getHeader("Accept");
+    }
+
+    @Test
+    public void shouldBeEmpty_WhenRequestHasNoHeaderNames() throws Exception {
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(null);
+
+        final IncomingRequestHeaders headers = new IncomingRequestHeaders(mockHttpServletRequest);
+
+        assertThat(headers.isEmpty()).isTrue();
+        assertThat(headers.entrySet()).isEmpty();
+    }
+
+    @Test
+    public void shouldCopyAllHeadersWithLowerCasedNames_WhenIterated() throws Exception {
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Arrays.asList("Content-Type", "X-Custom")));
+        when(mockHttpServletRequest.getHeader("Content-Type")).thenReturn("application/xml");
+        when(mockHttpServletRequest.getHeader("X-Custom")).thenReturn("custom");
+
+        final IncomingRequestHeaders headers = new IncomingRequestHeaders(mockHttpServletRequest);
+        final Map<String, String> copied = new HashMap<>(headers);
+
+        assertThat(copied).containsExactly("content-type", "application/xml", "x-custom", "custom");
+        assertThat(headers.toString()).isEqualTo("{content-type=application/xml, x-custom=custom}");
+
+        verify(mockHttpServletRequest, times(1)).getHeaderNames();
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class MatchTraceTest {
+
+    @Test
+    public void shouldAddUpCriterionTimingsAcrossCandidates_WhenSeveralCandidatesEvaluated() throws Exception {
+        final MatchTrace matchTrace = new MatchTrace(new MatchTraceStats());
+
+        matchTrace.endCandidate("0", recordUrlOf(matchTrace, 1000), false);
+        matchTrace.endCandidate("1", recordUrlOf(matchTrace, 2000), true);
+        matchTrace.finish();
+
+        assertThat(matchTrace.getEvaluatedCandidates()).isEqualTo(2);
+        assertThat(matchTrace.getCriterionNanos(MatchCriterion.URL)).isAtLeast(3000L);
+        assertThat(matchTrace.getCriterionNanos(MatchCriterion.QUERY)).isEqualTo(0L);
+        assertThat(matchTrace.toHeaderValue()).startsWith("candidates=2; cache=miss; match=1; url=");
+        assertThat(matchTrace.toHeaderValue()).contains("; query=0ns; total=");
+    }
+
+    @Test
+    public void shouldReportCachedNoMatch_WhenNoCandidateEvaluated() throws Exception {
+        final MatchTrace matchTrace = new MatchTrace(new MatchTraceStats());
+
+        matchTrace.cachedNoMatch();
+        matchTrace.finish();
+
+        assertThat(matchTrace.toHeaderValue()).startsWith("candidates=0; cache=no-match; match=none; url=0ns;");
+    }
+
+    @Test
+    public void shouldAggregateEvaluationsPerStub_WhenCandidatesEvaluated() throws Exception {
+        final MatchTraceStats matchTraceStats = new MatchTraceStats();
+        final MatchTrace matchTrace = new MatchTrace(matchTraceStats);
+
+        matchTrace.endCandidate("0", recordUrlOf(matchTrace, 0), false);
+        matchTrace.endCandidate("0", recordUrlOf(matchTrace, 0), true);
+
+        final String json = matchTraceStats.toJson();
+        assertThat(json).startsWith("{\"0\":{");
+        assertThat(json).contains("\"evaluations\":2");
+        assertThat(json).contains("\"matches\":1");
+        assertThat(json).contains("\"histogram\":{\"<");
+    }
+
+    private static long recordUrlOf(final MatchTrace matchTrace, final long elapsedNanos) {
+        final long candidateStartNanos = matchTrace.startCandidate();
+        matchTrace.recordCriterion(MatchCriterion.URL, System.nanoTime() - elapsedNanos);
+
+        return candidateStartNanos;
+    }
+}
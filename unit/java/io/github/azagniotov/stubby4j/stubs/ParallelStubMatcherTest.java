@@ -0,0 +1,64 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ParallelStubMatcherTest {
+
+    private ParallelStubMatcher parallelStubMatcher;
+
+    @Before
+    public void beforeEach() throws Exception {
+        parallelStubMatcher = new ParallelStubMatcher(100, 4);
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        parallelStubMatcher.shutdown();
+    }
+
+    @Test
+    public void shouldReturnLowestMatchingIndex_WhenSeveralCandidatesMatch() throws Exception {
+        final List<StubHttpLifecycle> candidates = buildCandidates(1000);
+        candidates.set(700, buildCandidate("^/items/[0-9]+$"));
+        candidates.set(300, buildCandidate("^/items/.*$"));
+        candidates.set(900, buildCandidate("/items/42"));
+
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/items/42").withMethodGet().build();
+
+        assertThat(parallelStubMatcher.indexOfFirstMatch(assertingRequest, candidates)).isEqualTo(300);
+    }
+
+    @Test
+    public void shouldReturnMinusOne_WhenNoCandidateMatches() throws Exception {
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/items/42").withMethodGet().build();
+
+        assertThat(parallelStubMatcher.indexOfFirstMatch(assertingRequest, buildCandidates(1000))).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldNotParallelize_WhenCandidatesBelowThreshold() throws Exception {
+        assertThat(parallelStubMatcher.isWorthParallelizing(buildCandidates(99))).isFalse();
+        assertThat(parallelStubMatcher.isWorthParallelizing(buildCandidates(100))).isTrue();
+    }
+
+    private static List<StubHttpLifecycle> buildCandidates(final int count) {
+        final List<StubHttpLifecycle> candidates = new ArrayList<>();
+        for (int idx = 0; idx < count; idx++) {
+            candidates.add(buildCandidate("^/resources/" + idx + "/[a-z]+$"));
+        }
+        return candidates;
+    }
+
+    private static StubHttpLifecycle buildCandidate(final String url) {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl(url).withMethodGet().build();
+        return new StubHttpLifecycle.Builder().withRequest(stubbedRequest).build();
+    }
+}
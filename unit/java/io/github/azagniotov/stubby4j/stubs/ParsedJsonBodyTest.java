@@ -0,0 +1,46 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ParsedJsonBodyTest {
+
+    @Test
+    public void shouldHaveSameStructuralHash_WhenKeysAndArrayElementsAreInDifferentOrder() throws Exception {
+        final ParsedJsonBody stubbedBody = ParsedJsonBody.parse("{\"name\": \"stubby\", \"tags\": [1, \"two\", true], \"nested\": {\"a\": null}}");
+        final ParsedJsonBody assertingBody = ParsedJsonBody.parse("{\"nested\": {\"a\": null}, \"tags\": [true, 1, \"two\"], \"name\": \"stubby\"}");
+
+        assertThat(stubbedBody.getStructuralHash()).isEqualTo(assertingBody.getStructuralHash());
+        assertThat(stubbedBody.matches(assertingBody)).isTrue();
+    }
+
+    @Test
+    public void shouldHaveDifferentStructuralHash_WhenIncomingBodyHasExtraKey() throws Exception {
+        final ParsedJsonBody stubbedBody = ParsedJsonBody.parse("{\"name\": \"stubby\"}");
+        final ParsedJsonBody assertingBody = ParsedJsonBody.parse("{\"name\": \"stubby\", \"version\": 4}");
+
+        assertThat(stubbedBody.getStructuralHash()).isNotEqualTo(assertingBody.getStructuralHash());
+        assertThat(stubbedBody.matches(assertingBody)).isFalse();
+    }
+
+    @Test
+    public void shouldNotMatch_WhenLeafValuesDiffer() throws Exception {
+        final ParsedJsonBody stubbedBody = ParsedJsonBody.parse("[{\"id\": 1}, {\"id\": 2}]");
+        final ParsedJsonBody assertingBody = ParsedJsonBody.parse("[{\"id\": 1}, {\"id\": 3}]");
+
+        assertThat(stubbedBody.getStructuralHash()).isEqualTo(assertingBody.getStructuralHash());
+        assertThat(stubbedBody.matches(assertingBody)).isFalse();
+    }
+
+    @Test
+    public void shouldNotMatch_WhenBodyIsNotJson() throws Exception {
+        final ParsedJsonBody stubbedBody = ParsedJsonBody.parse("{\"name\": \"stubby\"}");
+        final ParsedJsonBody assertingBody = ParsedJsonBody.parse("name=stubby");
+
+        assertThat(assertingBody.isParsable()).isFalse();
+        assertThat(stubbedBody.matches(assertingBody)).isFalse();
+        assertThat(assertingBody.matches(stubbedBody)).isFalse();
+    }
+}
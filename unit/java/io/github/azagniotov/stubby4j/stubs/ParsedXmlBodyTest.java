@@ -0,0 +1,40 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ParsedXmlBodyTest {
+
+    @Test
+    public void shouldMatch_WhenDocumentsDifferOnlyInAttributeOrder() throws Exception {
+        final ParsedXmlBody stubbedBody = ParsedXmlBody.parseStubbed("<order id=\"1\" currency=\"AUD\"><item>book</item></order>");
+        final ParsedXmlBody assertingBody = ParsedXmlBody.parseIncoming("<order currency=\"AUD\" id=\"1\"><item>book</item></order>");
+
+        assertThat(stubbedBody.matches(assertingBody)).isTrue();
+    }
+
+    @Test
+    public void shouldMatch_WhenSiblingElementsAreInDifferentOrder() throws Exception {
+        final ParsedXmlBody stubbedBody = ParsedXmlBody.parseStubbed("<order><item>book</item><price>10</price></order>");
+        final ParsedXmlBody assertingBody = ParsedXmlBody.parseIncoming("<order><price>10</price><item>book</item></order>");
+
+        assertThat(stubbedBody.matches(assertingBody)).isTrue();
+    }
+
+    @Test
+    public void shouldNotMatch_WhenTextDiffers() throws Exception {
+        final ParsedXmlBody stubbedBody = ParsedXmlBody.parseStubbed("<order><item>book</item></order>");
+        final ParsedXmlBody assertingBody = ParsedXmlBody.parseIncoming("<order><item>pen</item></order>");
+
+        assertThat(stubbedBody.matches(assertingBody)).isFalse();
+    }
+
+    @Test
+    public void shouldNotBeParsable_WhenBodyIsNotXml() throws Exception {
+        assertThat(ParsedXmlBody.parseIncoming("{\"order\": 1}").isParsable()).isFalse();
+        assertThat(ParsedXmlBody.parseIncoming("<order><item>book</order>").isParsable()).isFalse();
+        assertThat(ParsedXmlBody.parseStubbed("<order/>").isParsable()).isTrue();
+    }
+}
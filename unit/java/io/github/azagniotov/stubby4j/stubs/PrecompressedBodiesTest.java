@@ -0,0 +1,89 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class PrecompressedBodiesTest {
+
+    private static final byte[] COMPRESSIBLE_BODY = repeat("{\"name\": \"stubby4j\", \"precompressed\": true}", 100);
+
+    @Test
+    public void shouldCompressBodyWithGzip_WhenGzipIsRequested() throws Exception {
+        final ByteBuffer body = ByteBuffer.wrap(COMPRESSIBLE_BODY);
+
+        final ByteBuffer gzipped = PrecompressedBodies.compress(PrecompressedBodies.GZIP, body).get();
+
+        assertThat(gzipped.remaining()).isLessThan(COMPRESSIBLE_BODY.length);
+        assertThat(body.remaining()).isEqualTo(COMPRESSIBLE_BODY.length);
+        assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(toBytes(gzipped))))).isEqualTo(COMPRESSIBLE_BODY);
+    }
+
+    @Test
+    public void shouldCompressBodyWithDeflate_WhenDeflateIsRequested() throws Exception {
+        final ByteBuffer deflated = PrecompressedBodies.compress(PrecompressedBodies.DEFLATE, ByteBuffer.wrap(COMPRESSIBLE_BODY)).get();
+
+        assertThat(decompress(new InflaterInputStream(new ByteArrayInputStream(toBytes(deflated))))).isEqualTo(COMPRESSIBLE_BODY);
+    }
+
+    @Test
+    public void shouldNotCompressBody_WhenBodyIsTooSmallOrTooLarge() throws Exception {
+        assertThat(PrecompressedBodies.isWorthCompressing(PrecompressedBodies.MIN_BODY_BYTES - 1, 0)).isFalse();
+        assertThat(PrecompressedBodies.isWorthCompressing(PrecompressedBodies.MIN_BODY_BYTES, 0)).isTrue();
+        assertThat(PrecompressedBodies.isWorthCompressing(PrecompressedBodies.MAX_BODY_BYTES + 1, 0)).isFalse();
+    }
+
+    @Test
+    public void shouldNotCompressBody_WhenBodyIsSmallerThanRequestedMinimum() throws Exception {
+        assertThat(PrecompressedBodies.isWorthCompressing(COMPRESSIBLE_BODY.length, COMPRESSIBLE_BODY.length + 1)).isFalse();
+        assertThat(PrecompressedBodies.isWorthCompressing(COMPRESSIBLE_BODY.length, COMPRESSIBLE_BODY.length)).isTrue();
+    }
+
+    @Test
+    public void shouldNotKeepEncoding_WhenItIsNotSmallerThanBody() throws Exception {
+        final byte[] randomBody = new byte[1024];
+        new Random(42).nextBytes(randomBody);
+
+        assertThat(PrecompressedBodies.compress(PrecompressedBodies.GZIP, ByteBuffer.wrap(randomBody)).isPresent()).isFalse();
+    }
+
+    @Test
+    public void shouldNotCompressBody_WhenCodingIsNotSupported() throws Exception {
+        assertThat(PrecompressedBodies.isSupported("br")).isFalse();
+        assertThat(PrecompressedBodies.compress("br", ByteBuffer.wrap(COMPRESSIBLE_BODY)).isPresent()).isFalse();
+    }
+
+    private static byte[] repeat(final String value, final int times) {
+        final StringBuilder builder = new StringBuilder();
+        for (int idx = 0; idx < times; idx++) {
+            builder.append(value);
+        }
+        return builder.toString().getBytes();
+    }
+
+    private static byte[] toBytes(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+    private static byte[] decompress(final InputStream inputStream) throws Exception {
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[1024];
+        int read;
+        while ((read = inputStream.read(chunk)) != -1) {
+            decompressed.write(chunk, 0, read);
+        }
+        return decompressed.toByteArray();
+    }
+}
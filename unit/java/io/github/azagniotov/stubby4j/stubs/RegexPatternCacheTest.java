@@ -0,0 +1,66 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class RegexPatternCacheTest {
+
+    @Test
+    public void shouldCountHitsAndMisses() throws Exception {
+        final RegexPatternCache regexPatternCache = new RegexPatternCache(10);
+
+        final Pattern first = regexPatternCache.get("^/resource/[0-9]+$", Pattern.MULTILINE);
+        final Pattern second = regexPatternCache.get("^/resource/[0-9]+$", Pattern.MULTILINE);
+
+        assertThat(second).isSameAs(first);
+        assertThat(regexPatternCache.size()).isEqualTo(1);
+        assertThat(regexPatternCache.getHits()).isEqualTo(1);
+        assertThat(regexPatternCache.getMisses()).isEqualTo(1);
+        assertThat(regexPatternCache.getEvictions()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldKeyOnPatternAndFlags() throws Exception {
+        final RegexPatternCache regexPatternCache = new RegexPatternCache(10);
+
+        // "Aa" and "BB" have the same String.hashCode()
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        assertThat(regexPatternCache.get("Aa", Pattern.MULTILINE).pattern()).isEqualTo("Aa");
+        assertThat(regexPatternCache.get("BB", Pattern.MULTILINE).pattern()).isEqualTo("BB");
+
+        final Pattern literal = regexPatternCache.get("Aa", Pattern.LITERAL);
+        assertThat(literal.flags()).isEqualTo(Pattern.LITERAL);
+        assertThat(regexPatternCache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldCompileAsLiteral_WhenPatternIsInvalid() throws Exception {
+        final RegexPatternCache regexPatternCache = new RegexPatternCache(10);
+
+        final Pattern pattern = regexPatternCache.get("[invalid", Pattern.MULTILINE);
+
+        assertThat(pattern.flags()).isEqualTo(Pattern.LITERAL | Pattern.MULTILINE);
+        assertThat(pattern.matcher("[invalid").matches()).isTrue();
+        assertThat(regexPatternCache.contains("[invalid", Pattern.MULTILINE)).isTrue();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed_WhenMaxSizeExceeded() throws Exception {
+        final RegexPatternCache regexPatternCache = new RegexPatternCache(2);
+
+        regexPatternCache.get("one", Pattern.MULTILINE);
+        regexPatternCache.get("two", Pattern.MULTILINE);
+        regexPatternCache.get("one", Pattern.MULTILINE);
+        regexPatternCache.get("three", Pattern.MULTILINE);
+
+        assertThat(regexPatternCache.size()).isEqualTo(2);
+        assertThat(regexPatternCache.getEvictions()).isEqualTo(1);
+        assertThat(regexPatternCache.contains("one", Pattern.MULTILINE)).isTrue();
+        assertThat(regexPatternCache.contains("two", Pattern.MULTILINE)).isFalse();
+        assertThat(regexPatternCache.contains("three", Pattern.MULTILINE)).isTrue();
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class RegexUrlPrefilterTest {
+
+    @Test
+    public void shouldExtractLongestRequiredLiteral() throws Exception {
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/api/v1/users/[0-9]+/orders$")).isEqualTo("/api/v1/users/");
+        assertThat(RegexUrlPrefilter.requiredLiteral("^.*/resource/(\\d+)/details$")).isEqualTo("/resource/");
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/a/users?/list$")).isEqualTo("/a/user");
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/a/[^]xyz]/profiles$")).isEqualTo("/profiles");
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/bb/x{2,3}/a$")).isEqualTo("/bb/");
+    }
+
+    @Test
+    public void shouldNotExtractRequiredLiteral_WhenLiteralIsNotGuaranteed() throws Exception {
+        assertThat(RegexUrlPrefilter.requiredLiteral(null)).isNull();
+        assertThat(RegexUrlPrefilter.requiredLiteral("^.*$")).isNull();
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/api/users|/other$")).isNull();
+        assertThat(RegexUrlPrefilter.requiredLiteral("(?i)^/api/users$")).isNull();
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/api/\\x41bc$")).isNull();
+        assertThat(RegexUrlPrefilter.requiredLiteral("^/api/users/[0-9$")).isNull();
+    }
+
+    @Test
+    public void shouldReportOnlyStubsWhoseRequiredLiteralIsFound() throws Exception {
+        final RegexUrlPrefilter regexUrlPrefilter = new RegexUrlPrefilter();
+        regexUrlPrefilter.add("^.*/users/[0-9]+$", 0);
+        regexUrlPrefilter.add("^.*/orders/[0-9]+$", 1);
+        regexUrlPrefilter.add("^.*$", 2);
+        regexUrlPrefilter.add("^/v1/sers/[0-9]+$", 3);
+        regexUrlPrefilter.compile();
+
+        final BitSet possibleMatches = regexUrlPrefilter.possibleMatches("/api/v1/users/123");
+
+        assertThat(possibleMatches.get(0)).isTrue();
+        assertThat(possibleMatches.get(1)).isFalse();
+        assertThat(possibleMatches.get(2)).isTrue();
+        assertThat(possibleMatches.get(3)).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class RequestFingerprintTest {
+
+    private static final String[] HEADER_KEYS = {"content-type", "x-api-key"};
+    private static final String[] QUERY_KEYS = {"page"};
+
+    @Test
+    public void shouldBeEqual_WhenOnlyUnreferencedHeadersAndQueryParamsDiffer() throws Exception {
+        final StubRequest first = new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodGet()
+                .withHeader("x-api-key", "secret")
+                .withHeader("user-agent", "curl")
+                .withQuery("page", "1")
+                .withQuery("cache-buster", "123")
+                .build();
+        final StubRequest second = new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodGet()
+                .withHeader("x-api-key", "secret")
+                .withHeader("user-agent", "wget")
+                .withQuery("page", "1")
+                .withQuery("cache-buster", "456")
+                .build();
+
+        final RequestFingerprint firstFingerprint = RequestFingerprint.of(first, HEADER_KEYS, QUERY_KEYS, false);
+        final RequestFingerprint secondFingerprint = RequestFingerprint.of(second, HEADER_KEYS, QUERY_KEYS, false);
+
+        assertThat(firstFingerprint).isEqualTo(secondFingerprint);
+        assertThat(firstFingerprint.hashCode()).isEqualTo(secondFingerprint.hashCode());
+    }
+
+    @Test
+    public void shouldNotBeEqual_WhenMethodReferencedHeaderOrPostBodyDiffer() throws Exception {
+        final RequestFingerprint fingerprint = RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPost()
+                .withHeader("x-api-key", "secret")
+                .withPost("{\"id\": 1}")
+                .build(), HEADER_KEYS, QUERY_KEYS, true);
+
+        assertThat(fingerprint).isNotEqualTo(RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPut()
+                .withHeader("x-api-key", "secret")
+                .withPost("{\"id\": 1}")
+                .build(), HEADER_KEYS, QUERY_KEYS, true));
+
+        assertThat(fingerprint).isNotEqualTo(RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPost()
+                .withHeader("x-api-key", "other")
+                .withPost("{\"id\": 1}")
+                .build(), HEADER_KEYS, QUERY_KEYS, true));
+
+        assertThat(fingerprint).isNotEqualTo(RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPost()
+                .withHeader("x-api-key", "secret")
+                .withPost("{\"id\": 2}")
+                .build(), HEADER_KEYS, QUERY_KEYS, true));
+    }
+
+    @Test
+    public void shouldBeEqual_WhenOnlyPostBodiesDifferAndPostBodyIsNotIncluded() throws Exception {
+        final RequestFingerprint fingerprint = RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPost()
+                .withPost("{\"id\": 1}")
+                .build(), HEADER_KEYS, QUERY_KEYS, false);
+
+        assertThat(fingerprint).isEqualTo(RequestFingerprint.of(new StubRequest.Builder()
+                .withUrl("/resources")
+                .withMethodPost()
+                .withPost("{\"id\": 2}")
+                .build(), HEADER_KEYS, QUERY_KEYS, false));
+        assertThat(fingerprint.hasPostBody()).isFalse();
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.newStringUtf8;
+
+
+public class ResolvedExternalFilesTest {
+
+    @Test
+    public void shouldResolveSameExternalFile_WhenFileDidNotChange() throws Exception {
+        final ResolvedExternalFiles resolvedExternalFiles = new ResolvedExternalFiles();
+        final File file = fileFromString("file content");
+
+        final ExternalFile externalFile = resolvedExternalFiles.resolve(file);
+
+        assertThat(resolvedExternalFiles.resolve(file)).isSameAs(externalFile);
+        assertThat(resolvedExternalFiles.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveFileAnew_WhenFileWasModified() throws Exception {
+        final ResolvedExternalFiles resolvedExternalFiles = new ResolvedExternalFiles();
+        final File file = fileFromString("file content");
+        final ExternalFile externalFile = resolvedExternalFiles.resolve(file);
+        assertThat(contentOf(externalFile)).isEqualTo("file content");
+
+        Files.write(file.toPath(), "modified file content".getBytes("UTF-8"));
+        assertThat(file.setLastModified(externalFile.getLastModified() + 2000)).isTrue();
+        final ExternalFile modifiedFile = resolvedExternalFiles.resolve(file);
+
+        assertThat(modifiedFile).isNotSameAs(externalFile);
+        assertThat(contentOf(modifiedFile)).isEqualTo("modified file content");
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedFile_WhenMoreFilesThanMaxWereResolved() throws Exception {
+        final ResolvedExternalFiles resolvedExternalFiles = new ResolvedExternalFiles();
+        final File firstFile = fileFromString("first");
+        final File secondFile = fileFromString("second");
+        resolvedExternalFiles.resolve(firstFile);
+        resolvedExternalFiles.resolve(secondFile);
+        for (int idx = 2; idx < ResolvedExternalFiles.MAX_FILES; idx++) {
+            resolvedExternalFiles.resolve(fileFromString("file " + idx));
+        }
+        // Makes the second file the least recently used one
+        resolvedExternalFiles.resolve(firstFile);
+
+        resolvedExternalFiles.resolve(fileFromString("one file too many"));
+
+        assertThat(resolvedExternalFiles.size()).isEqualTo(ResolvedExternalFiles.MAX_FILES);
+        assertThat(resolvedExternalFiles.contains(firstFile)).isTrue();
+        assertThat(resolvedExternalFiles.contains(secondFile)).isFalse();
+    }
+
+    private static String contentOf(final ExternalFile externalFile) throws Exception {
+        final ByteBuffer content = ExternalFileRegistry.CONTENT_STORE.get(externalFile);
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+
+        return newStringUtf8(bytes);
+    }
+
+    private static File fileFromString(final String content) throws Exception {
+        final File file = File.createTempFile("tmp", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+        return file;
+    }
+}
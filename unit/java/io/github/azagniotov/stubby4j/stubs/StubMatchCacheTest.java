@@ -0,0 +1,75 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class StubMatchCacheTest {
+
+    private static final String[] NO_KEYS = {};
+
+    @Test
+    public void shouldCacheMatchesAndMisses() throws Exception {
+        final StubMatchCache stubMatchCache = new StubMatchCache(10);
+        final StubHttpLifecycle stub = new StubHttpLifecycle.Builder().build();
+        final RequestFingerprint matched = fingerprintOf("/matched");
+        final RequestFingerprint unmatched = fingerprintOf("/unmatched");
+
+        stubMatchCache.putMatch(matched, stub);
+        stubMatchCache.putNoMatch(unmatched);
+
+        assertThat(stubMatchCache.get(matched).isNoMatch()).isFalse();
+        assertThat(stubMatchCache.get(matched).getMatchedStub()).isSameAs(stub);
+        assertThat(stubMatchCache.get(unmatched).isNoMatch()).isTrue();
+        assertThat(stubMatchCache.get(fingerprintOf("/unknown"))).isNull();
+    }
+
+    @Test
+    public void shouldEvictOldestEntries_WhenMaxSizeExceeded() throws Exception {
+        final StubMatchCache stubMatchCache = new StubMatchCache(2);
+
+        stubMatchCache.putNoMatch(fingerprintOf("/one"));
+        stubMatchCache.putNoMatch(fingerprintOf("/two"));
+        stubMatchCache.putNoMatch(fingerprintOf("/three"));
+
+        assertThat(stubMatchCache.size()).isEqualTo(2);
+        assertThat(stubMatchCache.get(fingerprintOf("/one"))).isNull();
+        assertThat(stubMatchCache.get(fingerprintOf("/two"))).isNotNull();
+        assertThat(stubMatchCache.get(fingerprintOf("/three"))).isNotNull();
+    }
+
+    @Test
+    public void shouldEvictInInsertionOrder_WhenRemovedEntryIsPutAgain() throws Exception {
+        final StubMatchCache stubMatchCache = new StubMatchCache(2);
+
+        stubMatchCache.putNoMatch(fingerprintOf("/one"));
+        stubMatchCache.putNoMatch(fingerprintOf("/two"));
+        stubMatchCache.remove(fingerprintOf("/one"));
+        stubMatchCache.putNoMatch(fingerprintOf("/one"));
+        stubMatchCache.putNoMatch(fingerprintOf("/three"));
+
+        assertThat(stubMatchCache.size()).isEqualTo(2);
+        assertThat(stubMatchCache.get(fingerprintOf("/one"))).isNotNull();
+        assertThat(stubMatchCache.get(fingerprintOf("/two"))).isNull();
+        assertThat(stubMatchCache.get(fingerprintOf("/three"))).isNotNull();
+    }
+
+    @Test
+    public void shouldNotCacheMiss_WhenFingerprintIncludesPostBody() throws Exception {
+        final StubMatchCache stubMatchCache = new StubMatchCache(10);
+        final RequestFingerprint withPostBody = RequestFingerprint.of(
+                new StubRequest.Builder().withUrl("/posted").withMethodPost().withPost("posted").build(), NO_KEYS, NO_KEYS, true);
+        final StubHttpLifecycle stub = new StubHttpLifecycle.Builder().build();
+
+        stubMatchCache.putNoMatch(withPostBody);
+        assertThat(stubMatchCache.get(withPostBody)).isNull();
+
+        stubMatchCache.putMatch(withPostBody, stub);
+        assertThat(stubMatchCache.get(withPostBody).getMatchedStub()).isSameAs(stub);
+    }
+
+    private static RequestFingerprint fingerprintOf(final String url) {
+        return RequestFingerprint.of(new StubRequest.Builder().withUrl(url).withMethodGet().build(), NO_KEYS, NO_KEYS, false);
+    }
+}
@@ -4,168 +4,154 @@ package io.github.azagniotov.stubby4j.stubs;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
 public class StubMatcherTest {
 
     private StubMatcher stubMatcher;
+    private StubRequest.Builder builder;
 
     @Before
     public void setUp() throws Exception {
         stubMatcher = new StubMatcher(new HashMap<>());
+        builder = new StubRequest.Builder();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnTrue_WhenDataStoreArrayEmpty() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(new ArrayList<>(), new ArrayList<String>() {{
-            add("apple");
-        }});
+    public void methodsMatch_ShouldReturnTrue_WhenStubbedMethodsEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().build();
 
-        assertThat(isArraysIntersect).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnFalse_WhenAssertingArrayEmpty() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(new ArrayList<String>() {{
-            add("apple");
-        }}, new ArrayList<>());
+    public void methodsMatch_ShouldReturnFalse_WhenAssertingMethodsEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").build();
 
-        assertThat(isArraysIntersect).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnTrue_WhenTwoArraysHaveTheSameElements() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(
-                new ArrayList<String>() {{
-                    add("apple");
-                }}, new ArrayList<String>() {{
-                    add("apple");
-                }}
-        );
+    public void methodsMatch_ShouldReturnTrue_WhenStubbedAndAssertingMethodsHaveTheSameElements() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withMethodPut().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPut().build();
 
-        assertThat(isArraysIntersect).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnFalse_WhenTwoArraysDontHaveTheSameElements() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(
-                new ArrayList<String>() {{
-                    add("apple");
-                }}, new ArrayList<String>() {{
-                    add("orange");
-                }}
-        );
+    public void methodsMatch_ShouldReturnFalse_WhenStubbedAndAssertingMethodsDontHaveTheSameElements() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPut().build();
 
-        assertThat(isArraysIntersect).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnTrue_WhenDataStoreValueNull() throws Exception {
-        final String dataStoreVlaue = null;
-        final String assertingValue = "blah";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void postBodiesMatch_ShouldReturnTrue_WhenStubbedPostNull() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodPost().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPost().withPost("blah").build();
 
-        assertThat(isStringsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnTrue_WhenDataStoreValueEmpty() throws Exception {
-        final String dataStoreVlaue = "";
-        final String assertingValue = "blah";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void postBodiesMatch_ShouldReturnTrue_WhenStubbedPostEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodPost().withPost("").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPost().withPost("blah").build();
 
-        assertThat(isStringsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnFalse_WhenAssertingValueNull() throws Exception {
-        final String dataStoreVlaue = "stubbedValue";
-        final String assertingValue = null;
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void postBodiesMatch_ShouldReturnFalse_WhenAssertingPostNull() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodPost().withPost("stubbedValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPost().build();
 
-        assertThat(isStringsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnFalse_WhenAssertingValueEmpty() throws Exception {
-        final String dataStoreVlaue = "stubbedValue";
-        final String assertingValue = "";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void postBodiesMatch_ShouldReturnFalse_WhenAssertingPostEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodPost().withPost("stubbedValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPost().withPost("").build();
 
-        assertThat(isStringsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenDataStoreMapEmptyAndAssertingMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<>();
-        final Map<String, String> assertingMap = new HashMap<>();
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void postBodiesMatch_ShouldReturnTrue_WhenAssertingPostMatchesStubbedRegex() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodPost().withPost("stubbed-(\\d+)").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodPost().withPost("stubbed-123").build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenDataStoreMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<>();
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("key", "value");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void queriesMatch_ShouldReturnTrue_WhenStubbedQueryEmptyAndAssertingQueryEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenDataStoreMapNotEmptyAndAssertingMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("key", "value");
-        }};
-        final Map<String, String> assertingMap = new HashMap<>();
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void queriesMatch_ShouldReturnTrue_WhenStubbedQueryEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withQuery("key", "value").build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenAssertingMapDoesNotContainDataStoreKey() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("someKey", "someValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void queriesMatch_ShouldReturnFalse_WhenStubbedQueryNotEmptyAndAssertingQueryEmpty() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withQuery("key", "value").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenAssertingMapDoesNotContainDataStoreValue() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("requiredKey", "someValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void queriesMatch_ShouldReturnFalse_WhenAssertingQueryDoesNotContainStubbedKey() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withQuery("someKey", "someValue").build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenAssertingMapMatchesDataStoreMap() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void queriesMatch_ShouldReturnFalse_WhenAssertingQueryDoesNotContainStubbedValue() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withQuery("requiredKey", "someValue").build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
+    }
+
+    @Test
+    public void queriesMatch_ShouldReturnTrue_WhenAssertingQueryMatchesStubbedQuery() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withQuery("requiredKey", "requiredValue").build();
+
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
+    }
+
+    @Test
+    public void headersMatch_ShouldReturnFalse_WhenAssertingHeadersDoNotContainStubbedValue() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withHeader("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withHeader("requiredKey", "someValue").build();
+
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
+    }
+
+    @Test
+    public void headersMatch_ShouldReturnTrue_WhenAssertingHeadersMatchStubbedHeaders() throws Exception {
+        final StubRequest stubbedRequest = builder.withUrl("/resource").withMethodGet().withHeader("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = builder.withUrl("/resource").withMethodGet().withHeader("requiredKey", "requiredValue").build();
+
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 }
@@ -1,10 +1,12 @@
 package io.github.azagniotov.stubby4j.stubs;
 
 import com.google.api.client.http.HttpMethods;
+import io.github.azagniotov.stubby4j.cli.ANSITerminal;
 import io.github.azagniotov.stubby4j.client.StubbyResponse;
 import io.github.azagniotov.stubby4j.common.Common;
 import io.github.azagniotov.stubby4j.http.StubbyHttpTransport;
 import io.github.azagniotov.stubby4j.yaml.YAMLParser;
+import org.eclipse.jetty.http.HttpStatus.Code;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -16,21 +18,32 @@ import org.mockito.Mock;
 import org.mockito.internal.util.reflection.FieldSetter;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -127,6 +140,50 @@ public class StubRepositoryTest {
         assertThat(spyStubRepository.getStubs()).isEmpty();
     }
 
+    @Test
+    public void shouldReindexRemainingStubs_WhenStubDeletedByIndex() throws Exception {
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithDefaultResponse("/resource/item/1");
+        stubs.addAll(buildHttpLifeCyclesWithDefaultResponse("/resource/item/2"));
+        spyStubRepository.resetStubsCache(stubs);
+
+        final List<StubHttpLifecycle> stubsBeforeDelete = spyStubRepository.getStubs();
+        spyStubRepository.deleteStubByIndex(0);
+
+        assertThat(stubsBeforeDelete.size()).isEqualTo(2);
+        assertThat(spyStubRepository.getStubs().size()).isEqualTo(1);
+        assertThat(spyStubRepository.getStubs().get(0).getUrl()).isEqualTo("/resource/item/2");
+        assertThat(spyStubRepository.getStubs().get(0).getResourceId()).isEqualTo("0");
+    }
+
+    @Test
+    public void shouldNotRenumberPreviouslyPublishedStubs_WhenStubDeletedByIndex() throws Exception {
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithDefaultResponse("/resource/item/1");
+        stubs.addAll(buildHttpLifeCyclesWithDefaultResponse("/resource/item/2"));
+        spyStubRepository.resetStubsCache(stubs);
+
+        final StubHttpLifecycle publishedStub = spyStubRepository.getStubs().get(1);
+        spyStubRepository.deleteStubByIndex(0);
+
+        final StubHttpLifecycle renumberedStub = spyStubRepository.getStubs().get(0);
+        assertThat(renumberedStub).isNotSameAs(publishedStub);
+        assertThat(renumberedStub.getResourceId()).isEqualTo("0");
+        assertThat(renumberedStub.getResponse(false).getHeaders()).containsEntry(StubResponse.STUBBY_RESOURCE_ID_HEADER, "0");
+        assertThat(publishedStub.getResourceId()).isEqualTo("1");
+        assertThat(publishedStub.getResponse(false).getHeaders()).containsEntry(StubResponse.STUBBY_RESOURCE_ID_HEADER, "1");
+    }
+
+    @Test
+    public void shouldKeepStubsThatKeepTheirIndex_WhenStubDeletedByIndex() throws Exception {
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithDefaultResponse("/resource/item/1");
+        stubs.addAll(buildHttpLifeCyclesWithDefaultResponse("/resource/item/2"));
+        spyStubRepository.resetStubsCache(stubs);
+
+        final StubHttpLifecycle publishedStub = spyStubRepository.getStubs().get(0);
+        spyStubRepository.deleteStubByIndex(1);
+
+        assertThat(spyStubRepository.getStubs().get(0)).isSameAs(publishedStub);
+    }
+
     @Test
     public void shouldDeleteOriginalHttpCycleList_WhenInvalidIndexGiven() throws Exception {
 
@@ -241,6 +298,78 @@ public class StubRepositoryTest {
         verify(mockStubbyHttpTransport, times(1)).fetchRecordableHTTPResponse(eq(stubbedRequest), anyString());
     }
 
+    @Test
+    public void shouldPrecompressRecordedBody_WhenGzipIsRequestedAfterRecording() throws Exception {
+        final String sourceToRecord = "http://google.com";
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithCustomResponse("/resource/item/1", responseBuilder.emptyWithBody(sourceToRecord).build());
+
+        spyStubRepository.resetStubsCache(stubs);
+
+        final StubResponse stubbedResponse = spyStubRepository.getStubs().get(0).getResponse(true);
+        assertThat(stubbedResponse.getPrecompressedBody("gzip", 0)).isNull();
+
+        final StringBuilder recordedText = new StringBuilder();
+        for (int idx = 0; idx < 50; idx++) {
+            recordedText.append("OK, this is recorded response text!");
+        }
+        final StubRequest stubbedRequest = spyStubRepository.getStubs().get(0).getRequest();
+        when(mockStubbyHttpTransport.fetchRecordableHTTPResponse(eq(stubbedRequest), anyString())).thenReturn(new StubbyResponse(200, recordedText.toString()));
+
+        doReturn(stubs.get(0).getRequest()).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        final StubResponse recordedResponse = spyStubRepository.search(mockHttpServletRequest).getMatch();
+
+        final ByteBuffer precompressedBody = recordedResponse.getPrecompressedBody("gzip", 0);
+        assertThat(precompressedBody).isNotNull();
+        assertThat(gunzip(precompressedBody)).isEqualTo(recordedText.toString());
+    }
+
+    @Test
+    public void shouldRenderRecordedBodyTemplate_WhenRecordingSourceWasCheckedForTemplateTokensBeforeRecording() throws Exception {
+        final String sourceToRecord = "http://google.com";
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithCustomResponse("/resource/item/1", responseBuilder.emptyWithBody(sourceToRecord).build());
+
+        spyStubRepository.resetStubsCache(stubs);
+
+        final StubResponse stubbedResponse = spyStubRepository.getStubs().get(0).getResponse(true);
+        assertThat(stubbedResponse.isBodyContainsTemplateTokens()).isFalse();
+
+        final StubRequest stubbedRequest = spyStubRepository.getStubs().get(0).getRequest();
+        when(mockStubbyHttpTransport.fetchRecordableHTTPResponse(eq(stubbedRequest), anyString())).thenReturn(new StubbyResponse(200, "Recorded <% url.0 %>"));
+
+        doReturn(stubs.get(0).getRequest()).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        final StubResponse recordedResponse = spyStubRepository.search(mockHttpServletRequest).getMatch();
+
+        assertThat(recordedResponse.isBodyContainsTemplateTokens()).isTrue();
+    }
+
+    @Test
+    public void shouldMatchFirstDeclaredStubAndCaptureRegexGroups_WhenMatchingInParallel() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        for (int idx = 0; idx < 500; idx++) {
+            stubs.addAll(buildHttpLifeCyclesWithDefaultResponse("^/resource/item/" + idx + "/[a-z]+$"));
+        }
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse("^/resource/([a-z]+)/42$", responseBuilder.emptyWithBody("first").build()));
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse("^/resource/item/([0-9]+)$", responseBuilder.emptyWithBody("second").build()));
+        spyStubRepository.resetStubsCache(stubs);
+        spyStubRepository.enableParallelMatching(100);
+
+        try {
+            final StubRequest incomingRequest = requestBuilder
+                    .withUrl("/resource/item/42")
+                    .withMethodGet()
+                    .withHeader("content-type", Common.HEADER_APPLICATION_JSON)
+                    .build();
+            doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+
+            final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+            assertThat(stubSearchResult.getMatch().getBody()).isEqualTo("first");
+            assertThat(incomingRequest.getRegexGroups()).containsEntry("url.1", "item");
+        } finally {
+            spyStubRepository.disableParallelMatching();
+        }
+    }
+
     @Test
     public void shouldNotUpdateStubResponseBody_WhenResponseIsNotRecordable() throws Exception {
         final String recordingSource = "htt://google.com";  //makes it non recordable
@@ -541,6 +670,196 @@ public class StubRepositoryTest {
         assertThat(assertingRequest).isNotEqualTo(expectedRequest);
     }
 
+    @Test
+    public void shouldNotReadBodyNorCopyHeaders_WhenMatchingGetRequest() throws Exception {
+        // The trace level match diagnostics print all the incoming headers
+        ANSITerminal.muteConsole(true);
+        final String url = "/resource/item/1";
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse(url));
+
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(url);
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.GET);
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("Content-Type")));
+        when(mockHttpServletRequest.getHeader("content-type")).thenReturn(Common.HEADER_APPLICATION_JSON);
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getHttpStatusCode()).isEqualTo(Code.OK);
+        verify(mockHttpServletRequest, never()).getInputStream();
+        verify(mockHttpServletRequest, never()).getHeader("Content-Type");
+    }
+
+    @Test
+    public void shouldNotReadBody_WhenMatchingGetRequestWhileOtherStubsHavePostBody() throws Exception {
+        final String url = "/resource/item/1";
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(requestBuilder.withUrl("/resource/item/2").withMethodPost().withPost("posted").build(), StubResponse.okResponse()));
+        stubs.addAll(buildHttpLifeCyclesWithDefaultResponse(url));
+        spyStubRepository.resetStubsCache(stubs);
+
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(url);
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.GET);
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("Content-Type")));
+        when(mockHttpServletRequest.getHeader("content-type")).thenReturn(Common.HEADER_APPLICATION_JSON);
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getHttpStatusCode()).isEqualTo(Code.OK);
+        verify(mockHttpServletRequest, never()).getInputStream();
+        verify(mockHttpServletRequest, never()).getReader();
+    }
+
+    @Test
+    public void shouldNotReadBody_WhenPostRequestIsRoutedOnlyToStubsWithoutPostBody() throws Exception {
+        final String url = "/resource/item/1";
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(requestBuilder.withUrl("/resource/item/2").withMethodPost().withPost("posted").build(), StubResponse.okResponse()));
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(requestBuilder.withUrl(url).withMethodPost().build(), StubResponse.okResponse()));
+        spyStubRepository.resetStubsCache(stubs);
+
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(url);
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.POST);
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getHttpStatusCode()).isEqualTo(Code.OK);
+        verify(mockHttpServletRequest, never()).getInputStream();
+        verify(mockHttpServletRequest, never()).getReader();
+    }
+
+    @Test
+    public void shouldReadBodyOnce_WhenMatchingPostRequestAgainstStubWithPostBody() throws Exception {
+        final String url = "/resource/item/1";
+        final StubRequest stubbedRequest =
+                requestBuilder
+                        .withUrl(url)
+                        .withMethodPost()
+                        .withPost("posted")
+                        .build();
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithCustomResponse(stubbedRequest, StubResponse.okResponse()));
+
+        final InputStream postBody = new ByteArrayInputStream("posted".getBytes(StandardCharsets.UTF_8));
+        when(mockHttpServletRequest.getPathInfo()).thenReturn(url);
+        when(mockHttpServletRequest.getMethod()).thenReturn(HttpMethods.POST);
+        when(mockHttpServletRequest.getInputStream()).thenReturn(servletInputStreamOf(postBody));
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getHttpStatusCode()).isEqualTo(Code.OK);
+        assertThat(stubSearchResult.getInvariant().getPostBody()).isEqualTo("posted");
+        verify(mockHttpServletRequest, times(1)).getInputStream();
+    }
+
+    @Test
+    public void shouldReturnMatchTrace_WhenMatchTracingIsEnabled() throws Exception {
+        final String url = "/resource/item/1";
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(requestBuilder.withUrl(url).withMethodGet().withApplicationXmlContentType().build(), StubResponse.okResponse()));
+        stubs.addAll(buildHttpLifeCyclesWithDefaultResponse(url));
+        spyStubRepository.resetStubsCache(stubs);
+        spyStubRepository.enableMatchTracing();
+
+        final StubRequest incomingRequest = requestBuilder.withUrl(url).withMethodGet().withApplicationJsonContentType().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        when(mockHttpServletRequest.getHeader(StubSearchResult.STUBBY_TRACE_HEADER)).thenReturn("true");
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatchTrace().isPresent()).isTrue();
+        assertThat(stubSearchResult.getMatchTrace().get()).startsWith("candidates=2; cache=miss; match=1; url=");
+        assertThat(spyStubRepository.getMatchTraceStatsAsJson()).contains("\"evaluations\":1");
+    }
+
+    @Test
+    public void shouldNotTraceRequest_WhenMatchTracingIsEnabledButRequestDoesNotAskForTrace() throws Exception {
+        final String url = "/resource/item/1";
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse(url));
+        spyStubRepository.enableMatchTracing();
+
+        final StubRequest incomingRequest = requestBuilder.withUrl(url).withMethodGet().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatchTrace().isPresent()).isFalse();
+        assertThat(incomingRequest.getMatchTrace()).isNull();
+        assertThat(spyStubRepository.getMatchTraceStatsAsJson()).isEqualTo("{}");
+    }
+
+    @Test
+    public void shouldResetMatchTraceStats_WhenStubsAreReloaded() throws Exception {
+        final String url = "/resource/item/1";
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse(url));
+        spyStubRepository.enableMatchTracing();
+
+        final StubRequest incomingRequest = requestBuilder.withUrl(url).withMethodGet().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        when(mockHttpServletRequest.getHeader(StubSearchResult.STUBBY_TRACE_HEADER)).thenReturn("true");
+        spyStubRepository.search(mockHttpServletRequest);
+        assertThat(spyStubRepository.getMatchTraceStatsAsJson()).contains("\"evaluations\":1");
+
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse(url));
+
+        assertThat(spyStubRepository.isMatchTracingEnabled()).isTrue();
+        assertThat(spyStubRepository.getMatchTraceStatsAsJson()).isEqualTo("{}");
+    }
+
+    @Test
+    public void shouldNotReturnMatchTrace_WhenMatchTracingIsDisabled() throws Exception {
+        final String url = "/resource/item/1";
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse(url));
+        spyStubRepository.enableMatchTracing();
+        spyStubRepository.disableMatchTracing();
+
+        final StubRequest incomingRequest = requestBuilder.withUrl(url).withMethodGet().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatchTrace().isPresent()).isFalse();
+        assertThat(incomingRequest.getMatchTrace()).isNull();
+        assertThat(spyStubRepository.getMatchTraceStatsAsJson()).isEqualTo("{}");
+    }
+
+    private static String gunzip(final ByteBuffer compressed) throws IOException {
+        final byte[] bytes = new byte[compressed.remaining()];
+        compressed.get(bytes);
+
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (final InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            final byte[] chunk = new byte[1024];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                decompressed.write(chunk, 0, read);
+            }
+        }
+        return new String(decompressed.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static ServletInputStream servletInputStreamOf(final InputStream inputStream) {
+        return new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return inputStream.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return false;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(final ReadListener readListener) {
+
+            }
+        };
+    }
+
     private List<StubHttpLifecycle> buildHttpLifeCyclesWithDefaultResponse(final String url) throws Exception {
         return buildHttpLifeCyclesWithCustomResponse(url, StubResponse.okResponse());
     }
@@ -1,6 +1,7 @@
 package io.github.azagniotov.stubby4j.stubs;
 
 import io.github.azagniotov.stubby4j.utils.FileUtils;
+import io.github.azagniotov.stubby4j.utils.StringUtils;
 import io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty;
 import org.junit.Before;
 import org.junit.Test;
@@ -405,6 +406,22 @@ public class StubRequestBuilderTest {
         assertThat(expectedRequest.getPostBody()).isEqualTo(fileContent);
     }
 
+    @Test
+    public void shouldNormalizePostBodyOnlyOnce_WhenFileSet() throws Exception {
+
+        final String fileContent = "Hello\r\nWorld!";
+        final StubRequest expectedRequest =
+                builder.withUrl("/invoice/789")
+                        .withFile(FileUtils.fileFromString(fileContent))
+                        .withMethodPost().build();
+
+        final String postBody = expectedRequest.getPostBody();
+        assertThat(postBody).isEqualTo("Hello" + BR + "World!");
+        assertThat(expectedRequest.getPostBody()).isSameAs(postBody);
+        assertThat(expectedRequest.getPostBodyBytes()).isEqualTo(postBody.getBytes(StringUtils.charsetUTF8()));
+        assertThat(expectedRequest.getPostBodyBytes()).isSameAs(expectedRequest.getPostBodyBytes());
+    }
+
 
     @Test
     public void stubbedRequestNotEqualsAssertingRequest_WhenDifferentHttpMethod() throws Exception {
@@ -538,6 +555,29 @@ public class StubRequestBuilderTest {
         assertThat(stubRequest.getStubbedAuthorizationType()).isEqualTo(CUSTOM);
     }
 
+    @Test
+    public void shouldLowerCaseHeaderKeysOnce_WhenRequestBuilt() throws Exception {
+        final StubRequest stubRequest =
+                builder.withUrl("/invoice/123")
+                        .withMethodGet()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Authorization-Bearer", "123").build();
+
+        final Map<String, String> headers = stubRequest.getHeaders();
+
+        assertThat(headers).containsExactly("content-type", "application/json", "authorization-bearer", "123");
+        assertThat(stubRequest.getHeaders()).isSameAs(headers);
+        assertThat(stubRequest.getStubbedHeaderAuthorization(BEARER)).isEqualTo("123");
+        assertThat(stubRequest.getStubbedHeaderAuthorization(BASIC)).isNull();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowHeadersModification_WhenRequestBuilt() throws Exception {
+        final StubRequest stubRequest = builder.withUrl("/invoice/123").withHeader("content-type", "application/json").build();
+
+        stubRequest.getHeaders().put("accept", "text/plain");
+    }
+
     @Test
     public void stubbedRequestEqualsAssertingRequest_WhenAllHttpHeadersMatch() throws Exception {
 
@@ -1331,8 +1371,8 @@ public class StubRequestBuilderTest {
         stubRequest.compileRegexPatternsAndCache();
 
         assertThat(RegexParser.PATTERN_CACHE.size()).isEqualTo(2);
-        assertThat(RegexParser.PATTERN_CACHE.get(url.hashCode())).isInstanceOf(Pattern.class);
-        assertThat(RegexParser.PATTERN_CACHE.get(post.hashCode())).isInstanceOf(Pattern.class);
+        assertThat(RegexParser.PATTERN_CACHE.contains(url, Pattern.MULTILINE)).isTrue();
+        assertThat(RegexParser.PATTERN_CACHE.contains(post, Pattern.MULTILINE)).isTrue();
     }
 
     @Test
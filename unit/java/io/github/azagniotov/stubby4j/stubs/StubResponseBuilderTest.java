@@ -8,6 +8,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.Optional;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -238,4 +240,90 @@ public class StubResponseBuilderTest {
 
         assertThat(stubResponse.isBodyContainsTemplateTokens()).isFalse();
     }
+
+    @Test
+    public void shouldLoadFileContentOnFirstUse_WhenResponseHasFile() throws Exception {
+
+        final File file = fileFromString("file content");
+        final StubResponse stubResponse = builder
+                .withHttpStatusCode(Code.OK)
+                .withFile(file)
+                .build();
+
+        final ExternalFile externalFile = ExternalFileRegistry.INSTANCE.register(file);
+
+        assertThat(ExternalFileRegistry.CONTENT_STORE.contains(externalFile)).isFalse();
+        assertThat(stubResponse.getResponseBodyAsBytes()).isEqualTo(StringUtils.getBytesUtf8("file content"));
+        assertThat(ExternalFileRegistry.CONTENT_STORE.contains(externalFile)).isTrue();
+    }
+
+    @Test
+    public void shouldPrecompressBody_WhenBodyHasNoTemplateTokens() throws Exception {
+        final StringBuilder body = new StringBuilder();
+        for (int idx = 0; idx < 100; idx++) {
+            body.append("{\"name\": \"stubby4j\"}");
+        }
+
+        final StubResponse plainResponse = new StubResponse.Builder().withBody(body.toString()).build();
+        final StubResponse templatedResponse = new StubResponse.Builder().withBody(body + "<% url.1 %>").build();
+        final StubResponse encodedResponse = new StubResponse.Builder().withBody(body.toString()).build();
+        encodedResponse.getHeaders().put("content-encoding", "gzip");
+
+        assertThat(plainResponse.getPrecompressedBody("gzip", 0).remaining()).isLessThan(body.length());
+        assertThat(plainResponse.getPrecompressedBody("deflate", 0).remaining()).isLessThan(body.length());
+        assertThat(templatedResponse.getPrecompressedBody("gzip", 0)).isNull();
+        assertThat(encodedResponse.getPrecompressedBody("gzip", 0)).isNull();
+    }
+
+    @Test
+    public void shouldNotPrecompressBody_WhenBodyIsSmallerThanMinimumSize() throws Exception {
+        final StringBuilder body = new StringBuilder();
+        for (int idx = 0; idx < 100; idx++) {
+            body.append("{\"name\": \"stubby4j\"}");
+        }
+        final StubResponse stubResponse = new StubResponse.Builder().withBody(body.toString()).build();
+
+        assertThat(stubResponse.getPrecompressedBody("gzip", body.length() + 1)).isNull();
+        assertThat(stubResponse.getPrecompressedBody("gzip", body.length())).isNotNull();
+    }
+
+    @Test
+    public void shouldKeepPrecompressedFileBodyInContentStore_WhenResponseHasFile() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int idx = 0; idx < 100; idx++) {
+            content.append("{\"name\": \"stubby4j\", \"file\": true}");
+        }
+        final File file = fileFromString(content.toString());
+        final StubResponse stubResponse = builder
+                .withHttpStatusCode(Code.OK)
+                .withFile(file)
+                .build();
+
+        final ByteBuffer precompressedBody = stubResponse.getPrecompressedBody("gzip", 0);
+        final ExternalFile externalFile = ExternalFileRegistry.INSTANCE.register(file);
+
+        assertThat(precompressedBody.remaining()).isLessThan(content.length());
+        assertThat(ExternalFileRegistry.CONTENT_STORE.containsEncoded(externalFile.getContentHash(), "gzip")).isTrue();
+    }
+
+    @Test
+    public void shouldStreamFile_OnlyWhenBinaryFileIsTooLargeToKeep() throws Exception {
+        final byte[] largeContent = new byte[1024 * 1024 + 1];
+        final File largeBinaryFile = tempFileOf(".bin", largeContent);
+        final File largeCharacterFile = tempFileOf(".txt", largeContent);
+        final File smallBinaryFile = tempFileOf(".bin", new byte[1024]);
+
+        assertThat(builder.withFile(largeBinaryFile).build().getStreamedFile()).isEqualTo(largeBinaryFile.getCanonicalFile());
+        assertThat(builder.withFile(largeCharacterFile).build().getStreamedFile()).isNull();
+        assertThat(builder.withFile(smallBinaryFile).build().getStreamedFile()).isNull();
+        assertThat(builder.withBody("body").build().getStreamedFile()).isNull();
+    }
+
+    private static File tempFileOf(final String extension, final byte[] content) throws Exception {
+        final File file = File.createTempFile("stubby-response", extension);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+
+        return file;
+    }
 }
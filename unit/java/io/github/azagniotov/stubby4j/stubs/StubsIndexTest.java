@@ -0,0 +1,73 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class StubsIndexTest {
+
+    @Test
+    public void shouldDetermineLiteralUrls() throws Exception {
+        assertThat(StubsIndex.isLiteralUrl("/api/v1/users")).isTrue();
+        assertThat(StubsIndex.isLiteralUrl("/api/v1/users-list_all")).isTrue();
+
+        assertThat(StubsIndex.isLiteralUrl(null)).isFalse();
+        assertThat(StubsIndex.isLiteralUrl("")).isFalse();
+        assertThat(StubsIndex.isLiteralUrl("^/api/v1/users/[0-9]+$")).isFalse();
+        assertThat(StubsIndex.isLiteralUrl("/api/v1/users.json")).isFalse();
+        assertThat(StubsIndex.isLiteralUrl("/api/(v1|v2)/users")).isFalse();
+    }
+
+    @Test
+    public void shouldReturnOnlyCandidatesWithSameLiteralUrlAndMethod_InDeclarationOrder() throws Exception {
+        final List<StubHttpLifecycle> stubs = new ArrayList<>();
+        stubs.add(buildStub("/api/users", "GET"));
+        stubs.add(buildStub("/api/orders", "GET"));
+        stubs.add(buildStub("^/api/.*$", "GET"));
+        stubs.add(buildStub("/api/users", "POST"));
+        stubs.add(buildStub("/api/users", null));
+
+        final StubsIndex stubsIndex = new StubsIndex(stubs);
+        final List<StubHttpLifecycle> candidates = stubsIndex.candidatesFor(buildRequest("/api/users", "GET"));
+
+        assertThat(candidates).containsExactly(stubs.get(0), stubs.get(2), stubs.get(4)).inOrder();
+    }
+
+    @Test
+    public void shouldReturnOnlyFallbackCandidates_WhenNoLiteralUrlMatches() throws Exception {
+        final List<StubHttpLifecycle> stubs = new ArrayList<>();
+        stubs.add(buildStub("/api/users", "GET"));
+        stubs.add(buildStub("^/api/.*$", "GET"));
+        stubs.add(buildStub(null, "POST"));
+
+        final StubsIndex stubsIndex = new StubsIndex(stubs);
+        final List<StubHttpLifecycle> candidates = stubsIndex.candidatesFor(buildRequest("/api/unknown", "GET"));
+
+        assertThat(candidates).containsExactly(stubs.get(1), stubs.get(2)).inOrder();
+    }
+
+    @Test
+    public void shouldReturnStubOnce_WhenStubbedWithSeveralMatchingMethods() throws Exception {
+        final List<StubHttpLifecycle> stubs = new ArrayList<>();
+        stubs.add(new StubHttpLifecycle.Builder()
+                .withRequest(new StubRequest.Builder().withUrl("/api/users").withMethodGet().withMethodHead().build())
+                .build());
+
+        final StubsIndex stubsIndex = new StubsIndex(stubs);
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api/users").withMethodGet().withMethodHead().build();
+
+        assertThat(stubsIndex.candidatesFor(assertingRequest)).containsExactly(stubs.get(0));
+    }
+
+    private static StubHttpLifecycle buildStub(final String url, final String method) {
+        return new StubHttpLifecycle.Builder().withRequest(buildRequest(url, method)).build();
+    }
+
+    private static StubRequest buildRequest(final String url, final String method) {
+        return new StubRequest.Builder().withUrl(url).withMethod(method).build();
+    }
+}
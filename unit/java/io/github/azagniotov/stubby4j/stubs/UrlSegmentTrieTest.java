@@ -0,0 +1,41 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class UrlSegmentTrieTest {
+
+    @Test
+    public void shouldExtractLiteralPrefixSegments() throws Exception {
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/v1/users/[0-9]+/orders$")).containsExactly("api", "v1", "users").inOrder();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("/api/v1/users.*")).containsExactly("api", "v1").inOrder();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/users$")).containsExactly("api", "users").inOrder();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/(v1|v2)/users$")).containsExactly("api");
+    }
+
+    @Test
+    public void shouldNotExtractLiteralPrefixSegments_WhenPrefixIsNotGuaranteed() throws Exception {
+        assertThat(UrlSegmentTrie.literalPrefixSegments(null)).isEmpty();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^.*/users$")).isEmpty();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/users|/other/users$")).isEmpty();
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/users/?$")).containsExactly("api");
+        assertThat(UrlSegmentTrie.literalPrefixSegments("^/api/use/*rs$")).containsExactly("api");
+    }
+
+    @Test
+    public void shouldRouteOnlyStubsWithMatchingLiteralPrefix() throws Exception {
+        final UrlSegmentTrie urlSegmentTrie = new UrlSegmentTrie();
+        urlSegmentTrie.add("^/api/v1/users/[0-9]+$", 0);
+        urlSegmentTrie.add("^/api/v1/orders/[0-9]+$", 1);
+        urlSegmentTrie.add("^/api/.*$", 2);
+        urlSegmentTrie.add("^.*$", 3);
+        urlSegmentTrie.add("^/other/[a-z]+$", 4);
+
+        assertThat(urlSegmentTrie.route("/api/v1/users/123")).asList().containsExactly(0, 2, 3).inOrder();
+        assertThat(urlSegmentTrie.route("/api/v2/users/123")).asList().containsExactly(2, 3).inOrder();
+        assertThat(urlSegmentTrie.route("/unknown")).asList().containsExactly(3);
+        assertThat(urlSegmentTrie.route(null)).asList().containsExactly(3);
+    }
+}
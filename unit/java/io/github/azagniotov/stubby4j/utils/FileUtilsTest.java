@@ -4,7 +4,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assertThat;
 
 /**
  * @author: Alexander Zagniotov
@@ -32,4 +39,30 @@ public class FileUtilsTest {
 
         FileUtils.uriToFile("bad/file/path");
     }
+
+    @Test
+    public void shouldMemoryMapFileContent_WhenBinaryFileIsLarge() throws Exception {
+        final byte[] content = new byte[2 * 1024 * 1024];
+        Arrays.fill(content, (byte) 7);
+        final File file = File.createTempFile("tmp", ".pdf");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+
+        final ByteBuffer fileContent = FileUtils.fileToByteBuffer(file);
+
+        assertThat(fileContent).isInstanceOf(MappedByteBuffer.class);
+        assertThat(fileContent.isReadOnly()).isTrue();
+        assertThat(fileContent).isEqualTo(ByteBuffer.wrap(content));
+    }
+
+    @Test
+    public void shouldLoadFileContentLikeFileToBytes_WhenFileIsCharacterFile() throws Exception {
+        final File file = FileUtils.fileFromString("line one\r\nline two");
+
+        final ByteBuffer fileContent = FileUtils.fileToByteBuffer(file);
+
+        assertThat(fileContent).isNotInstanceOf(MappedByteBuffer.class);
+        assertThat(fileContent.isReadOnly()).isTrue();
+        assertThat(fileContent).isEqualTo(ByteBuffer.wrap(FileUtils.fileToBytes(file)));
+    }
 }
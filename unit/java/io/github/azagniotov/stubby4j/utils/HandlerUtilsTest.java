@@ -77,4 +77,27 @@ public class HandlerUtilsTest {
 
         assertThat(actualUpTime).isEqualTo("2 days, 0 hours, 0 mins, 1 sec");
     }
+
+    @Test
+    public void shouldNegotiateGzip_WhenClientAcceptsGzipAndDeflate() throws Exception {
+        assertThat(HandlerUtils.negotiateContentCoding("gzip, deflate")).isEqualTo("gzip");
+        assertThat(HandlerUtils.negotiateContentCoding("deflate, GZIP")).isEqualTo("gzip");
+        assertThat(HandlerUtils.negotiateContentCoding("*")).isEqualTo("gzip");
+    }
+
+    @Test
+    public void shouldNegotiateDeflate_WhenClientPrefersDeflate() throws Exception {
+        assertThat(HandlerUtils.negotiateContentCoding("deflate")).isEqualTo("deflate");
+        assertThat(HandlerUtils.negotiateContentCoding("gzip;q=0.5, deflate")).isEqualTo("deflate");
+        assertThat(HandlerUtils.negotiateContentCoding("gzip;q=0, *")).isEqualTo("deflate");
+    }
+
+    @Test
+    public void shouldNotNegotiateContentCoding_WhenClientAcceptsNeitherGzipNorDeflate() throws Exception {
+        assertThat(HandlerUtils.negotiateContentCoding(null)).isNull();
+        assertThat(HandlerUtils.negotiateContentCoding("")).isNull();
+        assertThat(HandlerUtils.negotiateContentCoding("identity, br")).isNull();
+        assertThat(HandlerUtils.negotiateContentCoding("gzip;q=0, deflate;q=0")).isNull();
+        assertThat(HandlerUtils.negotiateContentCoding("*;q=0")).isNull();
+    }
 }
@@ -0,0 +1,63 @@
+package io.github.azagniotov.stubby4j.utils;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class QueryParametersTest {
+
+    @Test
+    public void shouldKeepValueUpToSecondEqualsSign_WhenValueContainsEqualsSigns() throws Exception {
+        final QueryParameters queryParameters = QueryParameters.parse("token=abc==&paramTwo=two=three");
+
+        assertThat(queryParameters).containsExactly("token", "abc", "paramTwo", "two").inOrder();
+    }
+
+    @Test
+    public void shouldKeepFirstPositionAndLastValue_WhenParamIsRepeated() throws Exception {
+        final QueryParameters queryParameters = QueryParameters.parse("paramOne=one&paramTwo=two&paramOne=three");
+
+        assertThat(queryParameters).containsExactly("paramOne", "three", "paramTwo", "two").inOrder();
+        assertThat(queryParameters.toQueryString()).isEqualTo("paramOne=three&paramTwo=two");
+    }
+
+    @Test
+    public void shouldIgnoreTrailingEmptyPairs_WhenQueryStringEndsWithAmpersands() throws Exception {
+        final QueryParameters queryParameters = QueryParameters.parse("&paramOne=one&&");
+
+        assertThat(queryParameters).containsExactly("", "", "paramOne", "one").inOrder();
+    }
+
+    @Test
+    public void shouldBeEmpty_WhenQueryStringHasOnlyAmpersands() throws Exception {
+        assertThat(QueryParameters.parse("&&")).isEmpty();
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity_WhenQueryStringHasManyParams() throws Exception {
+        final StringBuilder rawQueryString = new StringBuilder();
+        final Map<String, String> expectedParams = new LinkedHashMap<>();
+        for (int idx = 0; idx < 20; idx++) {
+            rawQueryString.append("&param").append(idx).append("=value%20").append(idx);
+            expectedParams.put("param" + idx, "value " + idx);
+        }
+
+        final QueryParameters queryParameters = QueryParameters.parse(rawQueryString.substring(1));
+
+        assertThat(queryParameters).containsExactlyEntriesIn(expectedParams).inOrder();
+        assertThat(queryParameters.get("param19")).isEqualTo("value 19");
+        assertThat(queryParameters.containsKey("param20")).isFalse();
+    }
+
+    @Test
+    public void shouldCacheQueryString_WhenBuiltMoreThanOnce() throws Exception {
+        final QueryParameters queryParameters = QueryParameters.parse("paramOne=one&paramTwo");
+
+        assertThat(queryParameters.toQueryString()).isEqualTo("paramOne=one&paramTwo=");
+        assertThat(queryParameters.toQueryString()).isSameAs(queryParameters.toQueryString());
+    }
+}
@@ -31,6 +31,18 @@ public class ReflectionUtilsTest {
         assertThat(properties.get("headers")).isNull();
     }
 
+    @Test
+    public void shouldNotGetTransientObjectProperties() throws Exception {
+        final StubRequest stubRequest = builder.withMethod(HttpMethods.POST).withPost("posted").build();
+        stubRequest.compileRegexPatternsAndCache();
+        final Map<String, String> properties = ReflectionUtils.getProperties(stubRequest);
+
+        assertThat(properties.get("post")).isEqualTo("posted");
+        assertThat(properties).doesNotContainKey("postbody");
+        assertThat(properties).doesNotContainKey("methodset");
+        assertThat(properties).doesNotContainKey("compiledrequest");
+    }
+
     @Test
     public void shouldSetValueOnObjectProperty_WhenCorrectPropertyNameGiven() throws Exception {
         final StubRequest stubRequest = builder.build();
@@ -0,0 +1,67 @@
+package io.github.azagniotov.stubby4j.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+public class ResponseTemplateTest {
+
+    @Test
+    public void shouldRenderTemplateAsIs_WhenTemplateHasNoTokens() throws Exception {
+        final ResponseTemplate template = ResponseTemplate.compile("no tokens <% here");
+
+        assertThat(template.hasTokens()).isFalse();
+        assertThat(template.render(Collections.singletonMap("url.1", "ALEX"))).isEqualTo("no tokens <% here");
+        assertThat(ResponseTemplate.compile("").render(Collections.emptyMap())).isEqualTo("");
+    }
+
+    @Test
+    public void shouldReplaceTokensWithTheirValues_WhenTokensHaveWhitespace() throws Exception {
+        final Map<String, String> tokenValues = new HashMap<>();
+        tokenValues.put("url.1", "ALEX");
+        tokenValues.put("query.1", "KOKO");
+
+        final ResponseTemplate template = ResponseTemplate.compile("<%url.1%>, <% url.1 %> and <%\tquery.1\n%>!");
+
+        assertThat(template.render(tokenValues)).isEqualTo("ALEX, ALEX and KOKO!");
+    }
+
+    @Test
+    public void shouldKeepTokensAsWritten_WhenTokensHaveNoValues() throws Exception {
+        final ResponseTemplate template = ResponseTemplate.compile("Hello, <%  url.1 %> <% url.2 %>");
+
+        assertThat(template.render(Collections.singletonMap("url.2", "JOHN"))).isEqualTo("Hello, <%  url.1 %> JOHN");
+    }
+
+    @Test
+    public void shouldReplaceInnermostToken_WhenTokenStartIsRepeated() throws Exception {
+        final ResponseTemplate template = ResponseTemplate.compile("<% <% url.1 %> %> <%");
+
+        assertThat(template.render(Collections.singletonMap("url.1", "ALEX"))).isEqualTo("<% ALEX %> <%");
+    }
+
+    @Test
+    public void shouldWriteValuesLiterally_WhenValuesHaveRegexReplacementCharacters() throws Exception {
+        final ResponseTemplate template = ResponseTemplate.compile("price: <% post.1 %>");
+
+        assertThat(template.render(Collections.singletonMap("post.1", "$1.00\\"))).isEqualTo("price: $1.00\\");
+    }
+
+    @Test
+    public void shouldRenderToStreamSameBytesAsRenderedString_WhenTemplateHasMultiByteCharacters() throws Exception {
+        final Map<String, String> tokenValues = Collections.singletonMap("url.1", "Zürich");
+        final ResponseTemplate template = ResponseTemplate.compile("Привет, <% url.1 %>! Ça va?");
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        template.renderTo(outputStream, tokenValues);
+
+        assertThat(StringUtils.newStringUtf8(outputStream.toByteArray())).isEqualTo("Привет, Zürich! Ça va?");
+        assertThat(outputStream.toByteArray()).isEqualTo(StringUtils.getBytesUtf8(template.render(tokenValues)));
+    }
+}
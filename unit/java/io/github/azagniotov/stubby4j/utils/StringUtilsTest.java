@@ -58,6 +58,14 @@ public class StringUtilsTest {
         assertThat(result).isEqualTo(StringUtils.FAILED);
     }
 
+    @Test
+    public void shouldDecodeOnlyOneKindOfEncodedSpaces_WhenValueIsUrlEncoded() throws Exception {
+        assertThat(StringUtils.decodeUrlEncoded("alex%2B%2Btracy+logan")).isEqualTo("alex tracy+logan");
+        assertThat(StringUtils.decodeUrlEncoded("alex%20\t%20tracy+logan")).isEqualTo("alex tracy+logan");
+        assertThat(StringUtils.decodeUrlEncoded("alex++tracy")).isEqualTo("alex tracy");
+        assertThat(StringUtils.decodeUrlEncoded("alex\t\ttracy")).isEqualTo("alex\t\ttracy");
+    }
+
     @Test
     public void shouldFilterOutSpacesBetweenElementsWithQuotes() throws Exception {
 